@@ -1,30 +1,56 @@
 package com.example.smart_home_syst.config;
 
-import java.util.Arrays;
-
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCache;
-import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.example.smart_home_syst.dto.DeviceSnapshot;
+import com.example.smart_home_syst.dto.ModeSnapshot;
+import com.example.smart_home_syst.dto.RoomSnapshot;
+import com.example.smart_home_syst.util.IndexedListCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
 
 @Configuration
 @EnableCaching
-
+@EnableConfigurationProperties(CacheSpecProperties.class)
 public class CacheConfig {
+    // Ограниченные по размеру и времени жизни кэши. recordStats нужен для метрик cache.gets/cache.evictions в actuator
     @Bean
-    CacheManager cacheManager() {
-        SimpleCacheManager scm = new SimpleCacheManager();
-        scm.setCaches(Arrays.asList(
-            new ConcurrentMapCache("devices"),
-            new ConcurrentMapCache("device"),
-            new ConcurrentMapCache("modes"),
-            new ConcurrentMapCache("mode"),
-            new ConcurrentMapCache("rooms"),
-            new ConcurrentMapCache("room")      
-        ));
-        return scm;
+    CacheManager cacheManager(CacheSpecProperties properties) {
+        CaffeineCacheManager ccm = new CaffeineCacheManager();
+        ccm.setCaffeine(Caffeine.from(properties.getDefaultSpec()).recordStats());
+        properties.getSpecs().forEach((name, spec) ->
+            ccm.registerCustomCache(name, Caffeine.from(spec).recordStats().build()));
+        return ccm;
+    }
+
+    // Списки "все устройства/комнаты/режимы" (неизменяемые снимки) с точечным обновлением при записи.
+    // Ключ поиска - название: по нему строится индекс поиска по подстроке
+    @Bean
+    IndexedListCache<DeviceSnapshot> deviceListCache(CacheSpecProperties properties, MeterRegistry meterRegistry) {
+        return new IndexedListCache<>("devices", DeviceSnapshot::id, device -> versionOf(device.version()), DeviceSnapshot::title,
+            properties.getList().getMaxSize(), properties.getList().getRefreshAfter().toMillis(), meterRegistry);
+    }
+
+    @Bean
+    IndexedListCache<RoomSnapshot> roomListCache(CacheSpecProperties properties, MeterRegistry meterRegistry) {
+        return new IndexedListCache<>("rooms", RoomSnapshot::id, room -> versionOf(room.version()), RoomSnapshot::title,
+            properties.getList().getMaxSize(), properties.getList().getRefreshAfter().toMillis(), meterRegistry);
+    }
+
+    @Bean
+    IndexedListCache<ModeSnapshot> modeListCache(CacheSpecProperties properties, MeterRegistry meterRegistry) {
+        return new IndexedListCache<>("modes", ModeSnapshot::id, mode -> versionOf(mode.version()), ModeSnapshot::title,
+            properties.getList().getMaxSize(), properties.getList().getRefreshAfter().toMillis(), meterRegistry);
+    }
+
+    private static long versionOf(Integer version) {
+        return version != null ? version : 0; // строки, созданные до появления версий
     }
 }
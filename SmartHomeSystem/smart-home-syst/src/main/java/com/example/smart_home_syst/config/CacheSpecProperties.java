@@ -0,0 +1,25 @@
+package com.example.smart_home_syst.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+// Настройки кэшей из application.yaml (раздел cache): спецификация Caffeine на каждый кэш
+@Data
+@ConfigurationProperties(prefix = "cache")
+public class CacheSpecProperties {
+    private String defaultSpec = "maximumSize=1000,expireAfterWrite=10m";
+    private Map<String, String> specs = new LinkedHashMap<>();
+    private ListCache list = new ListCache();
+
+    // Списки "все устройства/комнаты/режимы" (IndexedListCache)
+    @Data
+    public static class ListCache {
+        private int maxSize = 200000;
+        private Duration refreshAfter = Duration.ofMinutes(10);
+    }
+}
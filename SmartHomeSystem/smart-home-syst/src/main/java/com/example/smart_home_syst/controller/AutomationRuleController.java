@@ -0,0 +1,84 @@
+package com.example.smart_home_syst.controller;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.smart_home_syst.dto.AutomationRuleDto;
+import com.example.smart_home_syst.service.AutomationRuleService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+@Tag(
+    name = "Правила автоматизации",
+    description = """
+    Модуль для правил "условие -> действие".
+    \nУсловия: DEVICE_TURNED_ON, DEVICE_TURNED_OFF, TIME_OF_DAY, ROOM_POWER_ABOVE.
+    \nДействия: SWITCH_ROOM_MODE, TURN_ON_MODE_DEVICES, TURN_OFF_MODE_DEVICES, TURN_OFF_ROOM_DEVICES, NOTIFY_ROOM_MANAGER.
+    """
+)
+@RestController
+@RequiredArgsConstructor
+public class AutomationRuleController {
+    private final AutomationRuleService ruleService;
+
+    @Operation(
+    summary = "Все правила",
+    description = "Получение списка всех правил автоматизации")
+    @PreAuthorize("hasAuthority('DEVICE:READ')")
+    @GetMapping("/rules")
+    public List<AutomationRuleDto> getRules() {
+        return ruleService.getAll();
+    }
+
+    @Operation(
+    summary = "Конкретное правило",
+    description = "Получение правила по ID")
+    @PreAuthorize("hasAuthority('DEVICE:READ')")
+    @GetMapping("/rules/{id}")
+    public ResponseEntity<AutomationRuleDto> getRule(@PathVariable Long id) {
+        AutomationRuleDto rule = ruleService.getById(id);
+        return rule != null ? ResponseEntity.ok(rule) : ResponseEntity.notFound().build();
+    }
+
+    @Operation(
+    summary = "Добавление правила",
+    description = "Заполните поля условия и действия, нужные для выбранных типов. Поле id игнорируется")
+    @PreAuthorize("hasAuthority('DEVICE:UPDATE')")
+    @PostMapping("/rules")
+    public ResponseEntity<AutomationRuleDto> addRule(@RequestBody AutomationRuleDto ruleDto) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(ruleService.create(ruleDto));
+    }
+
+    @Operation(
+    summary = "Изменение правила",
+    description = "Изменение правила по ID. Поле id в теле игнорируется")
+    @PreAuthorize("hasAuthority('DEVICE:UPDATE')")
+    @PutMapping("/rules/{id}")
+    public ResponseEntity<AutomationRuleDto> editRule(@PathVariable Long id, @RequestBody AutomationRuleDto ruleDto) {
+        return ResponseEntity.ok(ruleService.update(id, ruleDto));
+    }
+
+    @Operation(
+    summary = "Удаление правила",
+    description = "Удаление правила по ID")
+    @PreAuthorize("hasAuthority('DEVICE:UPDATE')")
+    @DeleteMapping("/rules/{id}")
+    public ResponseEntity<Void> deleteRule(@PathVariable Long id) {
+        if (ruleService.deleteById(id)) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.smart_home_syst.controller;
+
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.smart_home_syst.dto.DeviceCommandDto;
+import com.example.smart_home_syst.dto.DeviceCommandRequestDto;
+import com.example.smart_home_syst.service.DeviceCommandQueue;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+@Tag(
+    name = "Команды устройствам",
+    description = """
+    Модуль для асинхронного управления устройствами. Команда ставится в очередь и записывается в фоне пакетами:
+    запрос возвращает Id команды, по которому можно узнать её статус.
+    \nКоманды: TURN_ON, TURN_OFF, SET_MODE (с modeId).
+    """
+)
+@RestController
+@RequiredArgsConstructor
+public class DeviceCommandController {
+    private final DeviceCommandQueue deviceCommandQueue;
+
+    @Operation(
+    summary = "Команда устройству",
+    description = "Поставить в очередь команду устройству с указанным ID. Несколько команд одного вида, ожидающих записи, заменяются последней (статус SUPERSEDED)")
+    @PreAuthorize("hasAuthority('DEVICE:UPDATE')")
+    @PostMapping("/devices/{id}/commands")
+    public ResponseEntity<DeviceCommandDto> submitCommand(@PathVariable Long id, @RequestBody DeviceCommandRequestDto request) {
+        try {
+            DeviceCommandDto command = deviceCommandQueue.submit(id, request);
+            return ResponseEntity.accepted()
+                .location(URI.create("/devices/commands/" + command.id()))
+                .body(command);
+        } catch (IllegalArgumentException e) { // нет type или modeId для SET_MODE
+            return ResponseEntity.badRequest().build();
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @Operation(
+    summary = "Статус команды",
+    description = "Получить статус команды устройству (QUEUED, SUPERSEDED, APPLIED, FAILED)")
+    @PreAuthorize("hasAuthority('DEVICE:READ')")
+    @GetMapping("/devices/commands/{commandId}")
+    public ResponseEntity<DeviceCommandDto> getCommand(@PathVariable String commandId) {
+        DeviceCommandDto command = deviceCommandQueue.getCommand(commandId);
+        return command != null ? ResponseEntity.ok(command) : ResponseEntity.notFound().build();
+    }
+}
@@ -1,10 +1,12 @@
 package com.example.smart_home_syst.controller;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
@@ -20,16 +22,23 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.smart_home_syst.dto.BulkCommandResultDto;
+import com.example.smart_home_syst.dto.CursorPageDto;
+import com.example.smart_home_syst.dto.ImportResultDto;
 import com.example.smart_home_syst.dto.DeviceDto;
+import com.example.smart_home_syst.dto.DeviceSnapshot;
 import com.example.smart_home_syst.enumerator.DeviceType;
-import com.example.smart_home_syst.model.Device;
+import com.example.smart_home_syst.service.DeviceEventHub;
 import com.example.smart_home_syst.service.DeviceService;
+import com.example.smart_home_syst.specifications.KeysetSpecifications;
+import com.example.smart_home_syst.util.NdjsonWriter;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
-import org.springframework.http.HttpHeaders;
 
 
 @Tag(
@@ -42,9 +51,11 @@ import org.springframework.http.HttpHeaders;
 @RestController
 public class DeviceController {
     private final DeviceService deviceService;
+    private final DeviceEventHub deviceEventHub;
 
-    DeviceController(DeviceService deviceService) {
+    DeviceController(DeviceService deviceService, DeviceEventHub deviceEventHub) {
         this.deviceService = deviceService;
+        this.deviceEventHub = deviceEventHub;
     }
 
     @Operation(
@@ -52,16 +63,45 @@ public class DeviceController {
     description = "Получение списка всех устройств")
     @PreAuthorize("hasAuthority('DEVICE:READ')")
     @GetMapping("/devices")
-    public List<Device> getDevices() {
+    public List<DeviceSnapshot> getDevices() {
         return deviceService.getAll();
     }
 
+    @Operation(
+    summary = "Все устройств (NDJSON)",
+    description = "Потоковый вывод списка при Accept: application/x-ndjson, по одной записи на строку. Параметр fields (например id,title) ограничивает набор полей")
+    @PreAuthorize("hasAuthority('DEVICE:READ')")
+    @GetMapping(value = "/devices", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamDevices(@RequestParam(required = false) String fields) {
+        Set<String> projection;
+        try {
+            projection = NdjsonWriter.parseFields(fields, DeviceSnapshot.class);
+        } catch (IllegalArgumentException e) { // неизвестное поле в fields
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> deviceService.writeDevicesNdjson(out, projection);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @Operation(
+    summary = "Изменения устройств (SSE)",
+    description = "Поток событий device (CREATED, UPDATED, DELETED, RELOAD) с состоянием до и после изменения вместо опроса списка. roomId и type ограничивают события одной комнатой или типом. Изменения одного устройства, ещё не отправленные клиенту, сливаются в одно событие; если клиент отстал на слишком много устройств, он получает RELOAD и должен перечитать список")
+    @PreAuthorize("hasAuthority('DEVICE:READ')")
+    @GetMapping(value = "/devices/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeToDeviceEvents(@RequestParam(required = false) Long roomId, @RequestParam(required = false) DeviceType type) {
+        try {
+            return ResponseEntity.ok(deviceEventHub.subscribe(roomId, type));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
     @Operation(
     summary = "Конкретное устройство",
     description = "Получение устройства с указанным ID")
     @PreAuthorize("hasAuthority('DEVICE:READ')")
     @GetMapping("/devices/{id}")
-    public ResponseEntity<Device> getDevice(@PathVariable Long id) {
+    public ResponseEntity<DeviceSnapshot> getDevice(@PathVariable Long id) {
         return ResponseEntity.ok().body(deviceService.getById(id)); 
     }
 
@@ -78,8 +118,8 @@ public class DeviceController {
     """)
     @PreAuthorize("hasAuthority('DEVICE:CREATE')")
     @PostMapping("/devices")
-    public ResponseEntity<Device> addDevice(@RequestBody @Valid DeviceDto deviceDto) {
-       Device newDevice = deviceService.create(deviceDto);
+    public ResponseEntity<DeviceSnapshot> addDevice(@RequestBody @Valid DeviceDto deviceDto) {
+       DeviceSnapshot newDevice = deviceService.create(deviceDto);
        return  ResponseEntity.status(HttpStatus.CREATED).body(newDevice);
     }
 
@@ -96,8 +136,8 @@ public class DeviceController {
     """)
     @PreAuthorize("hasAuthority('DEVICE:UPDATE')")
     @PutMapping("/devices/{id}")
-    public ResponseEntity<Device> editDevice(@PathVariable Long id, @RequestBody @Valid DeviceDto deviceDto) {
-        Device updDevice = deviceService.update(id, deviceDto);
+    public ResponseEntity<DeviceSnapshot> editDevice(@PathVariable Long id, @RequestBody @Valid DeviceDto deviceDto) {
+        DeviceSnapshot updDevice = deviceService.update(id, deviceDto);
         if(updDevice != null) {
             return ResponseEntity.ok(updDevice);
         }
@@ -128,15 +168,31 @@ public class DeviceController {
         return ResponseEntity.ok(deviceService.getByFilter(title, min_power, max_power, activity, type, pageable));
     }
 
+    @Operation(
+    summary = "Устройства по фильтру (курсор)",
+    description = "Постраничный вывод без OFFSET: sort - id (по умолчанию) или title, cursor - значение nextCursor из предыдущего ответа. Общее число записей считается только при withTotal=true")
+    @PreAuthorize("hasAuthority('DEVICE:READ')")
+    @GetMapping("/devices/filter/cursor")
+    public ResponseEntity<CursorPageDto<DeviceSnapshot>> getByFilterCursor(@RequestParam(required = false) String title,
+    Double min_power, Double max_power, Boolean activity, DeviceType type,
+    @RequestParam(defaultValue = KeysetSpecifications.BY_ID) String sort, @RequestParam(required = false) String cursor,
+    @RequestParam(defaultValue = "10") int size, @RequestParam(defaultValue = "false") boolean withTotal) {
+        try {
+            return ResponseEntity.ok(deviceService.getByFilterCursor(title, min_power, max_power, activity, type, sort, cursor, size, withTotal));
+        } catch (IllegalArgumentException e) { // неверный курсор, поле сортировки или размер страницы
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @Operation(
     summary = "Включение устройств типа Х",
-    description = "Включить все устройства с указанным типом устройства")
+    description = "Включить все устройства с указанным типом устройства. Возвращает ID изменённых и не изменившихся устройств")
     @PreAuthorize("hasAuthority('DEVICE:UPDATE')")
     @PutMapping("/devices/turnOnType/{type}")
-    public ResponseEntity<List<Device>> turnOnDevicesWithType(DeviceType type) {
-        List<Device> updDeviceList = deviceService.turnOnDevicesWithType(type);
-        if(updDeviceList.size() != 0) {
-            return ResponseEntity.ok(updDeviceList);
+    public ResponseEntity<BulkCommandResultDto> turnOnDevicesWithType(DeviceType type) {
+        BulkCommandResultDto result = deviceService.turnOnDevicesWithType(type);
+        if(result.total() != 0) {
+            return ResponseEntity.ok(result);
         }
         else{
             return ResponseEntity.notFound().build();
@@ -145,13 +201,13 @@ public class DeviceController {
     
     @Operation(
     summary = "Выключение устройств типа Х",
-    description = "Выключить все устройства с указанным типом устройства")
+    description = "Выключить все устройства с указанным типом устройства. Возвращает ID изменённых и не изменившихся устройств")
     @PreAuthorize("hasAuthority('DEVICE:UPDATE')")
     @PutMapping("/devices/turnOffType/{type}")
-    public ResponseEntity<List<Device>> turnOffDevicesWithType(DeviceType type) {
-        List<Device> updDeviceList = deviceService.turnOffDevicesWithType(type);
-        if(updDeviceList.size() != 0) {
-            return ResponseEntity.ok(updDeviceList);
+    public ResponseEntity<BulkCommandResultDto> turnOffDevicesWithType(DeviceType type) {
+        BulkCommandResultDto result = deviceService.turnOffDevicesWithType(type);
+        if(result.total() != 0) {
+            return ResponseEntity.ok(result);
         }
         else{
             return ResponseEntity.notFound().build();
@@ -163,22 +219,20 @@ public class DeviceController {
     description = "Экспортировать данные обо всех устройствах в файл в формате XML. Введите название конечного файла перед отправкой запроса")
     @PreAuthorize("hasAuthority('DEVICE:READ')")
     @GetMapping("/devices/export/{type}")
-    public ResponseEntity<String> exportDevicesToXml(String filename) {
+    public ResponseEntity<Resource> exportDevicesToXml(String filename) {
         String path = "exports/xml/devices";
-        String savedXml = deviceService.exportDevicesListToXmlFile(path, filename);
-        if(savedXml != "" & savedXml != null) {
-            return ResponseEntity.ok(savedXml);
-        }
-        else{
-            return ResponseEntity.notFound().build();
-        }
+        Path savedFile = deviceService.exportDevicesListToXmlFile(path, filename);
+        // Файл отдается потоком с диска, а не повторной сборкой XML строки в памяти
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_XML)
+            .body(new FileSystemResource(savedFile));
     }
     
     @Operation(
     summary = "Импорт устройств",
     description = """
         Импортировать данные об устройствах из XML файла.
-        Требования к файлу: формат XML, размер не более 10Mb
+        Требования к файлу: формат XML, размер не более 512Mb
         Структура файла (текст за // писать не требуется - это комментарии):
         \nsystem>Наименование системы, Имя пользователя экспортера, Формат (писать: '<format>XML</format>')</system
         \ndevice>
@@ -192,29 +246,8 @@ public class DeviceController {
     """)
     @PreAuthorize("hasAuthority('DEVICE:CREATE')")
     @PostMapping(path = "/devices/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<List<Device>> importDevicesFromXml(@RequestParam MultipartFile file) {
-        List<Device> updDeviceList = deviceService.importDevicesListFromXmlFile(file);
-        if(updDeviceList.size() != 0) {
-            return ResponseEntity.ok(updDeviceList);
-        }
-        else{
-            return ResponseEntity.notFound().build();
-        }
-    }
-    
-    @Operation(
-    summary = "Отчёт об устройствах",
-    description = "Сформировать отчёт обо всех устройствах в БД. Результатом будет pdf файл, который можно будет скачать по ссылке")
-    @PreAuthorize("hasAuthority('DEVICE:READ')")
-    @GetMapping("/devices/report/{type}")
-    public ResponseEntity<ByteArrayResource> generateDevicesPdf() {
-        byte[] pdfContent = deviceService.generateDevicePdfReport();
-        String filename = "devices_report_" + 
-            LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd-HH-mm-ss")) + ".pdf";
-        return ResponseEntity.ok()
-            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-            .contentType(MediaType.APPLICATION_PDF)
-            .contentLength(pdfContent.length)
-            .body(new ByteArrayResource(pdfContent));
+    public ResponseEntity<ImportResultDto> importDevicesFromXml(@RequestParam MultipartFile file) {
+        ImportResultDto result = deviceService.importDevicesListFromXmlFile(file);
+        return ResponseEntity.ok(result);
     }
 }
@@ -0,0 +1,62 @@
+package com.example.smart_home_syst.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.smart_home_syst.dto.DeviceStatsDto;
+import com.example.smart_home_syst.dto.DeviceStatsOverviewDto;
+import com.example.smart_home_syst.enumerator.DeviceType;
+import com.example.smart_home_syst.service.DeviceStatsService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+@Tag(
+    name = "Статистика устройств",
+    description = """
+    Текущее количество устройств, включённых устройств и их суммарная мощность
+    по комнатам, типам и режимам. Значения берутся из счетчиков в памяти, без запросов к БД.
+    """
+)
+@RestController
+@RequiredArgsConstructor
+public class DeviceStatsController {
+    private final DeviceStatsService deviceStatsService;
+
+    @Operation(
+    summary = "Статистика по всем устройствам",
+    description = "Итог и разбивки по комнатам, типам и режимам")
+    @PreAuthorize("hasAuthority('DEVICE:READ')")
+    @GetMapping("/devices/stats")
+    public ResponseEntity<DeviceStatsOverviewDto> getOverview() {
+        return ResponseEntity.ok(deviceStatsService.getOverview());
+    }
+
+    @Operation(
+    summary = "Статистика устройств типа Х")
+    @PreAuthorize("hasAuthority('DEVICE:READ')")
+    @GetMapping("/devices/stats/type/{type}")
+    public ResponseEntity<DeviceStatsDto> getTypeStats(@PathVariable DeviceType type) {
+        return ResponseEntity.ok(deviceStatsService.getTypeStats(type));
+    }
+
+    @Operation(
+    summary = "Статистика устройств комнаты")
+    @PreAuthorize("hasAuthority('ROOM:READ')")
+    @GetMapping("/rooms/{id}/stats")
+    public ResponseEntity<DeviceStatsDto> getRoomStats(@PathVariable Long id) {
+        return ResponseEntity.ok(deviceStatsService.getRoomStats(id));
+    }
+
+    @Operation(
+    summary = "Статистика устройств режима")
+    @PreAuthorize("hasAuthority('MODE:READ')")
+    @GetMapping("/modes/{id}/stats")
+    public ResponseEntity<DeviceStatsDto> getModeStats(@PathVariable Long id) {
+        return ResponseEntity.ok(deviceStatsService.getModeStats(id));
+    }
+}
@@ -1,13 +1,13 @@
 package com.example.smart_home_syst.controller;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
 
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -21,12 +21,18 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.smart_home_syst.dto.BulkCommandResultDto;
+import com.example.smart_home_syst.dto.CursorPageDto;
+import com.example.smart_home_syst.dto.ImportResultDto;
 import com.example.smart_home_syst.dto.ModeDto;
+import com.example.smart_home_syst.dto.DeviceSnapshot;
+import com.example.smart_home_syst.dto.ModeSnapshot;
 import com.example.smart_home_syst.enumerator.ModeType;
-import com.example.smart_home_syst.model.Device;
-import com.example.smart_home_syst.model.Mode;
 import com.example.smart_home_syst.service.ModeService;
+import com.example.smart_home_syst.specifications.KeysetSpecifications;
+import com.example.smart_home_syst.util.NdjsonWriter;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -52,16 +58,32 @@ public class ModeController {
     description = "Получение списка всех режимов работ")
     @PreAuthorize("hasAuthority('MODE:READ')")
     @GetMapping("/modes")
-    public List<Mode> getModes() {
+    public List<ModeSnapshot> getModes() {
         return modeService.getAll();
     }
 
+    @Operation(
+    summary = "Все режимов (NDJSON)",
+    description = "Потоковый вывод списка при Accept: application/x-ndjson, по одной записи на строку. Параметр fields (например id,title) ограничивает набор полей")
+    @PreAuthorize("hasAuthority('MODE:READ')")
+    @GetMapping(value = "/modes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamModes(@RequestParam(required = false) String fields) {
+        Set<String> projection;
+        try {
+            projection = NdjsonWriter.parseFields(fields, ModeSnapshot.class);
+        } catch (IllegalArgumentException e) { // неизвестное поле в fields
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> modeService.writeModesNdjson(out, projection);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     @Operation(
     summary = "Конкретный режим",
     description = "Получение режима с указанным ID")
     @PreAuthorize("hasAuthority('MODE:READ')")
     @GetMapping("/modes/{id}")
-    public ResponseEntity<Mode> getMode(@PathVariable Long id) {
+    public ResponseEntity<ModeSnapshot> getMode(@PathVariable Long id) {
         return ResponseEntity.ok().body(modeService.getById(id));
     }
 
@@ -74,8 +96,8 @@ public class ModeController {
     """)
     @PreAuthorize("hasAuthority('MODE:CREATE')")
     @PostMapping("/modes")
-    public ResponseEntity<Mode> addMode(@RequestBody @Valid ModeDto modeDto) {
-       Mode newMode = modeService.create(modeDto);
+    public ResponseEntity<ModeSnapshot> addMode(@RequestBody @Valid ModeDto modeDto) {
+       ModeSnapshot newMode = modeService.create(modeDto);
        return  ResponseEntity.status(HttpStatus.CREATED).body(newMode);
     }
 
@@ -88,8 +110,8 @@ public class ModeController {
     """)
     @PreAuthorize("hasAuthority('MODE:UPDATE')")
     @PutMapping("/modes/{id}")
-    public ResponseEntity<Mode> editMode(@PathVariable Long id, @RequestBody @Valid ModeDto modeDto) {
-        Mode updMode = modeService.update(id, modeDto);
+    public ResponseEntity<ModeSnapshot> editMode(@PathVariable Long id, @RequestBody @Valid ModeDto modeDto) {
+        ModeSnapshot updMode = modeService.update(id, modeDto);
         if(updMode != null) {
             return ResponseEntity.ok(updMode);
         }
@@ -119,12 +141,27 @@ public class ModeController {
         return ResponseEntity.ok(modeService.getByFilter(title, type, pageable));
     }
 
+    @Operation(
+    summary = "Режимы по фильтру (курсор)",
+    description = "Постраничный вывод без OFFSET: sort - id (по умолчанию) или title, cursor - значение nextCursor из предыдущего ответа. Общее число записей считается только при withTotal=true")
+    @PreAuthorize("hasAuthority('MODE:READ')")
+    @GetMapping("/modes/filter/cursor")
+    public ResponseEntity<CursorPageDto<ModeSnapshot>> getByFilterCursor(@RequestParam(required = false) String title, ModeType type,
+    @RequestParam(defaultValue = KeysetSpecifications.BY_ID) String sort, @RequestParam(required = false) String cursor,
+    @RequestParam(defaultValue = "10") int size, @RequestParam(defaultValue = "false") boolean withTotal) {
+        try {
+            return ResponseEntity.ok(modeService.getByFilterCursor(title, type, sort, cursor, size, withTotal));
+        } catch (IllegalArgumentException e) { // неверный курсор, поле сортировки или размер страницы
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @Operation(
     summary = "Устройства с режимом Х",
     description = "Получение всех устройств с режимом работы с указанным ID")
     @PreAuthorize("hasAuthority('DEVICE:READ')")
     @GetMapping("/mode-devices/{id}")
-    public List<Device> getDevicesOfMode(@PathVariable Long id) {
+    public List<DeviceSnapshot> getDevicesOfMode(@PathVariable Long id) {
         return modeService.getDevicesOfMode(id);
     }
 
@@ -133,10 +170,10 @@ public class ModeController {
     description = "Выключить все устройства с режимом работы c указанным ID")
     @PreAuthorize("hasAuthority('DEVICE:UPDATE')")
     @PutMapping("/mode/turnOff/{id}")
-    public ResponseEntity<List<Device>> turnOffRoom(@PathVariable Long id) {
-        List<Device> updDeviceList = modeService.turnOffDevicesOfMode(id);
-        if(updDeviceList.size() != 0) {
-            return ResponseEntity.ok(updDeviceList);
+    public ResponseEntity<BulkCommandResultDto> turnOffRoom(@PathVariable Long id) {
+        BulkCommandResultDto result = modeService.turnOffDevicesOfMode(id);
+        if(result.total() != 0) {
+            return ResponseEntity.ok(result);
         }
         else{
             return ResponseEntity.notFound().build();
@@ -148,10 +185,10 @@ public class ModeController {
     description = "Включить все устройства с режимом работы c указанным ID")
     @PreAuthorize("hasAuthority('DEVICE:UPDATE')")
     @PutMapping("/mode/turnOn/{id}")
-    public ResponseEntity<List<Device>> turnOnRoom(@PathVariable Long id) {
-        List<Device> updDeviceList = modeService.turnOnDevicesOfMode(id);
-        if(updDeviceList.size() != 0) {
-            return ResponseEntity.ok(updDeviceList);
+    public ResponseEntity<BulkCommandResultDto> turnOnRoom(@PathVariable Long id) {
+        BulkCommandResultDto result = modeService.turnOnDevicesOfMode(id);
+        if(result.total() != 0) {
+            return ResponseEntity.ok(result);
         }
         else{
             return ResponseEntity.notFound().build();
@@ -163,22 +200,20 @@ public class ModeController {
     description = "Экспортировать данные обо всех режимах работы устройств в файл в формате XML. Введите название конечного файла перед отправкой запроса")
     @PreAuthorize("hasAuthority('MODE:READ')")
     @GetMapping("/modes/export/{type}")
-    public ResponseEntity<String> exportModesToXml(String filename) {
+    public ResponseEntity<Resource> exportModesToXml(String filename) {
         String path = "exports/xml/modes";
-        String savedXml = modeService.exportModesListToXmlFile(path, filename);
-        if(savedXml != "" & savedXml != null) {
-            return ResponseEntity.ok(savedXml);
-        }
-        else{
-            return ResponseEntity.notFound().build();
-        }
+        Path savedFile = modeService.exportModesListToXmlFile(path, filename);
+        // Файл отдается потоком с диска, а не повторной сборкой XML строки в памяти
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_XML)
+            .body(new FileSystemResource(savedFile));
     }
 
     @Operation(
     summary = "Импорт режимов",
     description = """
         Импортировать данные о режимах работ устройств из XML файла.
-        Требования к файлу: формат XML, размер не более 10Mb
+        Требования к файлу: формат XML, размер не более 512Mb
         Структура файла (текст за // писать не требуется - это комментарии):
         \nsystem>Наименование системы, Имя пользователя экспортера, Формат (писать: '<format>XML</format>')</system
         \nmode>
@@ -188,29 +223,8 @@ public class ModeController {
     """)
     @PreAuthorize("hasAuthority('MODE:CREATE')")
     @PostMapping(path = "/modes/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<List<Mode>> importModesFromXml(@RequestParam MultipartFile file) {
-        List<Mode> updModeList = modeService.importModesListFromXmlFile(file);
-        if(updModeList.size() != 0) {
-            return ResponseEntity.ok(updModeList);
-        }
-        else{
-            return ResponseEntity.notFound().build();
-        }
-    }
-        
-    @Operation(
-    summary = "Отчёт об режимах",
-    description = "Сформировать отчёт обо всех режимах работы устройствах (данные из БД). Результатом будет pdf файл, который можно будет скачать по ссылке")
-    @PreAuthorize("hasAuthority('MODE:READ')")
-    @GetMapping("/modes/report/{type}")
-    public ResponseEntity<ByteArrayResource> generateModesPdf() {
-        byte[] pdfContent = modeService.generateModePdfReport();
-        String filename = "modes_report_" + 
-            LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd-HH-mm-ss")) + ".pdf";
-        return ResponseEntity.ok()
-            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-            .contentType(MediaType.APPLICATION_PDF)
-            .contentLength(pdfContent.length)
-            .body(new ByteArrayResource(pdfContent));
+    public ResponseEntity<ImportResultDto> importModesFromXml(@RequestParam MultipartFile file) {
+        ImportResultDto result = modeService.importModesListFromXmlFile(file);
+        return ResponseEntity.ok(result);
     }
 }
@@ -0,0 +1,84 @@
+package com.example.smart_home_syst.controller;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.smart_home_syst.dto.ModeScheduleDto;
+import com.example.smart_home_syst.service.ModeScheduleService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+@Tag(
+    name = "Расписания режимов",
+    description = """
+    Модуль для включения режимов по расписанию.
+    \nВ fireTime по дням daysOfWeek (пусто - каждый день) устройства комнат roomIds переводятся в режим modeId и включаются.
+    \nБез roomIds включаются все устройства режима.
+    """
+)
+@RestController
+@RequiredArgsConstructor
+public class ModeScheduleController {
+    private final ModeScheduleService scheduleService;
+
+    @Operation(
+    summary = "Все расписания",
+    description = "Получение списка всех расписаний режимов")
+    @PreAuthorize("hasAuthority('MODE:READ')")
+    @GetMapping("/schedules")
+    public List<ModeScheduleDto> getSchedules() {
+        return scheduleService.getAll();
+    }
+
+    @Operation(
+    summary = "Конкретное расписание",
+    description = "Получение расписания по ID")
+    @PreAuthorize("hasAuthority('MODE:READ')")
+    @GetMapping("/schedules/{id}")
+    public ResponseEntity<ModeScheduleDto> getSchedule(@PathVariable Long id) {
+        ModeScheduleDto schedule = scheduleService.getById(id);
+        return schedule != null ? ResponseEntity.ok(schedule) : ResponseEntity.notFound().build();
+    }
+
+    @Operation(
+    summary = "Добавление расписания",
+    description = "Обязательны title, modeId и fireTime. Поля id, nextFireAt и lastFiredAt игнорируются")
+    @PreAuthorize("hasAuthority('MODE:CREATE')")
+    @PostMapping("/schedules")
+    public ResponseEntity<ModeScheduleDto> addSchedule(@RequestBody ModeScheduleDto scheduleDto) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(scheduleService.create(scheduleDto));
+    }
+
+    @Operation(
+    summary = "Изменение расписания",
+    description = "Изменение расписания по ID, ближайшее срабатывание пересчитывается. Поля id, nextFireAt и lastFiredAt в теле игнорируются")
+    @PreAuthorize("hasAuthority('MODE:UPDATE')")
+    @PutMapping("/schedules/{id}")
+    public ResponseEntity<ModeScheduleDto> editSchedule(@PathVariable Long id, @RequestBody ModeScheduleDto scheduleDto) {
+        return ResponseEntity.ok(scheduleService.update(id, scheduleDto));
+    }
+
+    @Operation(
+    summary = "Удаление расписания",
+    description = "Удаление расписания по ID")
+    @PreAuthorize("hasAuthority('MODE:DELETE')")
+    @DeleteMapping("/schedules/{id}")
+    public ResponseEntity<Void> deleteSchedule(@PathVariable Long id) {
+        if (scheduleService.deleteById(id)) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.notFound().build();
+    }
+}
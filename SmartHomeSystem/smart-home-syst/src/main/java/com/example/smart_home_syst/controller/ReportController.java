@@ -0,0 +1,124 @@
+package com.example.smart_home_syst.controller;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.smart_home_syst.dto.ReportJobDto;
+import com.example.smart_home_syst.enumerator.ReportType;
+import com.example.smart_home_syst.service.ReportJobService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+@Tag(
+    name = "Отчёты",
+    description = """
+    Модуль для построения PDF отчётов. Отчёт строится в фоне: запрос возвращает Id задания,
+    по которому можно узнать статус и скачать готовый файл.
+    """
+)
+@RestController
+@RequiredArgsConstructor
+public class ReportController {
+    // Атрибуты Tomcat для передачи файла через sendfile (без копирования через память приложения)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final ReportJobService reportJobService;
+
+    private ResponseEntity<ReportJobDto> submit(ReportType type) {
+        try {
+            ReportJobDto job = reportJobService.submit(type);
+            return ResponseEntity.accepted()
+                .location(URI.create("/reports/" + job.id()))
+                .body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @Operation(
+    summary = "Отчёт об устройствах",
+    description = "Поставить в очередь построение отчёта обо всех устройствах в БД. Результатом будет Id задания, по которому pdf файл можно будет скачать")
+    @PreAuthorize("hasAuthority('DEVICE:READ')")
+    @GetMapping("/devices/report/{type}")
+    public ResponseEntity<ReportJobDto> generateDevicesPdf() {
+        return submit(ReportType.DEVICES);
+    }
+
+    @Operation(
+    summary = "Отчёт о комнатах",
+    description = "Поставить в очередь построение отчёта обо всех комнатах в доме (берётся из БД). Результатом будет Id задания, по которому pdf файл можно будет скачать")
+    @PreAuthorize("hasAuthority('ROOM:READ')")
+    @GetMapping("/rooms/report/{type}")
+    public ResponseEntity<ReportJobDto> generateRoomsPdf() {
+        return submit(ReportType.ROOMS);
+    }
+
+    @Operation(
+    summary = "Отчёт об режимах",
+    description = "Поставить в очередь построение отчёта обо всех режимах работы устройствах (данные из БД). Результатом будет Id задания, по которому pdf файл можно будет скачать")
+    @PreAuthorize("hasAuthority('MODE:READ')")
+    @GetMapping("/modes/report/{type}")
+    public ResponseEntity<ReportJobDto> generateModesPdf() {
+        return submit(ReportType.MODES);
+    }
+
+    @Operation(
+    summary = "Статус отчёта",
+    description = "Получить статус задания построения отчёта (QUEUED, RUNNING, DONE, FAILED)")
+    @GetMapping("/reports/{jobId}")
+    public ResponseEntity<ReportJobDto> getReportJob(@PathVariable String jobId) {
+        ReportJobDto job = reportJobService.getJob(jobId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    @Operation(
+    summary = "Скачать отчёт",
+    description = "Скачать pdf файл готового отчёта")
+    @GetMapping("/reports/{jobId}/file")
+    public ResponseEntity<Resource> downloadReport(@PathVariable String jobId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path reportFile = reportJobService.getReportFile(jobId);
+        if (reportFile == null) {
+            return ResponseEntity.notFound().build();
+        }
+        long size = Files.size(reportFile);
+        String contentDisposition = "attachment; filename=\"" + reportFile.getFileName() + "\"";
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Тело ответа не пишется: Tomcat сам отправит файл после обработки запроса
+            response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+            response.setContentLengthLong(size);
+            request.setAttribute(SENDFILE_FILENAME, reportFile.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return null;
+        }
+
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
+            .contentType(MediaType.APPLICATION_PDF)
+            .contentLength(size)
+            .body(new FileSystemResource(reportFile));
+    }
+}
@@ -1,13 +1,13 @@
 package com.example.smart_home_syst.controller;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
 
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -21,11 +21,17 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.smart_home_syst.dto.BulkCommandResultDto;
+import com.example.smart_home_syst.dto.CursorPageDto;
+import com.example.smart_home_syst.dto.ImportResultDto;
 import com.example.smart_home_syst.dto.RoomDto;
-import com.example.smart_home_syst.model.Device;
-import com.example.smart_home_syst.model.Room;
+import com.example.smart_home_syst.dto.DeviceSnapshot;
+import com.example.smart_home_syst.dto.RoomSnapshot;
 import com.example.smart_home_syst.service.RoomService;
+import com.example.smart_home_syst.specifications.KeysetSpecifications;
+import com.example.smart_home_syst.util.NdjsonWriter;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -48,16 +54,32 @@ public class RoomController {
     description = "Получение списка всех комнат")
     @PreAuthorize("hasAuthority('ROOM:READ')")
     @GetMapping("/rooms")
-    public List<Room> getRooms() {
+    public List<RoomSnapshot> getRooms() {
         return roomService.getAll();
     }
 
+    @Operation(
+    summary = "Все комнат (NDJSON)",
+    description = "Потоковый вывод списка при Accept: application/x-ndjson, по одной записи на строку. Параметр fields (например id,title) ограничивает набор полей")
+    @PreAuthorize("hasAuthority('ROOM:READ')")
+    @GetMapping(value = "/rooms", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamRooms(@RequestParam(required = false) String fields) {
+        Set<String> projection;
+        try {
+            projection = NdjsonWriter.parseFields(fields, RoomSnapshot.class);
+        } catch (IllegalArgumentException e) { // неизвестное поле в fields
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> roomService.writeRoomsNdjson(out, projection);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     @Operation(
     summary = "Конкретная комната",
     description = "Получение комнаты с указанным ID")
     @PreAuthorize("hasAuthority('ROOM:READ')")
     @GetMapping("/rooms/{id}")
-    public ResponseEntity<Room> getRoom(@PathVariable Long id) {
+    public ResponseEntity<RoomSnapshot> getRoom(@PathVariable Long id) {
         return ResponseEntity.ok().body(roomService.getById(id));
     }
 
@@ -72,8 +94,8 @@ public class RoomController {
     """)
     @PreAuthorize("hasAuthority('ROOM:CREATE')")
     @PostMapping("/rooms")
-    public ResponseEntity<Room> addRoom(@RequestBody @Valid RoomDto roomDto) {
-       Room newRoom = roomService.create(roomDto);
+    public ResponseEntity<RoomSnapshot> addRoom(@RequestBody @Valid RoomDto roomDto) {
+       RoomSnapshot newRoom = roomService.create(roomDto);
        return  ResponseEntity.status(HttpStatus.CREATED).body(newRoom);
     }
 
@@ -88,8 +110,8 @@ public class RoomController {
     """)
     @PreAuthorize("hasAuthority('ROOM:UPDATE')")
     @PutMapping("/rooms/{id}")
-    public ResponseEntity<Room> editRoom(@PathVariable Long id, @RequestBody @Valid RoomDto roomDto) {
-        Room updRoom = roomService.update(id, roomDto);
+    public ResponseEntity<RoomSnapshot> editRoom(@PathVariable Long id, @RequestBody @Valid RoomDto roomDto) {
+        RoomSnapshot updRoom = roomService.update(id, roomDto);
         if(updRoom != null) {
             return ResponseEntity.ok(updRoom);
         }
@@ -120,12 +142,27 @@ public class RoomController {
         return ResponseEntity.ok(roomService.getByFilter(title, location, max_capacity, min_capacity, pageable));
     }
 
+    @Operation(
+    summary = "Комнаты по фильтру (курсор)",
+    description = "Постраничный вывод без OFFSET: sort - id (по умолчанию) или title, cursor - значение nextCursor из предыдущего ответа. Общее число записей считается только при withTotal=true")
+    @PreAuthorize("hasAuthority('ROOM:READ')")
+    @GetMapping("/rooms/filter/cursor")
+    public ResponseEntity<CursorPageDto<RoomSnapshot>> getByFilterCursor(@RequestParam(required = false) String title, String location, Integer max_capacity, Integer min_capacity,
+    @RequestParam(defaultValue = KeysetSpecifications.BY_ID) String sort, @RequestParam(required = false) String cursor,
+    @RequestParam(defaultValue = "10") int size, @RequestParam(defaultValue = "false") boolean withTotal) {
+        try {
+            return ResponseEntity.ok(roomService.getByFilterCursor(title, location, max_capacity, min_capacity, sort, cursor, size, withTotal));
+        } catch (IllegalArgumentException e) { // неверный курсор, поле сортировки или размер страницы
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @Operation(
     summary = "Устройства в комнате",
     description = "Получение всех устройств в комнате с указанным ID")
     @PreAuthorize("hasAuthority('DEVICE:READ')")
     @GetMapping("/room-devices/{id}")
-    public List<Device> getDevicesInRoom(@PathVariable Long id) {
+    public List<DeviceSnapshot> getDevicesInRoom(@PathVariable Long id) {
         return roomService.getDevicesInRoom(id);
     }
 
@@ -134,10 +171,10 @@ public class RoomController {
     description = "Выключить все устройства в комнате c указанным ID")
     @PreAuthorize("hasAuthority('DEVICE:UPDATE')")
     @PutMapping("/room/turnOff/{id}")
-    public ResponseEntity<List<Device>> turnOffRoom(@PathVariable Long id) {
-        List<Device> updDeviceList = roomService.turnOffDevicesInRoom(id);
-        if(updDeviceList.size() != 0) {
-            return ResponseEntity.ok(updDeviceList);
+    public ResponseEntity<BulkCommandResultDto> turnOffRoom(@PathVariable Long id) {
+        BulkCommandResultDto result = roomService.turnOffDevicesInRoom(id);
+        if(result.total() != 0) {
+            return ResponseEntity.ok(result);
         }
         else{
             return ResponseEntity.notFound().build();
@@ -149,10 +186,10 @@ public class RoomController {
     description = "Включить все устройства в комнате c указанным ID")
     @PreAuthorize("hasAuthority('DEVICE:UPDATE')")
     @PutMapping("/room/turnOn/{id}")
-    public ResponseEntity<List<Device>> turnOnRoom(@PathVariable Long id) {
-        List<Device> updDeviceList = roomService.turnOnDevicesInRoom(id);
-        if(updDeviceList.size() != 0) {
-            return ResponseEntity.ok(updDeviceList);
+    public ResponseEntity<BulkCommandResultDto> turnOnRoom(@PathVariable Long id) {
+        BulkCommandResultDto result = roomService.turnOnDevicesInRoom(id);
+        if(result.total() != 0) {
+            return ResponseEntity.ok(result);
         }
         else{
             return ResponseEntity.notFound().build();
@@ -164,10 +201,10 @@ public class RoomController {
     description = "Перевести все устройства в комнате с указанным ID в режим работы с указанным ID")
     @PreAuthorize("hasAuthority('MODE:UPDATE')")
     @PutMapping("/room/set-mode/{id}")
-    public ResponseEntity<List<Device>> switchModeInRoom(Long roomId, Long modeId) {
-        List<Device> updDeviceList = roomService.switchDevicesModeInRoom(roomId, modeId);
-        if(updDeviceList.size() != 0) {
-            return ResponseEntity.ok(updDeviceList);
+    public ResponseEntity<BulkCommandResultDto> switchModeInRoom(Long roomId, Long modeId) {
+        BulkCommandResultDto result = roomService.switchDevicesModeInRoom(roomId, modeId);
+        if(result.total() != 0) {
+            return ResponseEntity.ok(result);
         }
         else{
             return ResponseEntity.notFound().build();
@@ -179,22 +216,20 @@ public class RoomController {
     description = "Экспортировать данные обо всех комнатах в файл в формате XML. Введите название конечного файла перед отправкой запроса")
     @PreAuthorize("hasAuthority('ROOM:READ')")
     @GetMapping("/rooms/export/{type}")
-    public ResponseEntity<String> exportRoomsToXml(String filename) {
+    public ResponseEntity<Resource> exportRoomsToXml(String filename) {
         String path = "exports/xml/rooms";
-        String savedXml = roomService.exportRoomsListToXmlFile(path, filename);
-        if(savedXml != "" & savedXml != null) {
-            return ResponseEntity.ok(savedXml);
-        }
-        else{
-            return ResponseEntity.notFound().build();
-        }
+        Path savedFile = roomService.exportRoomsListToXmlFile(path, filename);
+        // Файл отдается потоком с диска, а не повторной сборкой XML строки в памяти
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_XML)
+            .body(new FileSystemResource(savedFile));
     }
 
     @Operation(
     summary = "Импорт комнат",
     description = """
         Импортировать данные о комнатах из XML файла.
-        Требования к файлу: формат XML, размер не более 10Mb
+        Требования к файлу: формат XML, размер не более 512Mb
         Структура файла (текст за // писать не требуется - это комментарии):
         \nsystem>Наименование системы, Имя пользователя экспортера, Формат (писать: '<format>XML</format>')</system
         \nroom>
@@ -206,30 +241,9 @@ public class RoomController {
     """)
     @PreAuthorize("hasAuthority('ROOM:CREATE')")
     @PostMapping(path = "/rooms/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<List<Room>> importRoomsFromXml(@RequestParam MultipartFile file) {
-        List<Room> updRoomList = roomService.importRoomsListFromXmlFile(file);
-        if(updRoomList.size() != 0) {
-            return ResponseEntity.ok(updRoomList);
-        }
-        else{
-            return ResponseEntity.notFound().build();
-        }
-    }
-        
-    @Operation(
-    summary = "Отчёт о комнатах",
-    description = "Сформировать отчёт обо всех комнатах в доме (берётся из БД). Результатом будет pdf файл, который можно будет скачать по ссылке")
-    @PreAuthorize("hasAuthority('ROOM:READ')")
-    @GetMapping("/rooms/report/{type}")
-    public ResponseEntity<ByteArrayResource> generateRoomsPdf() {
-        byte[] pdfContent = roomService.generateRoomPdfReport();
-        String filename = "rooms_report_" + 
-            LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd-HH-mm-ss")) + ".pdf";
-        return ResponseEntity.ok()
-            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-            .contentType(MediaType.APPLICATION_PDF)
-            .contentLength(pdfContent.length)
-            .body(new ByteArrayResource(pdfContent));
+    public ResponseEntity<ImportResultDto> importRoomsFromXml(@RequestParam MultipartFile file) {
+        ImportResultDto result = roomService.importRoomsListFromXmlFile(file);
+        return ResponseEntity.ok(result);
     }
         
     @Operation(
@@ -0,0 +1,109 @@
+package com.example.smart_home_syst.controller;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.smart_home_syst.dto.TelemetryIngestResultDto;
+import com.example.smart_home_syst.dto.TelemetryPointDto;
+import com.example.smart_home_syst.dto.TelemetryReadingDto;
+import com.example.smart_home_syst.enumerator.TelemetryResolution;
+import com.example.smart_home_syst.service.TelemetryService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+
+@Tag(
+    name = "Телеметрия",
+    description = """
+    Модуль для приёма показаний мощности устройств и получения их истории.
+    История отдаётся по устройству, комнате или режиму с агрегацией по минутам или часам.
+    """
+)
+@RestController
+@RequiredArgsConstructor
+public class TelemetryController {
+    private static final Duration DEFAULT_PERIOD = Duration.ofDays(1);
+
+    private final TelemetryService telemetryService;
+
+    @Operation(
+    summary = "Приём показаний",
+    description = "Пачка показаний мощности (deviceId, timestamp, power). Показания записываются фоном; при переполнении буфера возвращается 503")
+    @PreAuthorize("hasAuthority('DEVICE:UPDATE')")
+    @PostMapping("/telemetry")
+    public ResponseEntity<TelemetryIngestResultDto> ingest(@RequestBody List<TelemetryReadingDto> readings) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(telemetryService.ingest(readings));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @Operation(
+    summary = "История мощности устройства",
+    description = "from/to в ISO-8601 (по умолчанию последние сутки), resolution - RAW, MINUTE или HOUR. Слишком длинный период - 400")
+    @PreAuthorize("hasAuthority('DEVICE:READ')")
+    @GetMapping("/devices/{id}/telemetry")
+    public ResponseEntity<List<TelemetryPointDto>> getDeviceTelemetry(@PathVariable Long id,
+    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+    @RequestParam(defaultValue = "MINUTE") TelemetryResolution resolution) {
+        Instant end = to != null ? to : Instant.now();
+        try {
+            List<TelemetryPointDto> series = telemetryService.getDeviceSeries(id, from != null ? from : end.minus(DEFAULT_PERIOD), end, resolution);
+            return series != null ? ResponseEntity.ok(series) : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) { // неверный или слишком длинный период, RAW для группы
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(
+    summary = "История мощности комнаты",
+    description = "Агрегаты по всем устройствам комнаты. from/to в ISO-8601 (по умолчанию последние сутки), resolution - MINUTE или HOUR. Слишком длинный период - 400")
+    @PreAuthorize("hasAuthority('ROOM:READ')")
+    @GetMapping("/rooms/{id}/telemetry")
+    public ResponseEntity<List<TelemetryPointDto>> getRoomTelemetry(@PathVariable Long id,
+    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+    @RequestParam(defaultValue = "HOUR") TelemetryResolution resolution) {
+        Instant end = to != null ? to : Instant.now();
+        try {
+            List<TelemetryPointDto> series = telemetryService.getRoomSeries(id, from != null ? from : end.minus(DEFAULT_PERIOD), end, resolution);
+            return series != null ? ResponseEntity.ok(series) : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) { // неверный или слишком длинный период, RAW для группы
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(
+    summary = "История мощности режима",
+    description = "Агрегаты по всем устройствам с режимом. from/to в ISO-8601 (по умолчанию последние сутки), resolution - MINUTE или HOUR. Слишком длинный период - 400")
+    @PreAuthorize("hasAuthority('MODE:READ')")
+    @GetMapping("/modes/{id}/telemetry")
+    public ResponseEntity<List<TelemetryPointDto>> getModeTelemetry(@PathVariable Long id,
+    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+    @RequestParam(defaultValue = "HOUR") TelemetryResolution resolution) {
+        Instant end = to != null ? to : Instant.now();
+        try {
+            List<TelemetryPointDto> series = telemetryService.getModeSeries(id, from != null ? from : end.minus(DEFAULT_PERIOD), end, resolution);
+            return series != null ? ResponseEntity.ok(series) : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) { // неверный или слишком длинный период, RAW для группы
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.smart_home_syst.dto;
+
+import java.time.LocalTime;
+
+import com.example.smart_home_syst.enumerator.RuleActionType;
+import com.example.smart_home_syst.enumerator.RuleTriggerType;
+import com.example.smart_home_syst.model.AutomationRule;
+
+// Правило для API и для индекса движка правил (неизменяемая копия сущности)
+public record AutomationRuleDto(
+    Long id,
+    String title,
+    Boolean enabled,
+    RuleTriggerType triggerType,
+    Long triggerDeviceId,
+    Long triggerRoomId,
+    Double powerThreshold,
+    LocalTime triggerTime, // время срабатывания с точностью до минуты
+    RuleActionType actionType,
+    Long actionRoomId,
+    Long actionModeId,
+    String message
+) {
+    public static AutomationRuleDto from(AutomationRule rule) {
+        return new AutomationRuleDto(rule.getId(), rule.getTitle(), rule.isEnabled(), rule.getTriggerType(),
+            rule.getTriggerDeviceId(), rule.getTriggerRoomId(), rule.getPowerThreshold(), rule.getTriggerTime(),
+            rule.getActionType(), rule.getActionRoomId(), rule.getActionModeId(), rule.getMessage());
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.smart_home_syst.dto;
+
+import java.util.List;
+
+public record BulkCommandResultDto(
+    String command,
+    int total, // сколько устройств попало под команду
+    List<Long> changedIds, // устройства, состояние которых изменилось
+    List<Long> unchangedIds // устройства, которые уже были в нужном состоянии
+) {
+
+}
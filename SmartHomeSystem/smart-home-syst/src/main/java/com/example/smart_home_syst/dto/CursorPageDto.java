@@ -0,0 +1,12 @@
+package com.example.smart_home_syst.dto;
+
+import java.util.List;
+
+public record CursorPageDto<T>(
+    List<T> content,
+    int size,
+    String nextCursor, // null - это последняя страница
+    boolean hasNext,
+    Long totalElements // считается только по запросу withTotal=true, иначе null
+) {
+}
@@ -0,0 +1,23 @@
+package com.example.smart_home_syst.dto;
+
+import java.time.LocalDateTime;
+
+import com.example.smart_home_syst.enumerator.DeviceCommandStatus;
+import com.example.smart_home_syst.enumerator.DeviceCommandType;
+
+public record DeviceCommandDto(
+    String id,
+    Long deviceId,
+    DeviceCommandType type,
+    Long modeId,
+    DeviceCommandStatus status,
+    String requestedBy,
+    LocalDateTime createdAt,
+    LocalDateTime finishedAt,
+    String error // причина ошибки для FAILED или Id заменившей команды для SUPERSEDED
+) {
+    public DeviceCommandDto withStatus(DeviceCommandStatus newStatus, String newError) {
+        LocalDateTime finished = newStatus != DeviceCommandStatus.QUEUED ? LocalDateTime.now() : null;
+        return new DeviceCommandDto(id, deviceId, type, modeId, newStatus, requestedBy, createdAt, finished, newError);
+    }
+}
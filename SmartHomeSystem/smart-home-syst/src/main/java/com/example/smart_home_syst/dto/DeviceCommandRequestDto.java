@@ -0,0 +1,10 @@
+package com.example.smart_home_syst.dto;
+
+import com.example.smart_home_syst.enumerator.DeviceCommandType;
+
+public record DeviceCommandRequestDto(
+    DeviceCommandType type,
+    Long modeId // только для SET_MODE
+) {
+
+}
@@ -1,5 +1,7 @@
 package com.example.smart_home_syst.dto;
 
+import com.example.smart_home_syst.enumerator.DeviceType;
+
 public class DeviceReportDto {
     private String title;
     private String type;
@@ -17,6 +19,12 @@ public class DeviceReportDto {
         this.roomTitle = roomTitle;
         this.modeTitle = modeTitle;
     }
+
+    // Для JPQL конструктора в DeviceRepository.findReportRows
+    public DeviceReportDto(String title, DeviceType type, Double power, boolean active,
+                          String roomTitle, String modeTitle) {
+        this(title, type != null ? type.toString() : null, power, active, roomTitle, modeTitle);
+    }
     
     public String getTitle() { return title; }
     public String getType() { return type; }
@@ -0,0 +1,24 @@
+package com.example.smart_home_syst.dto;
+
+import com.example.smart_home_syst.enumerator.DeviceType;
+import com.example.smart_home_syst.model.Device;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// Неизменяемый снимок устройства для кэшей и ответов API. Вместо связанных сущностей хранит только Id,
+// поэтому не держит граф контекста персистентности и не может упасть на ленивой загрузке.
+// JSON совпадает с прежним ответом сущности Device. version - версия строки, по ней кэш списка отбрасывает устаревшие изменения
+public record DeviceSnapshot(
+    Long id,
+    String title,
+    DeviceType type,
+    Double power,
+    boolean active,
+    Long roomId,
+    Long modeId,
+    @JsonIgnore Integer version
+) {
+    public static DeviceSnapshot from(Device device) {
+        return new DeviceSnapshot(device.getId(), device.getTitle(), device.getType(), device.getPower(),
+            device.isActive(), device.getRoomId(), device.getModeId(), device.getVersion());
+    }
+}
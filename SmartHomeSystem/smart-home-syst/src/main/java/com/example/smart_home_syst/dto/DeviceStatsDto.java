@@ -0,0 +1,11 @@
+package com.example.smart_home_syst.dto;
+
+public record DeviceStatsDto(
+    long deviceCount,
+    long activeCount,
+    double activePower // суммарная мощность включённых устройств
+) {
+    public static DeviceStatsDto empty() {
+        return new DeviceStatsDto(0, 0, 0.0);
+    }
+}
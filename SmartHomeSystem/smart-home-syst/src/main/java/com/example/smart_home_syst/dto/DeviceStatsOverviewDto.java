@@ -0,0 +1,13 @@
+package com.example.smart_home_syst.dto;
+
+import java.util.Map;
+
+// Ключи разбивок - Id комнаты / режима или имя типа; устройства без комнаты, режима или типа - под ключом "none"
+public record DeviceStatsOverviewDto(
+    DeviceStatsDto total,
+    Map<String, DeviceStatsDto> byRoom,
+    Map<String, DeviceStatsDto> byType,
+    Map<String, DeviceStatsDto> byMode
+) {
+
+}
@@ -0,0 +1,15 @@
+package com.example.smart_home_syst.dto;
+
+import com.example.smart_home_syst.enumerator.DeviceType;
+
+// Строка GROUP BY (комната, тип, режим) для пересборки счетчиков статистики
+public record DeviceStatsRowDto(
+    Long roomId,
+    DeviceType type,
+    Long modeId,
+    Long deviceCount,
+    Long activeCount,
+    Double activePower
+) {
+
+}
@@ -0,0 +1,26 @@
+package com.example.smart_home_syst.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public record ImportResultDto(
+    int created,
+    int updated,
+    int failed,
+    List<String> failedTitles // названия записей, которые не удалось импортировать
+) {
+    public static ImportResultDto empty() {
+        return new ImportResultDto(0, 0, 0, List.of());
+    }
+
+    private static final int MAX_FAILED_TITLES = 1000; // для больших файлов список ошибок не должен расти без предела
+
+    // Сложение результатов отдельных порций импорта
+    public ImportResultDto plus(ImportResultDto other) {
+        List<String> titles = new ArrayList<>(failedTitles);
+        other.failedTitles().stream()
+            .limit(Math.max(0, MAX_FAILED_TITLES - titles.size()))
+            .forEach(titles::add);
+        return new ImportResultDto(created + other.created(), updated + other.updated(), failed + other.failed(), titles);
+    }
+}
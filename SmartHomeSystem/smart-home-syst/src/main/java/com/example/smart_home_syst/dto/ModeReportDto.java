@@ -1,7 +1,6 @@
 package com.example.smart_home_syst.dto;
 
-import java.util.List;
-
+import com.example.smart_home_syst.enumerator.ModeType;
 
 public class ModeReportDto {
     private String title;
@@ -13,6 +12,11 @@ public class ModeReportDto {
         this.type = type;
         this.devicesNames = devicesNames;
     }
+
+    // Для JPQL конструктора в ModeRepository.findReportRows
+    public ModeReportDto(String title, ModeType type, String devicesNames) {
+        this(title, type != null ? type.toString() : null, devicesNames);
+    }
     
     public String getTitle() { return title; }
     public String getType() { return type; }
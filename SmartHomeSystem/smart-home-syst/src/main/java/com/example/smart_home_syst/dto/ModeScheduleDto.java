@@ -0,0 +1,40 @@
+package com.example.smart_home_syst.dto;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Set;
+
+import com.example.smart_home_syst.model.ModeSchedule;
+
+// Расписание режима для API и для планировщика (неизменяемая копия сущности).
+// nextFireAt и lastFiredAt заполняет сервер, во входных данных они игнорируются
+public record ModeScheduleDto(
+    Long id,
+    String title,
+    Boolean enabled,
+    Long modeId,
+    Set<Long> roomIds,
+    Set<DayOfWeek> daysOfWeek,
+    LocalTime fireTime, // время срабатывания с точностью до минуты
+    LocalDateTime nextFireAt,
+    LocalDateTime lastFiredAt
+) {
+    public static ModeScheduleDto from(ModeSchedule schedule) {
+        return new ModeScheduleDto(schedule.getId(), schedule.getTitle(), schedule.isEnabled(), schedule.getModeId(),
+            Set.copyOf(schedule.getRoomIds()), Set.copyOf(schedule.getDaysOfWeek()), schedule.getFireTime(),
+            schedule.getNextFireAt(), schedule.getLastFiredAt());
+    }
+
+    // Ближайшее срабатывание строго после after, с учётом дней недели
+    public LocalDateTime nextFireAfter(LocalDateTime after) {
+        LocalDateTime candidate = after.toLocalDate().atTime(fireTime.withSecond(0).withNano(0));
+        if (!candidate.isAfter(after)) {
+            candidate = candidate.plusDays(1);
+        }
+        while (daysOfWeek != null && !daysOfWeek.isEmpty() && !daysOfWeek.contains(candidate.getDayOfWeek())) {
+            candidate = candidate.plusDays(1);
+        }
+        return candidate;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.smart_home_syst.dto;
+
+import com.example.smart_home_syst.enumerator.ModeType;
+import com.example.smart_home_syst.model.Mode;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// Неизменяемый снимок режима для кэшей и ответов API (JSON совпадает с прежним ответом сущности Mode)
+public record ModeSnapshot(
+    Long id,
+    String title,
+    ModeType type,
+    @JsonIgnore Integer version
+) {
+    public static ModeSnapshot from(Mode mode) {
+        return new ModeSnapshot(mode.getId(), mode.getTitle(), mode.getType(), mode.getVersion());
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.smart_home_syst.dto;
+
+import java.time.LocalDateTime;
+
+import com.example.smart_home_syst.enumerator.ReportJobStatus;
+import com.example.smart_home_syst.enumerator.ReportType;
+
+public record ReportJobDto(
+    String id,
+    ReportType type,
+    ReportJobStatus status,
+    String requestedBy,
+    LocalDateTime createdAt,
+    LocalDateTime finishedAt,
+    String error // причина ошибки для FAILED
+) {
+    public ReportJobDto withStatus(ReportJobStatus newStatus, String newError) {
+        LocalDateTime finished = newStatus == ReportJobStatus.DONE || newStatus == ReportJobStatus.FAILED ? LocalDateTime.now() : null;
+        return new ReportJobDto(id, type, newStatus, requestedBy, createdAt, finished, newError);
+    }
+}
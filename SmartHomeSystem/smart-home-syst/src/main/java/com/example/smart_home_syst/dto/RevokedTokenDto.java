@@ -0,0 +1,10 @@
+package com.example.smart_home_syst.dto;
+
+import java.time.LocalDateTime;
+
+public record RevokedTokenDto(
+    String valueHash,
+    LocalDateTime expiringDate
+) {
+
+}
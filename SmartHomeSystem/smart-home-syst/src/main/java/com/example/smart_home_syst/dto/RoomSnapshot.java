@@ -0,0 +1,17 @@
+package com.example.smart_home_syst.dto;
+
+import com.example.smart_home_syst.model.Room;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// Неизменяемый снимок комнаты для кэшей и ответов API (JSON совпадает с прежним ответом сущности Room)
+public record RoomSnapshot(
+    Long id,
+    String title,
+    String location,
+    Integer capacity,
+    @JsonIgnore Integer version
+) {
+    public static RoomSnapshot from(Room room) {
+        return new RoomSnapshot(room.getId(), room.getTitle(), room.getLocation(), room.getCapacity(), room.getVersion());
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.smart_home_syst.dto;
+
+import java.util.List;
+
+public record TelemetryIngestResultDto(
+    int accepted,
+    int rejected,
+    List<Long> unknownDeviceIds // показания для несуществующих устройств отбрасываются
+) {
+
+}
@@ -0,0 +1,14 @@
+package com.example.smart_home_syst.dto;
+
+import java.time.Instant;
+
+// Точка ряда мощности: для RAW - одно показание (samples = 1), для MINUTE/HOUR - агрегат интервала
+public record TelemetryPointDto(
+    Instant bucket,
+    double avgPower,
+    double minPower,
+    double maxPower,
+    long samples
+) {
+
+}
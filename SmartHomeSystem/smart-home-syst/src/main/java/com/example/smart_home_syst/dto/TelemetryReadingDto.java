@@ -0,0 +1,11 @@
+package com.example.smart_home_syst.dto;
+
+import java.time.Instant;
+
+public record TelemetryReadingDto(
+    Long deviceId,
+    Instant timestamp, // null - время приёма
+    Double power
+) {
+
+}
@@ -0,0 +1,11 @@
+package com.example.smart_home_syst.enumerator;
+
+public enum DeviceChangeType {
+    CREATED,
+    UPDATED,
+    DELETED,
+    // Изменено много устройств сразу (импорт, удаление комнаты или режима, массовая команда больше
+    // events.bulk-reload-threshold устройств) - клиенту нужно перечитать список. Состояния отдельных устройств
+    // в событии нет, поэтому правила автоматизации на включение/выключение конкретного устройства по нему не срабатывают
+    RELOAD
+}
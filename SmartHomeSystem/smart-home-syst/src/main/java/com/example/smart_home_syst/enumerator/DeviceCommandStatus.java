@@ -0,0 +1,6 @@
+package com.example.smart_home_syst.enumerator;
+
+// SUPERSEDED - команда заменена более поздней командой того же вида для того же устройства до записи в БД
+public enum DeviceCommandStatus {
+    QUEUED, SUPERSEDED, APPLIED, FAILED
+}
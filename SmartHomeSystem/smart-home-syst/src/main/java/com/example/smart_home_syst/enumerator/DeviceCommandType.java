@@ -0,0 +1,5 @@
+package com.example.smart_home_syst.enumerator;
+
+public enum DeviceCommandType {
+    TURN_ON, TURN_OFF, SET_MODE
+}
@@ -0,0 +1,5 @@
+package com.example.smart_home_syst.enumerator;
+
+public enum ReportType {
+    DEVICES, ROOMS, MODES
+}
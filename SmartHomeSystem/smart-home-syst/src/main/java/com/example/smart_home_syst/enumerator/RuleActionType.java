@@ -0,0 +1,9 @@
+package com.example.smart_home_syst.enumerator;
+
+public enum RuleActionType {
+    SWITCH_ROOM_MODE, // actionRoomId, actionModeId
+    TURN_ON_MODE_DEVICES, // actionModeId
+    TURN_OFF_MODE_DEVICES, // actionModeId
+    TURN_OFF_ROOM_DEVICES, // actionRoomId
+    NOTIFY_ROOM_MANAGER // actionRoomId, message
+}
@@ -0,0 +1,8 @@
+package com.example.smart_home_syst.enumerator;
+
+public enum RuleTriggerType {
+    DEVICE_TURNED_ON, // triggerDeviceId
+    DEVICE_TURNED_OFF, // triggerDeviceId
+    TIME_OF_DAY, // triggerTime
+    ROOM_POWER_ABOVE // triggerRoomId, powerThreshold - срабатывает при переходе мощности включённых устройств через порог
+}
@@ -0,0 +1,7 @@
+package com.example.smart_home_syst.enumerator;
+
+public enum TelemetryResolution {
+    RAW,
+    MINUTE,
+    HOUR
+}
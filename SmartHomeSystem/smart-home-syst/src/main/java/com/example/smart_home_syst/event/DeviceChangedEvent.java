@@ -0,0 +1,47 @@
+package com.example.smart_home_syst.event;
+
+import java.util.Objects;
+
+import com.example.smart_home_syst.dto.DeviceSnapshot;
+import com.example.smart_home_syst.enumerator.DeviceChangeType;
+import com.example.smart_home_syst.enumerator.DeviceType;
+
+// Изменение состояния устройства. before - состояние до изменения (null при создании),
+// after - после (null при удалении). Публикуется сервисами и рассылается подписчикам после коммита
+public record DeviceChangedEvent(
+    DeviceChangeType change,
+    Long deviceId,
+    DeviceSnapshot before,
+    DeviceSnapshot after
+) {
+    public static DeviceChangedEvent created(DeviceSnapshot device) {
+        return new DeviceChangedEvent(DeviceChangeType.CREATED, device.id(), null, device);
+    }
+
+    public static DeviceChangedEvent updated(DeviceSnapshot before, DeviceSnapshot after) {
+        return new DeviceChangedEvent(DeviceChangeType.UPDATED, after.id(), before, after);
+    }
+
+    public static DeviceChangedEvent deleted(DeviceSnapshot device) {
+        return new DeviceChangedEvent(DeviceChangeType.DELETED, device.id(), device, null);
+    }
+
+    public static DeviceChangedEvent reload() {
+        return new DeviceChangedEvent(DeviceChangeType.RELOAD, null, null, null);
+    }
+
+    // Событие касается комнаты / типа, если им соответствует состояние до или после изменения:
+    // так подписчик комнаты узнает и о переносе устройства из неё
+    public boolean concerns(Long roomId, DeviceType type) {
+        if (change == DeviceChangeType.RELOAD) {
+            return true;
+        }
+        return matches(before, roomId, type) || matches(after, roomId, type);
+    }
+
+    private static boolean matches(DeviceSnapshot device, Long roomId, DeviceType type) {
+        return device != null
+            && (roomId == null || Objects.equals(device.roomId(), roomId))
+            && (type == null || device.type() == type);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.smart_home_syst.fileSettings;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.dataformat.xml.ser.ToXmlGenerator;
+
+// Потоковая запись экспорта в том же формате, что и *ExportWrapper: корневой элемент с атрибутами,
+// блок system и элементы по одному. Ни весь список, ни вся строка XML в памяти не собираются
+public class XmlExportWriter {
+    public static <T> long write(XmlMapper xmlMapper, OutputStream out, String rootName, String itemName,
+                                 long totalCount, Object systemInfo, Stream<T> items) throws IOException, XMLStreamException {
+        XMLStreamWriter writer = xmlMapper.getFactory().getXMLOutputFactory().createXMLStreamWriter(out, "UTF-8");
+        writer.writeStartElement(rootName);
+        writer.writeAttribute("exportDate", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+        writer.writeAttribute("version", "1.0");
+        writer.writeAttribute("totalCount", String.valueOf(totalCount));
+
+        writeElement(xmlMapper, writer, "system", systemInfo);
+        long written = 0;
+        Iterator<T> iterator = items.iterator();
+        while (iterator.hasNext()) {
+            writeElement(xmlMapper, writer, itemName, iterator.next());
+            written++;
+        }
+
+        writer.writeCharacters("\n");
+        writer.writeEndElement();
+        writer.flush();
+        writer.close(); // закрывает только XMLStreamWriter, поток out остаётся открытым
+        return written;
+    }
+
+    private static void writeElement(XmlMapper xmlMapper, XMLStreamWriter writer, String name, Object value) throws IOException, XMLStreamException {
+        writer.writeCharacters("\n");
+        ToXmlGenerator generator = xmlMapper.getFactory().createGenerator(writer);
+        xmlMapper.writer().withRootName(name).writeValue(generator, value);
+        generator.flush();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.smart_home_syst.fileSettings;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+
+// Потоковое чтение файла импорта: элементы записей (device/room/mode) читаются через StAX по одному
+// и связываются с DTO, в памяти держится только текущая порция, а не весь документ
+public class XmlRecordReader<T> implements Closeable {
+    private final XmlMapper xmlMapper;
+    private final Class<T> recordType;
+    private final String recordName;
+    private final InputStream input;
+    private final XMLStreamReader reader;
+    private final long fileSize;
+    private long recordsRead = 0;
+
+    public XmlRecordReader(XmlMapper xmlMapper, Path file, String recordName, Class<T> recordType) throws IOException, XMLStreamException {
+        this.xmlMapper = xmlMapper;
+        this.recordType = recordType;
+        this.recordName = recordName;
+        this.fileSize = Files.size(file);
+        this.input = new BufferedInputStream(Files.newInputStream(file));
+        this.reader = xmlMapper.getFactory().getXMLInputFactory().createXMLStreamReader(input);
+    }
+
+    // Пустой список - файл прочитан до конца
+    public List<T> readChunk(int chunkSize) throws IOException, XMLStreamException {
+        List<T> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize && reader.hasNext()) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT && recordName.equals(reader.getLocalName())) {
+                chunk.add(xmlMapper.readValue(reader, recordType)); // читатель остаётся на закрывающем теге записи
+                recordsRead++;
+            }
+        }
+        return chunk;
+    }
+
+    public long getRecordsRead() {
+        return recordsRead;
+    }
+
+    // Примерный процент прочитанного файла (смещение считается в символах, а не байтах)
+    public int getProgressPercent() {
+        if (fileSize == 0) {
+            return 100;
+        }
+        long offset = reader.getLocation().getCharacterOffset();
+        return (int) Math.min(100, offset * 100 / fileSize);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            input.close();
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.example.smart_home_syst.jwt;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Service;
@@ -20,15 +23,31 @@ import lombok.RequiredArgsConstructor;
 @Service
 @RequiredArgsConstructor
 public class JwtAuthFilter extends OncePerRequestFilter {
+    public static final String CLAIMS_ATTRIBUTE = "jwt.claims";
 
     private final JwtTokenProvider jwtTokenProvider;
 
     private final UserDetailsServiceImpl userDetailsService;
 
+    private final PrincipalCache principalCache;
+
     @Value("${jwt.access.cookie-name}")
     private String accessCookieName;
 
-    
+    @Value("${jwt.stateless-authorities}")
+    private boolean statelessAuthorities;
+
+    // В режиме stateless права берутся из подписанного токена (роль + список прав), без обращения к БД.
+    // Для токенов без списка прав (выданных до включения режима) используется короткоживущий кэш пользователей
+    private UserDetails resolvePrincipal(TokenClaims claims) {
+        if (statelessAuthorities && claims.permissions() != null && claims.role() != null) {
+            List<String> authorities = new ArrayList<>(claims.permissions());
+            authorities.add(claims.role());
+            return User.withUsername(claims.username()).password("").authorities(authorities.toArray(String[]::new)).build();
+        }
+        return principalCache.get(claims.username(), userDetailsService::loadUserByUsername);
+    }
+
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -44,19 +63,20 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             }
         }
 
-        if (token == "" || token.isEmpty() || !jwtTokenProvider.isValid(token)) {
-            //System.out.println("\n\n\nEmpty or invalid token\n\n\n");
+        if (token == "" || token.isEmpty()) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        String username = jwtTokenProvider.getUsername(token);
-        if (username == null) {
+        TokenClaims claims = jwtTokenProvider.validate(token); // токен разбирается один раз за запрос
+        if (claims == null || claims.username() == null) {
+            //System.out.println("\n\n\nEmpty or invalid token\n\n\n");
             filterChain.doFilter(request, response);
             return;
         }
+        request.setAttribute(CLAIMS_ATTRIBUTE, claims); // данные токена доступны дальше в рамках запроса
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        UserDetails userDetails = resolvePrincipal(claims);
         UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()); // cоздаётся токен аутентификации (объект UserDetails, без пароля в токене)
         authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request)); // доп. сведения из запроса
         SecurityContextHolder.getContext().setAuthentication(authToken);
@@ -1,30 +1,33 @@
 package com.example.smart_home_syst.jwt;
 
 import java.security.Key;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.temporal.TemporalUnit;
 import java.util.Base64;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import com.example.smart_home_syst.enumerator.TokenType;
 import com.example.smart_home_syst.model.Token;
 import com.example.smart_home_syst.repository.TokenRepository;
+import com.example.smart_home_syst.util.TokenHashUtil;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 
 @RequiredArgsConstructor
@@ -35,8 +38,26 @@ public class JwtTokenProvider {
 
     private final TokenRepository tokenRepository;
 
-    private boolean isDisabled(String value) {
-        Token token = tokenRepository.findByValue(value).orElse(null);
+    private final TokenValidationCache validationCache;
+
+    private final RevokedTokenStore revokedTokenStore;
+
+    private final MeterRegistry meterRegistry;
+
+    // Ключ и парсер создаются один раз при старте (JwtParser потокобезопасен)
+    private Key signingKey;
+    private JwtParser parser;
+    private Timer lookupTimer;
+
+    @PostConstruct
+    void init() {
+        signingKey = decodeSecretKey(key);
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        lookupTimer = Timer.builder("tokens.lookup").description("Token lookup in DB by value hash").register(meterRegistry);
+    }
+
+    private boolean isDisabled(String tokenHash) {
+        Token token = lookupTimer.record(() -> tokenRepository.findByValueHash(tokenHash)).orElse(null);
 
         if (token == null) return true;
 
@@ -47,41 +68,61 @@ public class JwtTokenProvider {
         return Date.from(time.toInstant(ZoneOffset.UTC));
     }
 
-    private LocalDateTime toLocalDateTime (Date time) {
-        return time.toInstant().atOffset(ZoneOffset.UTC).toLocalDateTime();
+    private LocalDateTime toLocalDateTime (long time) {
+        return Instant.ofEpochMilli(time).atOffset(ZoneOffset.UTC).toLocalDateTime();
     }
 
     private Claims extractAllClaims(String value) {
-        return Jwts.parserBuilder().setSigningKey(decodeSecretKey(key)).build().parseClaimsJws(value).getBody();
+        return parser.parseClaimsJws(value).getBody();
     }
 
     private Key decodeSecretKey(String key) {
         return Keys.hmacShaKeyFor(Base64.getDecoder().decode(key));
     }
 
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        return claimsResolver.apply(extractAllClaims(token));
+    private TokenClaims toTokenClaims(Claims claims) {
+        List<?> permissions = claims.get("permissions", List.class);
+        return new TokenClaims(claims.getSubject(), claims.get("role", String.class),
+            permissions != null ? permissions.stream().map(String::valueOf).toList() : null,
+            claims.getExpiration().getTime());
+    }
+
+    // Данные уже проверенного токена берутся из кэша, иначе токен разбирается
+    private TokenClaims readClaims(String token) {
+        TokenClaims cached = validationCache.get(TokenHashUtil.hash(token));
+        return cached != null ? cached : toTokenClaims(extractAllClaims(token));
     }
 
     public String getUsername (String token) {
-        return extractClaim(token, Claims::getSubject);
+        return readClaims(token).username();
     }
 
     public LocalDateTime getExpiration(String token) {
-        return toLocalDateTime(extractClaim(token, Claims::getExpiration));
+        return toLocalDateTime(readClaims(token).expiresAt());
     }
 
-    public boolean isValid (String token) {
-        if (token == null) return false;
+    // Единственная проверка токена за запрос: подпись, срок действия и отзыв. Возвращает null для невалидного токена
+    public TokenClaims validate (String token) {
+        if (token == null) return null;
+        String tokenHash = TokenHashUtil.hash(token);
+        if (revokedTokenStore.isRevoked(tokenHash)) return null;
+        TokenClaims cached = validationCache.get(tokenHash);
+        if (cached != null) return cached; // без разбора токена и запроса к БД
         try {
-            Jwts.parserBuilder().setSigningKey(decodeSecretKey(key)).build().parseClaimsJws(token);
-            return !isDisabled(token);
+            TokenClaims claims = toTokenClaims(extractAllClaims(token));
+            if (isDisabled(tokenHash)) return null;
+            validationCache.put(tokenHash, claims);
+            return claims;
         }
         catch (JwtException e) {
-            return false;
+            return null;
         }
     }
 
+    public boolean isValid (String token) {
+        return validate(token) != null;
+    }
+
     public Token generatedAccessToken (Map <String, Object> extra, long duration, TemporalUnit durationType, UserDetails user) {
         String username = user.getUsername();
 
@@ -90,7 +131,7 @@ public class JwtTokenProvider {
         LocalDateTime expirationDate = now.plus(duration, durationType);
 
         String value = Jwts.builder().setClaims(extra).setSubject(username).setIssuedAt(toDate(now)).setExpiration(toDate(expirationDate))
-        .signWith(decodeSecretKey(key), SignatureAlgorithm.HS256).compact();
+        .signWith(signingKey, SignatureAlgorithm.HS256).compact();
 
         return new Token(TokenType.ACCESS, value, expirationDate, false, null);
     }
@@ -103,7 +144,7 @@ public class JwtTokenProvider {
         LocalDateTime expirationDate = now.plus(duration, durationType);
 
         String value = Jwts.builder().setSubject(username).setIssuedAt(toDate(now)).setExpiration(toDate(expirationDate))
-        .signWith(decodeSecretKey(key), SignatureAlgorithm.HS256).compact();
+        .signWith(signingKey, SignatureAlgorithm.HS256).compact();
 
         return new Token(TokenType.REFRESH, value, expirationDate, false, null);
     }
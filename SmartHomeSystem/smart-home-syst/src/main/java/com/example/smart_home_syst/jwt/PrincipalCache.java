@@ -0,0 +1,48 @@
+package com.example.smart_home_syst.jwt;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+// Короткоживущий кэш пользователей для JwtAuthFilter: хранит только имя и права (без пароля и связей JPA),
+// чтобы не загружать User, Role и Permission из БД на каждый запрос
+@Component
+public class PrincipalCache {
+    private record Entry(UserDetails principal, long expiresAt) {}
+
+    private final Map<String, Entry> principals = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final int maxSize;
+
+    public PrincipalCache(@Value("${jwt.principal-cache.ttl-seconds}") long ttlSeconds, @Value("${jwt.principal-cache.max-size}") int maxSize) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxSize = maxSize;
+    }
+
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        long now = System.currentTimeMillis();
+        Entry entry = principals.get(username);
+        if (entry != null && entry.expiresAt() > now) {
+            return entry.principal();
+        }
+
+        UserDetails loaded = loader.apply(username);
+        UserDetails principal = User.withUsername(loaded.getUsername()).password("").authorities(loaded.getAuthorities()).build();
+        if (principals.size() >= maxSize) {
+            principals.values().removeIf(e -> e.expiresAt() <= now);
+        }
+        if (principals.size() < maxSize) {
+            principals.put(username, new Entry(principal, now + ttlMillis));
+        }
+        return principal;
+    }
+
+    public void invalidate(String username) {
+        principals.remove(username);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.smart_home_syst.jwt;
+
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.smart_home_syst.dto.RevokedTokenDto;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Отозванные, но ещё не истёкшие токены в памяти. Фильтр Блума быстро отвечает "точно не отозван",
+// при положительном ответе проверяется точное множество хэшей. Пересобирается при старте и после очистки таблицы
+@Component
+public class RevokedTokenStore {
+    private static final Logger logger = LoggerFactory.getLogger(RevokedTokenStore.class);
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final int expectedSize;
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>(); // хэш токена -> время истечения (мс)
+    private volatile BloomFilter filter;
+
+    public RevokedTokenStore(@Value("${jwt.revoked-store.expected-size}") int expectedSize, MeterRegistry meterRegistry) {
+        this.expectedSize = expectedSize;
+        this.filter = new BloomFilter(expectedSize);
+        Gauge.builder("tokens.revoked.size", revoked, Map::size).description("Revoked not expired tokens in memory").register(meterRegistry);
+    }
+
+    public boolean isRevoked(String tokenHash) {
+        return filter.mightContain(tokenHash) && revoked.containsKey(tokenHash);
+    }
+
+    public synchronized void add(String tokenHash, long expiresAt) {
+        revoked.put(tokenHash, expiresAt);
+        filter.put(tokenHash);
+    }
+
+    // Полная пересборка: удаляет истёкшие записи (из фильтра Блума удалять нельзя) и добавляет записи из БД
+    public synchronized void rebuild(List<RevokedTokenDto> tokens) {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        tokens.forEach(token -> revoked.put(token.valueHash(), token.expiringDate().toInstant(ZoneOffset.UTC).toEpochMilli()));
+
+        BloomFilter fresh = new BloomFilter(Math.max(expectedSize, revoked.size() * 2));
+        revoked.keySet().forEach(fresh::put);
+        filter = fresh;
+        logger.debug("Revoked tokens store rebuilt: {} tokens", revoked.size());
+    }
+
+    private static class BloomFilter {
+        private final AtomicLongArray bits;
+        private final int bitCount;
+        private final int hashCount;
+
+        BloomFilter(int expectedSize) {
+            int n = Math.max(expectedSize, 1);
+            long m = (long) Math.ceil(-n * Math.log(FALSE_POSITIVE_RATE) / (Math.log(2) * Math.log(2)));
+            this.bitCount = (int) Math.min(Math.max(m, 64), Integer.MAX_VALUE - 63);
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+            this.bits = new AtomicLongArray((bitCount + 63) / 64);
+        }
+
+        // Ключ - уже SHA-256 в hex, поэтому два 64-битных значения берутся прямо из него (двойное хеширование)
+        private int index(long h1, long h2, int i) {
+            return (int) Math.floorMod(h1 + i * h2, (long) bitCount);
+        }
+
+        void put(String tokenHash) {
+            long h1 = Long.parseUnsignedLong(tokenHash.substring(0, 16), 16);
+            long h2 = Long.parseUnsignedLong(tokenHash.substring(16, 32), 16);
+            for (int i = 0; i < hashCount; i++) {
+                int index = index(h1, h2, i);
+                long mask = 1L << (index % 64);
+                int word = index / 64;
+                long current;
+                do {
+                    current = bits.get(word);
+                } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(String tokenHash) {
+            long h1 = Long.parseUnsignedLong(tokenHash.substring(0, 16), 16);
+            long h2 = Long.parseUnsignedLong(tokenHash.substring(16, 32), 16);
+            for (int i = 0; i < hashCount; i++) {
+                int index = index(h1, h2, i);
+                if ((bits.get(index / 64) & (1L << (index % 64))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
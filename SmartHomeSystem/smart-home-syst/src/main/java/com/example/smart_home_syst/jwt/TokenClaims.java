@@ -0,0 +1,13 @@
+package com.example.smart_home_syst.jwt;
+
+import java.util.List;
+
+// Данные из токена, которые нужны на время запроса. Токен разбирается один раз, дальше передаются эти данные
+public record TokenClaims(
+    String username,
+    String role,
+    List<String> permissions, // есть только у access токенов, выданных с правами внутри (null - прав в токене нет)
+    long expiresAt // exp в миллисекундах
+) {
+
+}
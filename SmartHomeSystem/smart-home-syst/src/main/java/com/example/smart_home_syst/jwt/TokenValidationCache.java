@@ -0,0 +1,59 @@
+package com.example.smart_home_syst.jwt;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Кэш уже проверенных токенов: ключ - SHA-256 токена, значение - данные токена (в т.ч. время истечения exp).
+// Запись живёт не дольше самого токена и не дольше ttl-seconds, удаляется явно при отзыве токенов пользователя.
+// Кэш локален для узла: отзыв на другом узле виден здесь после истечения записи (следующая проверка идёт в БД)
+@Component
+public class TokenValidationCache {
+    private static final Logger logger = LoggerFactory.getLogger(TokenValidationCache.class);
+    private record Entry(TokenClaims claims, long validUntil) {}
+
+    private final Map<String, Entry> validTokens = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMillis;
+
+    public TokenValidationCache(@Value("${jwt.validation-cache.max-size}") int maxSize, @Value("${jwt.validation-cache.ttl-seconds}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    public TokenClaims get(String tokenHash) {
+        Entry entry = validTokens.get(tokenHash);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.validUntil() <= System.currentTimeMillis()) {
+            validTokens.remove(tokenHash, entry);
+            return null;
+        }
+        return entry.claims();
+    }
+
+    public void put(String tokenHash, TokenClaims claims) {
+        if (validTokens.size() >= maxSize) {
+            removeExpired();
+            if (validTokens.size() >= maxSize) {
+                logger.debug("Token validation cache is full ({} entries). Token isn't cached", maxSize);
+                return;
+            }
+        }
+        validTokens.put(tokenHash, new Entry(claims, Math.min(claims.expiresAt(), System.currentTimeMillis() + ttlMillis)));
+    }
+
+    public void invalidate(String tokenHash) {
+        validTokens.remove(tokenHash);
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+        validTokens.values().removeIf(entry -> entry.validUntil() <= now);
+    }
+}
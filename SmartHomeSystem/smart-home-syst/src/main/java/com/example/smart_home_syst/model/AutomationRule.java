@@ -0,0 +1,65 @@
+package com.example.smart_home_syst.model;
+
+import java.time.LocalTime;
+
+import com.example.smart_home_syst.enumerator.RuleActionType;
+import com.example.smart_home_syst.enumerator.RuleTriggerType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Version;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Правило автоматизации "условие -> действие". Устройство, комната и режим хранятся как Id, а не связи:
+// правила читаются движком целиком в память, и удаление комнаты или режима не должно каскадно удалять правила
+// (действие с удалённой целью просто не выполнится и попадёт в лог)
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Data
+public class AutomationRule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Version
+    @JsonIgnore
+    private Integer version = 0;
+
+    @NotBlank
+    @Size(min=1, max=150)
+    @Column(nullable = false, length = 150)
+    private String title;
+
+    private boolean enabled;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private RuleTriggerType triggerType;
+
+    private Long triggerDeviceId;
+    private Long triggerRoomId;
+    private Double powerThreshold;
+    private LocalTime triggerTime;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private RuleActionType actionType;
+
+    private Long actionRoomId;
+    private Long actionModeId;
+
+    @Size(max=1000)
+    @Column(length = 1000)
+    private String message;
+}
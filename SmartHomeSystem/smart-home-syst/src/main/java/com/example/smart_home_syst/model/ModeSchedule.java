@@ -0,0 +1,72 @@
+package com.example.smart_home_syst.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.Version;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Расписание включения режима: в time по дням daysOfWeek устройства комнат roomIds переводятся в режим modeId
+// и устройства режима включаются. Пустой roomIds - включаются устройства режима во всех комнатах, пустой daysOfWeek - каждый день.
+// Режим и комнаты хранятся как Id, как и в AutomationRule. nextFireAt сохраняется в БД, по нему после перезапуска
+// находятся пропущенные срабатывания
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Data
+public class ModeSchedule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Version
+    @JsonIgnore
+    private Integer version = 0;
+
+    @NotBlank
+    @Size(min=1, max=150)
+    @Column(nullable = false, length = 150)
+    private String title;
+
+    private boolean enabled;
+
+    @Column(nullable = false)
+    private Long modeId;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "mode_schedule_room", joinColumns = @JoinColumn(name = "schedule_id"))
+    @Column(name = "room_id")
+    private Set<Long> roomIds = new HashSet<>();
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "mode_schedule_day", joinColumns = @JoinColumn(name = "schedule_id"))
+    @Enumerated(EnumType.STRING)
+    @Column(name = "day_of_week", length = 10)
+    private Set<DayOfWeek> daysOfWeek = new HashSet<>();
+
+    @Column(nullable = false)
+    private LocalTime fireTime;
+
+    private LocalDateTime nextFireAt; // ближайшее срабатывание, null - расписание выключено
+    private LocalDateTime lastFiredAt;
+}
@@ -52,4 +52,10 @@ public class Room {
     private List<Device> devices;
 
     private Integer capacity;
+
+    // Число устройств в комнате. Меняется только атомарными запросами RoomRepository (tryReserveSlot(s)/releaseSlot(s)),
+    // поэтому при сохранении сущности не перезаписывается (updatable = false)
+    @JsonIgnore
+    @Column(name = "device_count", updatable = false, columnDefinition = "integer default 0 not null")
+    private Integer deviceCount = 0;
 }
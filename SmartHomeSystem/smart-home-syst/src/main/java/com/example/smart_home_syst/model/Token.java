@@ -3,12 +3,18 @@ package com.example.smart_home_syst.model;
 import java.time.LocalDateTime;
 
 import com.example.smart_home_syst.enumerator.TokenType;
+import com.example.smart_home_syst.util.TokenHashUtil;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -19,6 +25,10 @@ import lombok.Setter;
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
+@Table(indexes = {
+    @Index(name = "idx_token_value_hash", columnList = "value_hash"), // поиск токена по хэшу вместо длинного varchar значения
+    @Index(name = "idx_token_expiring_date", columnList = "expiring_date") // очистка истёкших токенов
+})
 public class Token {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -28,6 +38,10 @@ public class Token {
 
     private String value;
 
+    @Column(name = "value_hash", length = 64)
+    private String valueHash;
+
+    @Column(name = "expiring_date")
     private LocalDateTime expiringDate;
 
     private boolean disabled;
@@ -38,8 +52,17 @@ public class Token {
     public Token(TokenType type, String value, LocalDateTime expiringDate, boolean disabled, User user) {
         this.type = type;
         this.value = value;
+        this.valueHash = TokenHashUtil.hash(value);
         this.expiringDate = expiringDate;
         this.disabled = disabled;
         this.user = user;
     }
+
+    @PrePersist
+    @PreUpdate
+    void fillValueHash() {
+        if (valueHash == null && value != null) {
+            valueHash = TokenHashUtil.hash(value);
+        }
+    }
 }
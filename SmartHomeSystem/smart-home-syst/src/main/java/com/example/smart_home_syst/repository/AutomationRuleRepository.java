@@ -0,0 +1,13 @@
+package com.example.smart_home_syst.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.example.smart_home_syst.model.AutomationRule;
+
+@Repository
+public interface AutomationRuleRepository extends JpaRepository<AutomationRule, Long> {
+    List<AutomationRule> findAllByEnabledTrue();
+}
@@ -1,18 +1,110 @@
 package com.example.smart_home_syst.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.example.smart_home_syst.dto.DeviceDto;
+import com.example.smart_home_syst.dto.DeviceReportDto;
+import com.example.smart_home_syst.dto.DeviceSnapshot;
+import com.example.smart_home_syst.dto.DeviceStatsRowDto;
 import com.example.smart_home_syst.enumerator.DeviceType;
 import com.example.smart_home_syst.model.Device;
+import com.example.smart_home_syst.model.Mode;
+
+import jakarta.persistence.QueryHint;
 
 
 @Repository
 public interface DeviceRepository extends JpaRepository<Device, Long>, JpaSpecificationExecutor<Device> {
     List<Device> findAllByTitle(String title);
+    List<Device> findAllByTitleIn(Collection<String> titles);
     List<Device> findByTitleStartingWithIgnoreCase(String title);
     List<Device> findAllByType(DeviceType type);
+
+    // Выборки Id для массовых команд (тип / комната / режим)
+    @Query("select d.id from Device d where d.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select d.id from Device d where d.type = :type")
+    List<Long> findIdsByType(@Param("type") DeviceType type);
+
+    @Query("select d.id from Device d where d.type = :type and d.active <> :active")
+    List<Long> findIdsByTypeAndActiveNot(@Param("type") DeviceType type, @Param("active") boolean active);
+
+    @Query("select d.id from Device d where d.room.id = :roomId")
+    List<Long> findIdsByRoomId(@Param("roomId") Long roomId);
+
+    @Query("select d.id from Device d where d.room.id = :roomId and d.active <> :active")
+    List<Long> findIdsByRoomIdAndActiveNot(@Param("roomId") Long roomId, @Param("active") boolean active);
+
+    @Query("select d.id from Device d left join d.mode m where d.room.id = :roomId and (m is null or m.id <> :modeId)")
+    List<Long> findIdsByRoomIdAndModeIdNot(@Param("roomId") Long roomId, @Param("modeId") Long modeId);
+
+    @Query("select d.id from Device d where d.mode.id = :modeId")
+    List<Long> findIdsByModeId(@Param("modeId") Long modeId);
+
+    @Query("select d.id from Device d where d.mode.id = :modeId and d.active <> :active")
+    List<Long> findIdsByModeIdAndActiveNot(@Param("modeId") Long modeId, @Param("active") boolean active);
+
+    // Блокировка строк, которые массовая команда действительно изменит (порядок по id - без взаимных блокировок).
+    // До коммита их не изменит другой запрос, поэтому состояние "до", UPDATE и список изменённых совпадают
+    @Query(value = "select id from device where id in (:ids) and active <> :active order by id for update", nativeQuery = true)
+    List<Long> lockIdsByIdInAndActiveNot(@Param("ids") Collection<Long> ids, @Param("active") boolean active);
+
+    @Query(value = "select id from device where id in (:ids) and (mode_id is null or mode_id <> :modeId) order by id for update", nativeQuery = true)
+    List<Long> lockIdsByIdInAndModeIdNot(@Param("ids") Collection<Long> ids, @Param("modeId") Long modeId);
+
+    // Массовое изменение состояния одним UPDATE на порцию заблокированных Id, версия увеличивается как при обычном save
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Device d set d.active = :active, d.version = d.version + 1 where d.id in :ids and d.active <> :active")
+    int updateActiveByIdIn(@Param("ids") Collection<Long> ids, @Param("active") boolean active);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Device d set d.mode = :mode, d.version = d.version + 1 where d.id in :ids and (d.mode is null or d.mode <> :mode)")
+    int updateModeByIdIn(@Param("ids") Collection<Long> ids, @Param("mode") Mode mode);
+
+    // Поток DTO для экспорта: без сущностей в контексте персистентности, строки читаются порциями (fetch size)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.example.smart_home_syst.dto.DeviceDto(d.title, d.type, d.power, d.active, m.id, r.id) from Device d left join d.mode m left join d.room r order by d.id")
+    Stream<DeviceDto> streamAllForExport();
+
+    // Исходные значения счетчиков статистики одним запросом: по строке на сочетание комнаты, типа и режима
+    @Query("select new com.example.smart_home_syst.dto.DeviceStatsRowDto(r.id, d.type, m.id, count(d), "
+        + "sum(case when d.active = true then 1L else 0L end), sum(case when d.active = true then coalesce(d.power, 0.0) else 0.0 end)) "
+        + "from Device d left join d.room r left join d.mode m group by r.id, d.type, m.id")
+    List<DeviceStatsRowDto> findStatsRows();
+
+    // Строки отчёта одним запросом вместо обращения к комнате и режиму каждого устройства
+    @Query("select new com.example.smart_home_syst.dto.DeviceReportDto(d.title, d.type, d.power, d.active, r.title, m.title) from Device d left join d.room r left join d.mode m order by d.id")
+    List<DeviceReportDto> findReportRows();
+
+    // Снимки для кэшей одним запросом, без загрузки EAGER связей room и mode для каждого устройства
+    @Query("select new com.example.smart_home_syst.dto.DeviceSnapshot(d.id, d.title, d.type, d.power, d.active, r.id, m.id, d.version) from Device d left join d.room r left join d.mode m order by d.id")
+    List<DeviceSnapshot> findAllSnapshots();
+
+    // Тот же список потоком для NDJSON-выдачи, когда кэш списка не загружен
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.example.smart_home_syst.dto.DeviceSnapshot(d.id, d.title, d.type, d.power, d.active, r.id, m.id, d.version) from Device d left join d.room r left join d.mode m order by d.id")
+    Stream<DeviceSnapshot> streamAllSnapshots();
+
+    @Query("select new com.example.smart_home_syst.dto.DeviceSnapshot(d.id, d.title, d.type, d.power, d.active, r.id, m.id, d.version) from Device d left join d.room r left join d.mode m where d.id in :ids")
+    List<DeviceSnapshot> findSnapshotsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Устройства одной комнаты или режима по индексу внешнего ключа, без перебора всего списка
+    @Query("select new com.example.smart_home_syst.dto.DeviceSnapshot(d.id, d.title, d.type, d.power, d.active, r.id, m.id, d.version) from Device d left join d.room r left join d.mode m where r.id = :roomId order by d.id")
+    List<DeviceSnapshot> findSnapshotsByRoomId(@Param("roomId") Long roomId);
+
+    @Query("select new com.example.smart_home_syst.dto.DeviceSnapshot(d.id, d.title, d.type, d.power, d.active, r.id, m.id, d.version) from Device d left join d.room r left join d.mode m where m.id = :modeId order by d.id")
+    List<DeviceSnapshot> findSnapshotsByModeId(@Param("modeId") Long modeId);
 }
@@ -1,15 +1,46 @@
 package com.example.smart_home_syst.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import com.example.smart_home_syst.dto.ModeDto;
+import com.example.smart_home_syst.dto.ModeReportDto;
+import com.example.smart_home_syst.dto.ModeSnapshot;
 import com.example.smart_home_syst.model.Mode;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface ModeRepository extends JpaRepository<Mode, Long>, JpaSpecificationExecutor<Mode> {
     List<Mode> findAllByTitle(String title);
+    List<Mode> findAllByTitleIn(Collection<String> titles);
     List<Mode> findByTitleStartingWithIgnoreCase(String title);
+
+    // Поток DTO для экспорта: без сущностей в контексте персистентности, строки читаются порциями (fetch size)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.example.smart_home_syst.dto.ModeDto(m.title, m.type) from Mode m order by m.id")
+    Stream<ModeDto> streamAllForExport();
+
+    // Строки отчёта одним запросом: названия устройств режима собираются в БД (listagg -> string_agg)
+    @Query("select new com.example.smart_home_syst.dto.ModeReportDto(m.title, m.type, coalesce(listagg(d.title, ', ') within group (order by d.id), '')) "
+        + "from Mode m left join m.devices d "
+        + "group by m.id, m.title, m.type order by m.id")
+    List<ModeReportDto> findReportRows();
+
+    @Query("select new com.example.smart_home_syst.dto.ModeSnapshot(m.id, m.title, m.type, m.version) from Mode m order by m.id")
+    List<ModeSnapshot> findAllSnapshots();
+
+    // Тот же список потоком для NDJSON-выдачи, когда кэш списка не загружен
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.example.smart_home_syst.dto.ModeSnapshot(m.id, m.title, m.type, m.version) from Mode m order by m.id")
+    Stream<ModeSnapshot> streamAllSnapshots();
 }
@@ -0,0 +1,24 @@
+package com.example.smart_home_syst.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.smart_home_syst.model.ModeSchedule;
+
+@Repository
+public interface ModeScheduleRepository extends JpaRepository<ModeSchedule, Long> {
+    List<ModeSchedule> findAllByEnabledTrue();
+
+    // Отметка срабатывания без загрузки сущности. Если расписание успели изменить, пока выполнялось срабатывание,
+    // его nextFireAt уже позже fireAt и строка не обновляется
+    @Modifying
+    @Query("update ModeSchedule s set s.lastFiredAt = :firedAt, s.nextFireAt = :nextFireAt where s.id = :id and s.nextFireAt <= :fireAt")
+    int markFired(@Param("id") Long id, @Param("fireAt") LocalDateTime fireAt,
+                  @Param("firedAt") LocalDateTime firedAt, @Param("nextFireAt") LocalDateTime nextFireAt);
+}
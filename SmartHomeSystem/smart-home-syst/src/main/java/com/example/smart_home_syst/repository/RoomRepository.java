@@ -1,15 +1,77 @@
 package com.example.smart_home_syst.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.example.smart_home_syst.dto.RoomDto;
+import com.example.smart_home_syst.dto.RoomReportDto;
+import com.example.smart_home_syst.dto.RoomSnapshot;
 import com.example.smart_home_syst.model.Room;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface RoomRepository extends JpaRepository<Room, Long>, JpaSpecificationExecutor<Room> {
     List<Room> findAllByTitle(String title);
+    List<Room> findAllByTitleIn(Collection<String> titles);
     List<Room> findByTitleStartingWithIgnoreCase(String title);
+
+    // Занять место в комнате: условие и увеличение в одном UPDATE, строка комнаты блокируется до конца транзакции,
+    // поэтому параллельные добавления в одну комнату не превышают вместимость. 0 - комнаты нет или она заполнена
+    @Modifying
+    @Query("update Room r set r.deviceCount = r.deviceCount + 1 where r.id = :roomId and r.deviceCount < r.capacity")
+    int tryReserveSlot(@Param("roomId") Long roomId);
+
+    @Modifying
+    @Query("update Room r set r.deviceCount = r.deviceCount - 1 where r.id = :roomId and r.deviceCount > 0")
+    int releaseSlot(@Param("roomId") Long roomId);
+
+    // Занять сразу count мест (импорт): все или ничего. 0 - комнаты нет или свободных мест меньше count
+    @Modifying
+    @Query("update Room r set r.deviceCount = r.deviceCount + :count where r.id = :roomId and r.deviceCount + :count <= r.capacity")
+    int tryReserveSlots(@Param("roomId") Long roomId, @Param("count") int count);
+
+    @Modifying
+    @Query("update Room r set r.deviceCount = case when r.deviceCount > :count then r.deviceCount - :count else 0 end where r.id = :roomId")
+    int releaseSlots(@Param("roomId") Long roomId, @Param("count") int count);
+
+    // Свободные места комнаты; строка блокируется до конца транзакции, поэтому результат можно сразу занять
+    @Query(value = "select greatest(coalesce(capacity, 0) - device_count, 0) from room where id = :roomId for update", nativeQuery = true)
+    Integer lockFreeSlots(@Param("roomId") Long roomId);
+
+    // Перед каскадным удалением устройств режима освобождаются их места в комнатах
+    @Modifying
+    @Query("update Room r set r.deviceCount = r.deviceCount - (select count(d) from Device d where d.room = r and d.mode.id = :modeId) "
+        + "where r.id in (select d.room.id from Device d where d.mode.id = :modeId)")
+    int releaseSlotsOfMode(@Param("modeId") Long modeId);
+
+    // Поток DTO для экспорта: без сущностей в контексте персистентности, строки читаются порциями (fetch size)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.example.smart_home_syst.dto.RoomDto(r.title, r.location, r.capacity, m.id) from Room r left join r.manager m order by r.id")
+    Stream<RoomDto> streamAllForExport();
+
+    // Строки отчёта одним запросом: менеджер и названия устройств собираются в БД (listagg -> string_agg)
+    @Query("select new com.example.smart_home_syst.dto.RoomReportDto(r.title, r.location, r.capacity, u.username, coalesce(listagg(d.title, ', ') within group (order by d.id), '')) "
+        + "from Room r left join r.manager u left join r.devices d "
+        + "group by r.id, r.title, r.location, r.capacity, u.username order by r.id")
+    List<RoomReportDto> findReportRows();
+
+    @Query("select new com.example.smart_home_syst.dto.RoomSnapshot(r.id, r.title, r.location, r.capacity, r.version) from Room r order by r.id")
+    List<RoomSnapshot> findAllSnapshots();
+
+    // Тот же список потоком для NDJSON-выдачи, когда кэш списка не загружен
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.example.smart_home_syst.dto.RoomSnapshot(r.id, r.title, r.location, r.capacity, r.version) from Room r order by r.id")
+    Stream<RoomSnapshot> streamAllSnapshots();
 }
@@ -0,0 +1,100 @@
+package com.example.smart_home_syst.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.example.smart_home_syst.dto.TelemetryPointDto;
+import com.example.smart_home_syst.dto.TelemetryReadingDto;
+import com.example.smart_home_syst.enumerator.TelemetryResolution;
+
+// Телеметрия хранится вне JPA: показания пишутся пакетами через JDBC без сущностей и контекста персистентности
+@Repository
+public class TelemetryRepository {
+    // Накопленный агрегат интервала для одного устройства
+    public record Rollup(Long deviceId, Instant bucket, double sum, double min, double max, long samples) {}
+
+    // Колонки device, по которым устройства объединяются в группы
+    public static final String BY_ROOM = "room_id";
+    public static final String BY_MODE = "mode_id";
+
+    // Устройство могли удалить между приёмом показаний и записью пачки: такие строки пропускаются условием exists,
+    // иначе нарушение внешнего ключа откатило бы всю пачку вместе с показаниями остальных устройств.
+    // for key share держит строку устройства до коммита, чтобы его не удалили между проверкой и вставкой
+    private static final String DEVICE_EXISTS = "where exists (select 1 from device where id = ? for key share)";
+    private static final String INSERT_READING = "insert into device_reading (device_id, ts, power) select ?, ?, ? " + DEVICE_EXISTS;
+    private static final String UPSERT_ROLLUP = "insert into %s (device_id, bucket, power_sum, power_min, power_max, samples) "
+        + "select ?, ?, ?, ?, ?, ? " + DEVICE_EXISTS + " on conflict (device_id, bucket) do update set power_sum = %1$s.power_sum + excluded.power_sum, "
+        + "power_min = least(%1$s.power_min, excluded.power_min), power_max = greatest(%1$s.power_max, excluded.power_max), "
+        + "samples = %1$s.samples + excluded.samples";
+
+    // Таблицы агрегатов по разрешению; RAW читается из device_reading отдельными запросами
+    private static final Map<TelemetryResolution, String> ROLLUP_TABLES = Map.of(
+        TelemetryResolution.MINUTE, "device_power_minute",
+        TelemetryResolution.HOUR, "device_power_hour");
+
+    private static final RowMapper<TelemetryPointDto> POINT_MAPPER = (rs, rowNum) -> new TelemetryPointDto(
+        rs.getTimestamp("bucket").toInstant(), rs.getDouble("avg_power"), rs.getDouble("min_power"), rs.getDouble("max_power"), rs.getLong("samples"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TelemetryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertReadings(List<TelemetryReadingDto> readings) {
+        jdbcTemplate.batchUpdate(INSERT_READING, readings, readings.size(), (ps, reading) -> {
+            ps.setLong(1, reading.deviceId());
+            ps.setTimestamp(2, Timestamp.from(reading.timestamp()));
+            ps.setDouble(3, reading.power());
+            ps.setLong(4, reading.deviceId());
+        });
+    }
+
+    public void upsertRollups(TelemetryResolution resolution, List<Rollup> rollups) {
+        String sql = String.format(UPSERT_ROLLUP, ROLLUP_TABLES.get(resolution));
+        jdbcTemplate.batchUpdate(sql, rollups, rollups.size(), (ps, rollup) -> {
+            ps.setLong(1, rollup.deviceId());
+            ps.setTimestamp(2, Timestamp.from(rollup.bucket()));
+            ps.setDouble(3, rollup.sum());
+            ps.setDouble(4, rollup.min());
+            ps.setDouble(5, rollup.max());
+            ps.setLong(6, rollup.samples());
+            ps.setLong(7, rollup.deviceId());
+        });
+    }
+
+    public List<TelemetryPointDto> findRawByDevice(Long deviceId, Instant from, Instant to, int limit) {
+        return jdbcTemplate.query("select ts as bucket, power as avg_power, power as min_power, power as max_power, 1 as samples "
+            + "from device_reading where device_id = ? and ts >= ? and ts < ? order by ts limit ?",
+            POINT_MAPPER, deviceId, Timestamp.from(from), Timestamp.from(to), limit);
+    }
+
+    public List<TelemetryPointDto> findRollupsByDevice(TelemetryResolution resolution, Long deviceId, Instant from, Instant to) {
+        return jdbcTemplate.query("select bucket, power_sum / samples as avg_power, power_min as min_power, power_max as max_power, samples "
+            + "from " + ROLLUP_TABLES.get(resolution) + " where device_id = ? and bucket >= ? and bucket < ? order by bucket",
+            POINT_MAPPER, deviceId, Timestamp.from(from), Timestamp.from(to));
+    }
+
+    // Ряды группы устройств (комнаты или режима) собираются из агрегатов её устройств одним запросом
+    public List<TelemetryPointDto> findRollupsByDeviceGroup(TelemetryResolution resolution, String groupColumn, Long groupId, Instant from, Instant to) {
+        return jdbcTemplate.query("select p.bucket, sum(p.power_sum) / sum(p.samples) as avg_power, min(p.power_min) as min_power, "
+            + "max(p.power_max) as max_power, sum(p.samples) as samples from " + ROLLUP_TABLES.get(resolution) + " p "
+            + "join device d on d.id = p.device_id where d." + groupColumn + " = ? and p.bucket >= ? and p.bucket < ? "
+            + "group by p.bucket order by p.bucket",
+            POINT_MAPPER, groupId, Timestamp.from(from), Timestamp.from(to));
+    }
+
+    public int deleteReadingsBefore(Instant before) {
+        return jdbcTemplate.update("delete from device_reading where ts < ?", Timestamp.from(before));
+    }
+
+    public int deleteRollupsBefore(TelemetryResolution resolution, Instant before) {
+        return jdbcTemplate.update("delete from " + ROLLUP_TABLES.get(resolution) + " where bucket < ?", Timestamp.from(before));
+    }
+}
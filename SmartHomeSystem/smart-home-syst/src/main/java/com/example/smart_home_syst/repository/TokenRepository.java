@@ -1,12 +1,30 @@
 package com.example.smart_home_syst.repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.smart_home_syst.dto.RevokedTokenDto;
 import com.example.smart_home_syst.model.Token;
 
 
 public interface TokenRepository extends JpaRepository <Token, Long> {
     Optional <Token> findByValue(String value);
-}
\ No newline at end of file
+    Optional <Token> findByValueHash(String valueHash);
+    List <Token> findTop500ByValueHashIsNull();
+
+    @Query("select new com.example.smart_home_syst.dto.RevokedTokenDto(t.valueHash, t.expiringDate) from Token t where t.disabled = true and t.expiringDate > :now and t.valueHash is not null")
+    List <RevokedTokenDto> findActiveRevokedTokens(@Param("now") LocalDateTime now);
+
+    // Удаление истёкших токенов порциями, чтобы не держать долгую блокировку на большой таблице
+    @Transactional
+    @Modifying
+    @Query(value = "delete from token where id in (select id from token where expiring_date < :now limit :chunkSize)", nativeQuery = true)
+    int deleteExpiredChunk(@Param("now") LocalDateTime now, @Param("chunkSize") int chunkSize);
+}
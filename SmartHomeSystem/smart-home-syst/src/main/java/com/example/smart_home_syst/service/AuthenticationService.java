@@ -1,6 +1,7 @@
 package com.example.smart_home_syst.service;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.Map;
@@ -26,11 +27,16 @@ import com.example.smart_home_syst.dto.LoginRequestDto;
 import com.example.smart_home_syst.dto.LoginResponseDto;
 import com.example.smart_home_syst.dto.UserLoggedDto;
 import com.example.smart_home_syst.jwt.JwtTokenProvider;
+import com.example.smart_home_syst.jwt.PrincipalCache;
+import com.example.smart_home_syst.jwt.RevokedTokenStore;
+import com.example.smart_home_syst.jwt.TokenValidationCache;
 import com.example.smart_home_syst.mapper.UserMapper;
+import com.example.smart_home_syst.model.Permission;
 import com.example.smart_home_syst.model.Token;
 import com.example.smart_home_syst.model.User;
 import com.example.smart_home_syst.repository.TokenRepository;
 import com.example.smart_home_syst.util.CookieUtil;
+import com.example.smart_home_syst.util.TokenHashUtil;
 
 import lombok.RequiredArgsConstructor;
 
@@ -39,6 +45,9 @@ import lombok.RequiredArgsConstructor;
 public class AuthenticationService {
     private final TokenRepository tokenRepository;
     private final JwtTokenProvider jwtTokenProvider;
+    private final TokenValidationCache tokenValidationCache;
+    private final RevokedTokenStore revokedTokenStore;
+    private final PrincipalCache principalCache;
     private final CookieUtil cookieUtil;
     private final AuthenticationManager authenticationManager;
     private final PasswordEncoder passwordEncoder;
@@ -66,6 +75,11 @@ public class AuthenticationService {
         headers.add(HttpHeaders.SET_COOKIE, cookieUtil.createRefreshCookie(token.getValue(), refreshDurationSec).toString());
     }
 
+    private Map<String, Object> accessTokenClaims(User user) { // роль и права записываются в access токен при выдаче
+        return Map.of("role", user.getRole().getAuthority(),
+            "permissions", user.getRole().getPermissions().stream().map(Permission::getAuthority).sorted().toList());
+    }
+
     private void revokeAllTokens(User user) { // удаление/деактивация всех токенов пользователя
         Set <Token> tokens = user.getTokens();
         
@@ -73,7 +87,10 @@ public class AuthenticationService {
         else if(!token.isDisabled()) {
             token.setDisabled(true); // если активен - сделать неактивным
             tokenRepository.save(token); // запись в БД обновлённого токена
+            revokedTokenStore.add(TokenHashUtil.hash(token.getValue()), token.getExpiringDate().toInstant(ZoneOffset.UTC).toEpochMilli());
         }});
+        tokens.forEach(token -> tokenValidationCache.invalidate(TokenHashUtil.hash(token.getValue()))); // токены больше не считаются проверенными
+        principalCache.invalidate(user.getUsername());
         logger.debug(String.format("User's (name: %s) tokens was revocated", user.getUsername()));
     }
 
@@ -93,7 +110,7 @@ public class AuthenticationService {
         revokeAllTokens(user);
 
         if (!accessValid) {
-            Token newAccess = jwtTokenProvider.generatedAccessToken(Map.of("role", user.getRole().getAuthority()),
+            Token newAccess = jwtTokenProvider.generatedAccessToken(accessTokenClaims(user),
             accessDurationMin, ChronoUnit.MINUTES, user);
             logger.debug("New Access token created with parametrs: token type-{}, expiring date-{}", newAccess.getType(), newAccess.getExpiringDate());
 
@@ -133,7 +150,7 @@ public class AuthenticationService {
         User user = userService.getUser(jwtTokenProvider.getUsername(refreshToken));
         logger.debug("User with ID {} and name {} is founded successfully", user.getId(), user.getUsername());
 
-        Token newAccess = jwtTokenProvider.generatedAccessToken(Map.of("role", user.getRole().getAuthority()),
+        Token newAccess = jwtTokenProvider.generatedAccessToken(accessTokenClaims(user),
                 accessDurationMin, ChronoUnit.MINUTES, user);
         logger.debug("New Access token created with parametrs: token type-{}, expiring date-{}, userId-{}", newAccess.getType(), newAccess.getExpiringDate(), user.getId());
 
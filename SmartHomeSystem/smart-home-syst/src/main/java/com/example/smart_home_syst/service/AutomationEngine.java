@@ -0,0 +1,220 @@
+package com.example.smart_home_syst.service;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.smart_home_syst.dto.AutomationRuleDto;
+import com.example.smart_home_syst.dto.DeviceSnapshot;
+import com.example.smart_home_syst.enumerator.DeviceChangeType;
+import com.example.smart_home_syst.event.DeviceChangedEvent;
+import com.example.smart_home_syst.repository.AutomationRuleRepository;
+
+import jakarta.annotation.PreDestroy;
+
+// Движок правил автоматизации. Включённые правила держатся в памяти в индексах по тому, на что они реагируют
+// (устройство, комната, минута суток), поэтому событие проверяет только ссылающиеся на него правила,
+// а не весь набор. Действия выполняются в отдельном ограниченном пуле: они сами меняют устройства
+// в новых транзакциях и не задерживают поток, закоммитивший исходное изменение.
+// Пауза повторного срабатывания (cooldown) не дает правилам зациклиться друг на друге
+@Service
+public class AutomationEngine {
+    private final AutomationRuleRepository ruleRepository;
+    private final DeviceStatsService deviceStatsService;
+    private final RoomService roomService;
+    private final ModeService modeService;
+    private final ThreadPoolExecutor executor;
+    private final long cooldownMs;
+    private volatile RuleIndex index = RuleIndex.EMPTY;
+    private final Map<Long, Long> lastFiredAt = new ConcurrentHashMap<>();
+    private final Map<Long, Boolean> aboveThreshold = new ConcurrentHashMap<>(); // состояние порога для ROOM_POWER_ABOVE
+    private LocalDateTime lastMinute; // последняя обработанная минута, меняется только в onMinute
+    private static final int MAX_CATCH_UP_MINUTES = 10;
+    private static final Logger logger = LoggerFactory.getLogger(AutomationEngine.class);
+
+    public AutomationEngine(AutomationRuleRepository ruleRepository, DeviceStatsService deviceStatsService,
+                            RoomService roomService, ModeService modeService,
+                            @Value("${automation.executor.pool-size}") int poolSize,
+                            @Value("${automation.executor.queue-capacity}") int queueCapacity,
+                            @Value("${automation.cooldown-seconds}") int cooldownSeconds) {
+        this.ruleRepository = ruleRepository;
+        this.deviceStatsService = deviceStatsService;
+        this.roomService = roomService;
+        this.modeService = modeService;
+        this.cooldownMs = TimeUnit.SECONDS.toMillis(cooldownSeconds);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), // при переполнении очереди действие отбрасывается с записью в лог
+            runnable -> new Thread(runnable, "automation-" + threadNumber.incrementAndGet()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Пересборка индекса после изменения правил (вызывается после коммита) и при старте.
+    // Состояние порога правил мощности берётся из текущей статистики (при старте она уже собрана -
+    // у DeviceStatsService.rebuild порядок выше): комната, которая уже выше порога, не вызывает срабатывание
+    // на первом же событии, а новое или изменённое правило сравнивается со своим порогом
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        List<AutomationRuleDto> rules = ruleRepository.findAllByEnabledTrue().stream().map(AutomationRuleDto::from).toList();
+        RuleIndex rebuilt = RuleIndex.build(rules);
+        aboveThreshold.keySet().retainAll(rules.stream().map(AutomationRuleDto::id).toList());
+        rebuilt.powerRules().forEach((roomId, roomRules) -> {
+            double power = deviceStatsService.getRoomStats(roomId).activePower();
+            roomRules.forEach(rule -> aboveThreshold.put(rule.id(), power > rule.powerThreshold()));
+        });
+        index = rebuilt;
+        logger.info("Automation rules loaded: {} enabled", rules.size());
+    }
+
+    // Выполняется после обновления статистики (у DeviceStatsService порядок выше), мощность комнаты уже актуальна
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        if (event.change() == DeviceChangeType.RELOAD) {
+            checkRoomPower(index.powerRules().keySet());
+            return;
+        }
+        RuleIndex current = index;
+        DeviceSnapshot before = event.before();
+        DeviceSnapshot after = event.after();
+        boolean wasActive = before != null && before.active();
+        boolean isActive = after != null && after.active();
+        if (!wasActive && isActive) {
+            current.turnedOnRules().getOrDefault(event.deviceId(), List.of()).forEach(this::fire);
+        }
+        else if (wasActive && !isActive) {
+            current.turnedOffRules().getOrDefault(event.deviceId(), List.of()).forEach(this::fire);
+        }
+
+        List<Long> rooms = new ArrayList<>(2);
+        if (before != null && before.roomId() != null) {
+            rooms.add(before.roomId());
+        }
+        if (after != null && after.roomId() != null && !rooms.contains(after.roomId())) {
+            rooms.add(after.roomId());
+        }
+        checkRoomPower(rooms);
+    }
+
+    // Правило срабатывает только при переходе через порог снизу вверх, а не на каждое событие выше порога
+    private void checkRoomPower(Iterable<Long> roomIds) {
+        RuleIndex current = index;
+        for (Long roomId : roomIds) {
+            List<AutomationRuleDto> rules = current.powerRules().get(roomId);
+            if (rules == null) {
+                continue;
+            }
+            double power = deviceStatsService.getRoomStats(roomId).activePower();
+            for (AutomationRuleDto rule : rules) {
+                boolean above = power > rule.powerThreshold();
+                Boolean wasAbove = aboveThreshold.put(rule.id(), above);
+                if (above && !Boolean.TRUE.equals(wasAbove)) {
+                    fire(rule);
+                }
+            }
+        }
+    }
+
+    // Обрабатываются все минуты после предыдущего запуска: если поток планировщика задержался и запуск
+    // пришёлся на следующую минуту, правила пропущенной минуты всё равно срабатывают. Догоняется не больше
+    // MAX_CATCH_UP_MINUTES, чтобы после долгой паузы (остановка процесса, перевод часов) не выполнять правила пачкой
+    @Scheduled(cron = "0 * * * * *")
+    public void onMinute() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime minute = lastMinute == null || lastMinute.isBefore(now.minusMinutes(MAX_CATCH_UP_MINUTES))
+            ? now : lastMinute.plusMinutes(1);
+        RuleIndex current = index;
+        for (; !minute.isAfter(now); minute = minute.plusMinutes(1)) {
+            current.timeRules().getOrDefault(minute.toLocalTime(), List.of()).forEach(this::fire);
+        }
+        if (lastMinute == null || now.isAfter(lastMinute)) {
+            lastMinute = now;
+        }
+    }
+
+    // Проверка и запись времени срабатывания атомарны (compute): параллельные события одного правила
+    // не проходят паузу оба
+    private void fire(AutomationRuleDto rule) {
+        long now = System.currentTimeMillis();
+        boolean[] allowed = new boolean[1];
+        lastFiredAt.compute(rule.id(), (id, previous) -> {
+            if (previous != null && now - previous < cooldownMs) {
+                return previous;
+            }
+            allowed[0] = true;
+            return now;
+        });
+        if (!allowed[0]) {
+            logger.debug("Automation rule {} skipped: cooldown", rule.id());
+            return;
+        }
+        try {
+            executor.execute(() -> execute(rule));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Automation queue is full, action of rule {} '{}' dropped", rule.id(), rule.title());
+        }
+    }
+
+    private void execute(AutomationRuleDto rule) {
+        logger.info("Automation rule {} '{}' fired: {}", rule.id(), rule.title(), rule.actionType());
+        try {
+            switch (rule.actionType()) {
+                case SWITCH_ROOM_MODE -> roomService.switchDevicesModeInRoom(rule.actionRoomId(), rule.actionModeId());
+                case TURN_ON_MODE_DEVICES -> modeService.turnOnDevicesOfMode(rule.actionModeId());
+                case TURN_OFF_MODE_DEVICES -> modeService.turnOffDevicesOfMode(rule.actionModeId());
+                case TURN_OFF_ROOM_DEVICES -> roomService.turnOffDevicesInRoom(rule.actionRoomId());
+                case NOTIFY_ROOM_MANAGER -> roomService.notifyRoomManager(rule.actionRoomId(), rule.message());
+            }
+        } catch (Exception e) {
+            logger.warn("Automation rule {} action {} failed: {}", rule.id(), rule.actionType(), e.getMessage());
+        }
+    }
+
+    // Неизменяемый набор индексов; при изменении правил строится новый и подменяется целиком
+    private record RuleIndex(
+        Map<Long, List<AutomationRuleDto>> turnedOnRules,
+        Map<Long, List<AutomationRuleDto>> turnedOffRules,
+        Map<Long, List<AutomationRuleDto>> powerRules,
+        Map<LocalTime, List<AutomationRuleDto>> timeRules
+    ) {
+        static final RuleIndex EMPTY = new RuleIndex(Map.of(), Map.of(), Map.of(), Map.of());
+
+        static RuleIndex build(List<AutomationRuleDto> rules) {
+            Map<Long, List<AutomationRuleDto>> turnedOn = new HashMap<>();
+            Map<Long, List<AutomationRuleDto>> turnedOff = new HashMap<>();
+            Map<Long, List<AutomationRuleDto>> power = new HashMap<>();
+            Map<LocalTime, List<AutomationRuleDto>> time = new HashMap<>();
+            for (AutomationRuleDto rule : rules) {
+                switch (rule.triggerType()) {
+                    case DEVICE_TURNED_ON -> turnedOn.computeIfAbsent(rule.triggerDeviceId(), k -> new ArrayList<>()).add(rule);
+                    case DEVICE_TURNED_OFF -> turnedOff.computeIfAbsent(rule.triggerDeviceId(), k -> new ArrayList<>()).add(rule);
+                    case ROOM_POWER_ABOVE -> power.computeIfAbsent(rule.triggerRoomId(), k -> new ArrayList<>()).add(rule);
+                    case TIME_OF_DAY -> time.computeIfAbsent(rule.triggerTime().truncatedTo(ChronoUnit.MINUTES), k -> new ArrayList<>()).add(rule);
+                }
+            }
+            return new RuleIndex(turnedOn, turnedOff, power, time);
+        }
+    }
+}
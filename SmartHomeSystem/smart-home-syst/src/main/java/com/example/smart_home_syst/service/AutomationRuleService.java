@@ -0,0 +1,122 @@
+package com.example.smart_home_syst.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.smart_home_syst.dto.AutomationRuleDto;
+import com.example.smart_home_syst.exception.ResourceNotFoundException;
+import com.example.smart_home_syst.model.AutomationRule;
+import com.example.smart_home_syst.repository.AutomationRuleRepository;
+import com.example.smart_home_syst.util.AfterCommitUtil;
+
+@Service
+public class AutomationRuleService {
+    private final AutomationRuleRepository ruleRepository;
+    private final AutomationEngine automationEngine;
+    private static final Logger logger = LoggerFactory.getLogger(AutomationRuleService.class);
+
+    public AutomationRuleService(AutomationRuleRepository ruleRepository, AutomationEngine automationEngine) {
+        this.ruleRepository = ruleRepository;
+        this.automationEngine = automationEngine;
+    }
+
+    @Transactional(readOnly = true)
+    public List<AutomationRuleDto> getAll() {
+        return ruleRepository.findAll().stream().map(AutomationRuleDto::from).toList();
+    }
+
+    @Transactional(readOnly = true)
+    public AutomationRuleDto getById(Long id) {
+        return ruleRepository.findById(id).map(AutomationRuleDto::from).orElse(null);
+    }
+
+    @Transactional
+    public AutomationRuleDto create(AutomationRuleDto ruleDto) {
+        logger.info("Start Create automation rule operation");
+        AutomationRule rule = new AutomationRule();
+        apply(rule, ruleDto);
+        ruleRepository.save(rule);
+        AfterCommitUtil.run(automationEngine::reload); // движок видит только закоммиченные правила
+        logger.info("Automation rule with Id {} successfully created", rule.getId());
+        return AutomationRuleDto.from(rule);
+    }
+
+    @Transactional
+    public AutomationRuleDto update(Long id, AutomationRuleDto ruleDto) {
+        logger.info("Start Update automation rule operation");
+        AutomationRule rule = ruleRepository.findById(id).orElseThrow(() -> {
+            logger.warn("Automation rule not found with id: {}", id);
+            return new ResourceNotFoundException("Automation rule not found with id: " + id);
+        });
+        apply(rule, ruleDto);
+        ruleRepository.save(rule);
+        AfterCommitUtil.run(automationEngine::reload);
+        logger.info("Update comleted successfully for automation rule {}", id);
+        return AutomationRuleDto.from(rule);
+    }
+
+    @Transactional
+    public boolean deleteById(Long id) {
+        logger.info("Start Delete automation rule operation");
+        if (ruleRepository.existsById(id)) {
+            ruleRepository.deleteById(id);
+            AfterCommitUtil.run(automationEngine::reload);
+            logger.info("Delete automation rule with Id {} completed successfully", id);
+            return true;
+        }
+        logger.info("Automation rule with Id {} doesn't founded. Operation canceled", id);
+        return false;
+    }
+
+    // Поля условия и действия проверяются по их типу, чтобы в индекс движка не попало неполное правило
+    private static void apply(AutomationRule rule, AutomationRuleDto ruleDto) {
+        if (ruleDto.title() == null || ruleDto.title().isBlank()) {
+            throw new IllegalArgumentException("Rule title is required");
+        }
+        if (ruleDto.triggerType() == null || ruleDto.actionType() == null) {
+            throw new IllegalArgumentException("Rule trigger type and action type are required");
+        }
+        switch (ruleDto.triggerType()) {
+            case DEVICE_TURNED_ON, DEVICE_TURNED_OFF -> require(ruleDto.triggerDeviceId(), "triggerDeviceId");
+            case TIME_OF_DAY -> require(ruleDto.triggerTime(), "triggerTime");
+            case ROOM_POWER_ABOVE -> {
+                require(ruleDto.triggerRoomId(), "triggerRoomId");
+                require(ruleDto.powerThreshold(), "powerThreshold");
+            }
+        }
+        switch (ruleDto.actionType()) {
+            case SWITCH_ROOM_MODE -> {
+                require(ruleDto.actionRoomId(), "actionRoomId");
+                require(ruleDto.actionModeId(), "actionModeId");
+            }
+            case TURN_ON_MODE_DEVICES, TURN_OFF_MODE_DEVICES -> require(ruleDto.actionModeId(), "actionModeId");
+            case TURN_OFF_ROOM_DEVICES -> require(ruleDto.actionRoomId(), "actionRoomId");
+            case NOTIFY_ROOM_MANAGER -> {
+                require(ruleDto.actionRoomId(), "actionRoomId");
+                require(ruleDto.message(), "message");
+            }
+        }
+
+        rule.setTitle(ruleDto.title());
+        rule.setEnabled(ruleDto.enabled() == null || ruleDto.enabled()); // по умолчанию правило включено
+        rule.setTriggerType(ruleDto.triggerType());
+        rule.setTriggerDeviceId(ruleDto.triggerDeviceId());
+        rule.setTriggerRoomId(ruleDto.triggerRoomId());
+        rule.setPowerThreshold(ruleDto.powerThreshold());
+        rule.setTriggerTime(ruleDto.triggerTime());
+        rule.setActionType(ruleDto.actionType());
+        rule.setActionRoomId(ruleDto.actionRoomId());
+        rule.setActionModeId(ruleDto.actionModeId());
+        rule.setMessage(ruleDto.message());
+    }
+
+    private static void require(Object value, String field) {
+        if (value == null) {
+            throw new IllegalArgumentException("Field " + field + " is required for this rule type");
+        }
+    }
+}
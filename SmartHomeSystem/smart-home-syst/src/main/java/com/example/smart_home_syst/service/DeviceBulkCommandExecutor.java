@@ -0,0 +1,176 @@
+package com.example.smart_home_syst.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.smart_home_syst.dto.BulkCommandResultDto;
+import com.example.smart_home_syst.dto.DeviceSnapshot;
+import com.example.smart_home_syst.enumerator.DeviceType;
+import com.example.smart_home_syst.event.DeviceChangedEvent;
+import com.example.smart_home_syst.model.Mode;
+import com.example.smart_home_syst.repository.DeviceRepository;
+import com.example.smart_home_syst.util.AfterCommitUtil;
+import com.example.smart_home_syst.util.IndexedListCache;
+
+// Общий исполнитель массовых команд над устройствами (по типу, комнате или режиму).
+// Каждая команда - это выборка Id и UPDATE по порциям заблокированных Id, без загрузки сущностей.
+// Команда, затрагивающая больше reloadThreshold устройств, не читает состояния до и после и не публикует
+// событие на каждое устройство: кэши этих устройств сбрасываются, а подписчики получают одно событие RELOAD
+@Service
+public class DeviceBulkCommandExecutor {
+    private final DeviceRepository deviceRepository;
+    private final CacheManager cacheManager;
+    private final IndexedListCache<DeviceSnapshot> deviceListCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int reloadThreshold;
+    private static final int CHUNK_SIZE = 1000; // Id в одном IN, с запасом ниже предела PgJDBC в 32767 параметров
+    private static final Logger logger = LoggerFactory.getLogger(DeviceBulkCommandExecutor.class);
+
+    public DeviceBulkCommandExecutor(DeviceRepository deviceRepository, CacheManager cacheManager, IndexedListCache<DeviceSnapshot> deviceListCache, ApplicationEventPublisher eventPublisher,
+                                     @Value("${events.bulk-reload-threshold}") int reloadThreshold) {
+        this.deviceRepository = deviceRepository;
+        this.cacheManager = cacheManager;
+        this.deviceListCache = deviceListCache;
+        this.eventPublisher = eventPublisher;
+        this.reloadThreshold = reloadThreshold;
+    }
+
+    // Изменённые устройства перечитываются одним запросом и записываются в оба кэша после коммита,
+    // остальные записи кэшей не трогаются
+    private void refreshDeviceCacheEntries(List<Long> ids, Map<Long, DeviceSnapshot> before) {
+        List<DeviceSnapshot> changedDevices = deviceRepository.findSnapshotsByIdIn(ids);
+        deviceListCache.putAll(changedDevices);
+        Cache deviceCache = cacheManager.getCache("device");
+        if (deviceCache != null) {
+            AfterCommitUtil.run(() -> changedDevices.forEach(device -> deviceCache.put(device.id(), device)));
+        }
+        changedDevices.forEach(device -> eventPublisher.publishEvent(DeviceChangedEvent.updated(before.get(device.id()), device)));
+    }
+
+    private void reloadDeviceCaches(List<Long> changedIds) {
+        deviceListCache.invalidate();
+        Cache deviceCache = cacheManager.getCache("device");
+        if (deviceCache != null) {
+            AfterCommitUtil.run(() -> changedIds.forEach(deviceCache::evict));
+        }
+        eventPublisher.publishEvent(DeviceChangedEvent.reload());
+    }
+
+    // Кандидаты на изменение обрабатываются порциями по CHUNK_SIZE Id: строки порции, которые всё ещё не в нужном
+    // состоянии, блокируются (lock), читается их состояние "до", затем UPDATE выполняется только по этим Id.
+    // Устройство, изменённое другим запросом между выборкой кандидатов и блокировкой, просто не попадает в порцию.
+    // Возвращает Id действительно изменённых устройств
+    private List<Long> lockAndUpdate(List<Long> candidateIds, Function<List<Long>, List<Long>> lock, Consumer<List<Long>> update) {
+        List<Long> sorted = candidateIds.stream().sorted().toList();
+        List<Long> changed = new ArrayList<>();
+        boolean reload = sorted.size() > reloadThreshold;
+        for (int from = 0; from < sorted.size(); from += CHUNK_SIZE) {
+            List<Long> locked = lock.apply(sorted.subList(from, Math.min(from + CHUNK_SIZE, sorted.size())));
+            if (locked.isEmpty()) {
+                continue;
+            }
+            if (reload) {
+                update.accept(locked);
+                changed.addAll(locked);
+                continue;
+            }
+            // Состояние до команды читается той же проекцией, что и после: подписчикам событий нужна разница
+            Map<Long, DeviceSnapshot> before = deviceRepository.findSnapshotsByIdIn(locked).stream()
+                .collect(Collectors.toMap(DeviceSnapshot::id, Function.identity()));
+            update.accept(locked);
+            refreshDeviceCacheEntries(locked, before);
+            changed.addAll(locked);
+        }
+        if (reload && !changed.isEmpty()) {
+            logger.debug("Bulk update of {} devices published as reload", changed.size());
+            reloadDeviceCaches(changed);
+        }
+        return changed;
+    }
+
+    private List<Long> lockAndSetActive(List<Long> candidateIds, boolean active) {
+        return lockAndUpdate(candidateIds,
+            ids -> deviceRepository.lockIdsByIdInAndActiveNot(ids, active),
+            ids -> deviceRepository.updateActiveByIdIn(ids, active));
+    }
+
+    private List<Long> lockAndSetMode(List<Long> candidateIds, Mode mode) {
+        return lockAndUpdate(candidateIds,
+            ids -> deviceRepository.lockIdsByIdInAndModeIdNot(ids, mode.getId()),
+            ids -> deviceRepository.updateModeByIdIn(ids, mode));
+    }
+
+    private BulkCommandResultDto result(String command, List<Long> scopeIds, List<Long> changedIds) {
+        Set<Long> changed = new HashSet<>(changedIds);
+        List<Long> unchangedIds = scopeIds.stream().filter(id -> !changed.contains(id)).toList();
+        logger.debug("Command '{}': {} devices founded, {} changed", command, scopeIds.size(), changedIds.size());
+        return new BulkCommandResultDto(command, scopeIds.size(), changedIds, unchangedIds);
+    }
+
+    @Transactional
+    public BulkCommandResultDto setActiveForType(DeviceType type, boolean active) {
+        List<Long> scopeIds = deviceRepository.findIdsByType(type);
+        List<Long> changedIds = lockAndSetActive(deviceRepository.findIdsByTypeAndActiveNot(type, active), active);
+        return result("type " + type + " active=" + active, scopeIds, changedIds);
+    }
+
+    @Transactional
+    public BulkCommandResultDto setActiveInRoom(Long roomId, boolean active) {
+        List<Long> scopeIds = deviceRepository.findIdsByRoomId(roomId);
+        List<Long> changedIds = lockAndSetActive(deviceRepository.findIdsByRoomIdAndActiveNot(roomId, active), active);
+        return result("room " + roomId + " active=" + active, scopeIds, changedIds);
+    }
+
+    @Transactional
+    public BulkCommandResultDto setActiveForMode(Long modeId, boolean active) {
+        List<Long> scopeIds = deviceRepository.findIdsByModeId(modeId);
+        List<Long> changedIds = lockAndSetActive(deviceRepository.findIdsByModeIdAndActiveNot(modeId, active), active);
+        return result("mode " + modeId + " active=" + active, scopeIds, changedIds);
+    }
+
+    @Transactional
+    public BulkCommandResultDto setModeInRoom(Long roomId, Mode mode) {
+        List<Long> scopeIds = deviceRepository.findIdsByRoomId(roomId);
+        List<Long> changedIds = lockAndSetMode(deviceRepository.findIdsByRoomIdAndModeIdNot(roomId, mode.getId()), mode);
+        return result("room " + roomId + " mode=" + mode.getId(), scopeIds, changedIds);
+    }
+
+    // Пакет очереди команд с разными значениями для разных устройств. Устройства группируются по целевому
+    // значению, на группу выполняется один UPDATE. Устройства, которых нет в БД, не попадают в total и в списки результата
+    @Transactional
+    public BulkCommandResultDto applyCommandBatch(Map<Long, Boolean> activeById, Map<Long, Mode> modeById) {
+        Set<Long> requested = new HashSet<>(activeById.keySet());
+        requested.addAll(modeById.keySet());
+        Set<Long> existing = new HashSet<>(deviceRepository.findExistingIds(requested));
+
+        Map<Boolean, List<Long>> activeGroups = activeById.entrySet().stream()
+            .filter(entry -> existing.contains(entry.getKey()))
+            .collect(Collectors.groupingBy(Map.Entry::getValue, Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+        // Группировка по Id режима: equals/hashCode сущности Mode затрагивают ленивый список устройств
+        Map<Long, Mode> modes = modeById.values().stream()
+            .collect(Collectors.toMap(Mode::getId, Function.identity(), (first, second) -> first));
+        Map<Long, List<Long>> modeGroups = modeById.entrySet().stream()
+            .filter(entry -> existing.contains(entry.getKey()))
+            .collect(Collectors.groupingBy(entry -> entry.getValue().getId(), Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+
+        Set<Long> changed = new HashSet<>();
+        activeGroups.forEach((active, ids) -> changed.addAll(lockAndSetActive(ids, active)));
+        modeGroups.forEach((modeId, ids) -> changed.addAll(lockAndSetMode(ids, modes.get(modeId))));
+        return result("command batch of " + existing.size() + " devices", List.copyOf(existing), List.copyOf(changed));
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.smart_home_syst.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import com.example.smart_home_syst.dto.BulkCommandResultDto;
+import com.example.smart_home_syst.dto.DeviceCommandDto;
+import com.example.smart_home_syst.dto.DeviceCommandRequestDto;
+import com.example.smart_home_syst.enumerator.DeviceCommandStatus;
+import com.example.smart_home_syst.enumerator.DeviceCommandType;
+import com.example.smart_home_syst.model.Mode;
+import com.example.smart_home_syst.repository.ModeRepository;
+
+import jakarta.annotation.PreDestroy;
+
+// Очередь команд устройствам (включить, выключить, сменить режим). Запрос только кладёт команду в очередь
+// и получает её Id, запись в БД выполняют рабочие потоки пакетами через DeviceBulkCommandExecutor.
+// Очередь разбита на шарды по Id устройства: все команды устройства попадают в один шард, а шард в каждый
+// момент разбирает не больше одного потока, поэтому команды одного устройства записываются по порядку.
+// Пока команда ждёт записи, следующая команда того же вида для того же устройства заменяет её (SUPERSEDED):
+// в БД попадает только последнее значение. Существование устройства и режима проверяется при записи.
+// Очередь и статусы команд хранятся только в памяти узла: принятые, но ещё не записанные команды теряются
+// при перезапуске или падении приложения, статус команды после перезапуска не найти. Клиенту, которому важно
+// применение, нужно дождаться APPLIED и при необходимости отправить команду заново.
+// Статусы завершённых команд хранятся не дольше retention-minutes и не больше max-tracked: при превышении
+// первыми удаляются завершившиеся раньше всех
+@Service
+public class DeviceCommandQueue {
+    private final DeviceBulkCommandExecutor bulkCommandExecutor;
+    private final ModeRepository modeRepository;
+    private final Shard[] shards;
+    private final ThreadPoolExecutor executor;
+    private final int batchSize;
+    private final int maxPendingPerShard;
+    private final int retentionMinutes;
+    private final int maxTracked;
+    private final Map<String, DeviceCommandDto> commands = new ConcurrentHashMap<>();
+    private final Queue<String> finishedIds = new ConcurrentLinkedQueue<>(); // завершённые команды в порядке завершения
+    private static final Logger logger = LoggerFactory.getLogger(DeviceCommandQueue.class);
+
+    public DeviceCommandQueue(DeviceBulkCommandExecutor bulkCommandExecutor, ModeRepository modeRepository,
+                              @Value("${device-commands.shards}") int shardCount,
+                              @Value("${device-commands.workers}") int workers,
+                              @Value("${device-commands.batch-size}") int batchSize,
+                              @Value("${device-commands.max-pending-per-shard}") int maxPendingPerShard,
+                              @Value("${device-commands.retention-minutes}") int retentionMinutes,
+                              @Value("${device-commands.max-tracked}") int maxTracked) {
+        this.bulkCommandExecutor = bulkCommandExecutor;
+        this.modeRepository = modeRepository;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+        this.batchSize = batchSize;
+        this.maxPendingPerShard = maxPendingPerShard;
+        this.retentionMinutes = retentionMinutes;
+        this.maxTracked = maxTracked;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(shardCount), // в очереди не больше одной задачи на шард
+            runnable -> new Thread(runnable, "device-command-" + threadNumber.incrementAndGet()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // RejectedExecutionException - шард устройства заполнен, запись не успевает за приёмом команд
+    public DeviceCommandDto submit(Long deviceId, DeviceCommandRequestDto request) {
+        if (request.type() == null) {
+            throw new IllegalArgumentException("Command type is required");
+        }
+        if (request.type() == DeviceCommandType.SET_MODE && request.modeId() == null) {
+            throw new IllegalArgumentException("Field modeId is required for SET_MODE command");
+        }
+        String requestedBy = SecurityContextHolder.getContext().getAuthentication().getName();
+        Long modeId = request.type() == DeviceCommandType.SET_MODE ? request.modeId() : null;
+        DeviceCommandDto command = new DeviceCommandDto(UUID.randomUUID().toString(), deviceId, request.type(), modeId,
+            DeviceCommandStatus.QUEUED, requestedBy, LocalDateTime.now(), null, null);
+
+        Shard shard = shards[Math.floorMod(deviceId.hashCode(), shards.length)];
+        String superseded;
+        boolean schedule = false;
+        synchronized (shard) {
+            PendingDevice pending = shard.pending.get(deviceId);
+            if (pending == null) {
+                if (shard.pending.size() >= maxPendingPerShard) {
+                    logger.warn("Device command shard is full, {} command for device {} rejected", request.type(), deviceId);
+                    throw new RejectedExecutionException("Device command queue is full");
+                }
+                pending = new PendingDevice();
+                shard.pending.put(deviceId, pending);
+            }
+            commands.put(command.id(), command); // ожидающие команды ограничены max-pending-per-shard
+            if (command.type() == DeviceCommandType.SET_MODE) {
+                superseded = pending.modeCommandId;
+                pending.modeCommandId = command.id();
+                pending.modeId = modeId;
+            }
+            else {
+                superseded = pending.activeCommandId;
+                pending.activeCommandId = command.id();
+                pending.active = command.type() == DeviceCommandType.TURN_ON;
+            }
+            if (!shard.scheduled) {
+                shard.scheduled = true;
+                schedule = true;
+            }
+        }
+        if (superseded != null) {
+            complete(superseded, DeviceCommandStatus.SUPERSEDED, command.id());
+        }
+        evictFinished();
+        if (schedule) {
+            executor.execute(() -> drain(shard));
+        }
+        logger.debug("Device command {} ({}) for device {} queued by {}", command.id(), command.type(), deviceId, requestedBy);
+        return command;
+    }
+
+    // Команда видна только пользователю, который её отправил.
+    // null - команды нет: неизвестный Id, чужая команда или статус уже удалён (retention-minutes, max-tracked)
+    public DeviceCommandDto getCommand(String commandId) {
+        DeviceCommandDto command = commands.get(commandId);
+        String currentUser = SecurityContextHolder.getContext().getAuthentication().getName();
+        if (command == null || !command.requestedBy().equals(currentUser)) {
+            return null;
+        }
+        return command;
+    }
+
+    // Разбор шарда порциями по batchSize устройств. Команды, пришедшие во время записи, попадают в следующую порцию
+    private void drain(Shard shard) {
+        Map<Long, PendingDevice> batch = new LinkedHashMap<>();
+        synchronized (shard) {
+            Iterator<Map.Entry<Long, PendingDevice>> iterator = shard.pending.entrySet().iterator();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                Map.Entry<Long, PendingDevice> entry = iterator.next();
+                batch.put(entry.getKey(), entry.getValue());
+                iterator.remove();
+            }
+        }
+        try {
+            writeIsolated(batch);
+        } finally {
+            boolean more;
+            synchronized (shard) {
+                more = !shard.pending.isEmpty();
+                shard.scheduled = more;
+            }
+            if (more) {
+                executor.execute(() -> drain(shard));
+            }
+        }
+    }
+
+    // Ошибка данных одного устройства (NonTransientDataAccessException, например нарушение ограничения)
+    // откатывает всю транзакцию пачки. Такая пачка делится пополам и записывается заново, пока ошибка
+    // не сузится до одного устройства: FAILED получают только его команды, остальные применяются за O(log n)
+    // лишних транзакций на каждое сбойное устройство. Прочие ошибки (БД недоступна, блокировки) повтором
+    // по частям не исправить, их получает вся пачка
+    private void writeIsolated(Map<Long, PendingDevice> batch) {
+        try {
+            write(batch);
+        } catch (Exception e) {
+            if (batch.size() == 1 || !(e instanceof NonTransientDataAccessException)) {
+                logger.warn("Device command batch of {} devices failed: {}", batch.size(), e.getMessage(), e);
+                batch.values().forEach(pending -> pending.commandIds().forEach(id -> complete(id, DeviceCommandStatus.FAILED, e.getMessage())));
+                return;
+            }
+            logger.debug("Device command batch of {} devices failed, retrying in halves: {}", batch.size(), e.getMessage());
+            Map<Long, PendingDevice> first = new LinkedHashMap<>();
+            Map<Long, PendingDevice> second = new LinkedHashMap<>();
+            batch.forEach((deviceId, pending) -> (first.size() < batch.size() / 2 ? first : second).put(deviceId, pending));
+            writeIsolated(first);
+            writeIsolated(second);
+        }
+    }
+
+    private void write(Map<Long, PendingDevice> batch) {
+        Set<Long> modeIds = new HashSet<>();
+        batch.values().forEach(pending -> {
+            if (pending.modeId != null) {
+                modeIds.add(pending.modeId);
+            }
+        });
+        Map<Long, Mode> modes = modeRepository.findAllById(modeIds).stream()
+            .collect(Collectors.toMap(Mode::getId, Function.identity()));
+
+        Map<Long, Boolean> activeById = new HashMap<>();
+        Map<Long, Mode> modeById = new HashMap<>();
+        batch.forEach((deviceId, pending) -> {
+            if (pending.activeCommandId != null) {
+                activeById.put(deviceId, pending.active);
+            }
+            if (pending.modeCommandId != null) {
+                Mode mode = modes.get(pending.modeId);
+                if (mode != null) {
+                    modeById.put(deviceId, mode);
+                }
+                else {
+                    complete(pending.modeCommandId, DeviceCommandStatus.FAILED, "Mode not found with id: " + pending.modeId);
+                }
+            }
+        });
+
+        BulkCommandResultDto result = bulkCommandExecutor.applyCommandBatch(activeById, modeById);
+        Set<Long> existing = new HashSet<>(result.changedIds());
+        existing.addAll(result.unchangedIds());
+        batch.forEach((deviceId, pending) -> {
+            boolean found = existing.contains(deviceId);
+            if (pending.activeCommandId != null) {
+                complete(pending.activeCommandId, found ? DeviceCommandStatus.APPLIED : DeviceCommandStatus.FAILED,
+                    found ? null : "Device not found with id: " + deviceId);
+            }
+            if (pending.modeCommandId != null && modeById.containsKey(deviceId)) {
+                complete(pending.modeCommandId, found ? DeviceCommandStatus.APPLIED : DeviceCommandStatus.FAILED,
+                    found ? null : "Device not found with id: " + deviceId);
+            }
+        });
+        logger.debug("Device command batch written: {} devices, {} changed", batch.size(), result.changedIds().size());
+    }
+
+    private void complete(String commandId, DeviceCommandStatus status, String error) {
+        boolean[] completed = new boolean[1];
+        commands.computeIfPresent(commandId, (id, command) -> {
+            if (command.status() != DeviceCommandStatus.QUEUED) {
+                return command;
+            }
+            completed[0] = true;
+            return command.withStatus(status, error);
+        });
+        if (completed[0]) {
+            finishedIds.add(commandId);
+        }
+    }
+
+    // Ожидающие команды не удаляются: их число и так ограничено размером шардов
+    private void evictFinished() {
+        while (commands.size() > maxTracked) {
+            String id = finishedIds.poll();
+            if (id == null) {
+                return;
+            }
+            commands.remove(id);
+        }
+    }
+
+    // Завершённые команды хранятся для запроса статуса device-commands.retention-minutes.
+    // Очередь finishedIds упорядочена по времени завершения, поэтому просматривается только её начало
+    @Scheduled(fixedDelayString = "${device-commands.cleanup-interval-ms}")
+    public void deleteExpiredCommands() {
+        LocalDateTime expiration = LocalDateTime.now().minusMinutes(retentionMinutes);
+        for (String id = finishedIds.peek(); id != null; id = finishedIds.peek()) {
+            DeviceCommandDto command = commands.get(id);
+            if (command != null && command.finishedAt().isAfter(expiration)) {
+                return;
+            }
+            if (finishedIds.remove(id)) {
+                commands.remove(id);
+            }
+        }
+    }
+
+    private static final class Shard {
+        private final Map<Long, PendingDevice> pending = new LinkedHashMap<>(); // доступ только под shard
+        private boolean scheduled; // задача разбора шарда поставлена или выполняется
+    }
+
+    // Последние значения, ожидающие записи; вкл/выкл и режим заменяются независимо друг от друга
+    private static final class PendingDevice {
+        private String activeCommandId;
+        private boolean active;
+        private String modeCommandId;
+        private Long modeId;
+
+        List<String> commandIds() {
+            List<String> ids = new ArrayList<>(2);
+            if (activeCommandId != null) {
+                ids.add(activeCommandId);
+            }
+            if (modeCommandId != null) {
+                ids.add(modeCommandId);
+            }
+            return ids;
+        }
+    }
+}
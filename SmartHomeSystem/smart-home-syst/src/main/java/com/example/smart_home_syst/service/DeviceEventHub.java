@@ -0,0 +1,215 @@
+package com.example.smart_home_syst.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.smart_home_syst.enumerator.DeviceChangeType;
+import com.example.smart_home_syst.enumerator.DeviceType;
+import com.example.smart_home_syst.event.DeviceChangedEvent;
+
+import jakarta.annotation.PreDestroy;
+
+// Рассылка изменений устройств подписчикам SSE вместо периодического опроса /devices.
+// У каждого подписчика своя ограниченная очередь: поток, закоммитивший изменение, только кладет событие
+// в очереди, а отправкой занимается небольшой пул. Пока событие устройства ждёт отправки, следующие изменения
+// того же устройства сливаются с ним (состояние до первого и после последнего), поэтому очередь растёт с числом
+// устройств, а не изменений. Если в очереди больше queueCapacity устройств (массовое изменение, медленный клиент),
+// она заменяется одним событием RELOAD - клиент перечитает список, а не будет отключен
+@Service
+public class DeviceEventHub {
+    private static final Object HEARTBEAT = new Object();
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders;
+    private final int queueCapacity;
+    private final int maxSubscribers;
+    private final long timeoutMs;
+    private static final Logger logger = LoggerFactory.getLogger(DeviceEventHub.class);
+
+    public DeviceEventHub(@Value("${events.sse.queue-capacity}") int queueCapacity,
+                          @Value("${events.sse.max-subscribers}") int maxSubscribers,
+                          @Value("${events.sse.timeout}") Duration timeout,
+                          @Value("${events.sse.sender-threads}") int senderThreads) {
+        this.queueCapacity = queueCapacity;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMs = timeout.toMillis();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "device-events-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    // RejectedExecutionException - достигнут предел подписчиков
+    public SseEmitter subscribe(Long roomId, DeviceType type) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new RejectedExecutionException("Too many event subscribers");
+        }
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMs), roomId, type);
+        subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onTimeout(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        logger.debug("Device events subscriber added (room {}, type {}), {} active", roomId, type, subscribers.size());
+        return subscriber.emitter;
+    }
+
+    // После коммита: подписчики не должны увидеть изменение, которое потом откатится
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        for (Subscriber subscriber : subscribers) {
+            if (event.concerns(subscriber.roomId, subscriber.type)) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    // Комментарий SSE раз в интервал: держит соединение через прокси и выявляет закрытые клиентом подключения
+    @Scheduled(fixedDelayString = "${events.sse.heartbeat-ms}")
+    public void heartbeat() {
+        subscribers.forEach(Subscriber::ping);
+    }
+
+    // Несколько неотправленных изменений устройства сводятся в одно; null - устройство создано и удалено,
+    // подписчику нечего сообщать
+    static DeviceChangedEvent merge(DeviceChangedEvent first, DeviceChangedEvent last) {
+        if (first.change() == DeviceChangeType.CREATED) {
+            return last.change() == DeviceChangeType.DELETED ? null : DeviceChangedEvent.created(last.after());
+        }
+        if (last.change() == DeviceChangeType.DELETED) {
+            return DeviceChangedEvent.deleted(first.before());
+        }
+        return DeviceChangedEvent.updated(first.before(), last.after());
+    }
+
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final Long roomId;
+        private final DeviceType type;
+        private final Map<Long, DeviceChangedEvent> pending = new LinkedHashMap<>(); // Id устройства -> событие, под this
+        private boolean reload; // под this
+        private boolean heartbeat; // под this
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+
+        Subscriber(SseEmitter emitter, Long roomId, DeviceType type) {
+            this.emitter = emitter;
+            this.roomId = roomId;
+            this.type = type;
+        }
+
+        void offer(DeviceChangedEvent event) {
+            synchronized (this) {
+                if (event.change() == DeviceChangeType.RELOAD) {
+                    pending.clear(); // клиент перечитает список, прежние изменения в нём уже есть
+                    reload = true;
+                }
+                else {
+                    DeviceChangedEvent queued = pending.get(event.deviceId());
+                    DeviceChangedEvent merged = queued != null ? merge(queued, event) : event;
+                    if (merged == null) {
+                        pending.remove(event.deviceId());
+                    }
+                    else {
+                        pending.put(event.deviceId(), merged); // слитое событие остаётся на месте первого
+                    }
+                    if (pending.size() > queueCapacity) {
+                        logger.debug("Device events subscriber has {} devices queued, replaced with reload", pending.size());
+                        pending.clear();
+                        reload = true;
+                    }
+                }
+            }
+            schedule();
+        }
+
+        void ping() {
+            synchronized (this) {
+                heartbeat = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private synchronized Object poll() {
+            if (reload) {
+                reload = false;
+                return DeviceChangedEvent.reload();
+            }
+            if (heartbeat) {
+                heartbeat = false;
+                return HEARTBEAT;
+            }
+            Iterator<DeviceChangedEvent> iterator = pending.values().iterator();
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            DeviceChangedEvent event = iterator.next();
+            iterator.remove();
+            return event;
+        }
+
+        private synchronized boolean isEmpty() {
+            return !reload && !heartbeat && pending.isEmpty();
+        }
+
+        // Одновременно очередь подписчика разбирает не больше одного потока, порядок событий сохраняется
+        private void drain() {
+            do {
+                Object item;
+                while ((item = poll()) != null) {
+                    try {
+                        if (item == HEARTBEAT) {
+                            emitter.send(SseEmitter.event().comment("ping"));
+                        }
+                        else {
+                            emitter.send(SseEmitter.event().name("device").data(item, MediaType.APPLICATION_JSON));
+                        }
+                    } catch (IOException | IllegalStateException e) { // клиент отключился или эмиттер уже завершен
+                        close();
+                        return;
+                    }
+                }
+                draining.set(false);
+            } while (!isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private void close() {
+            subscribers.remove(this);
+            synchronized (this) {
+                pending.clear();
+            }
+            emitter.complete();
+        }
+    }
+}
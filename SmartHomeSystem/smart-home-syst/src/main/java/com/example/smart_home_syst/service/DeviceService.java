@@ -1,7 +1,8 @@
 package com.example.smart_home_syst.service;
 
 
-import java.io.InputStream;
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -9,30 +10,46 @@ import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.smart_home_syst.dto.BulkCommandResultDto;
+import com.example.smart_home_syst.dto.CursorPageDto;
 import com.example.smart_home_syst.dto.DeviceDto;
-import com.example.smart_home_syst.dto.DeviceListImportDto;
 import com.example.smart_home_syst.dto.DeviceReportDto;
+import com.example.smart_home_syst.dto.DeviceSnapshot;
+import com.example.smart_home_syst.dto.ImportResultDto;
 import com.example.smart_home_syst.enumerator.DeviceType;
+import com.example.smart_home_syst.event.DeviceChangedEvent;
 import com.example.smart_home_syst.exception.ResourceNotFoundException;
 import com.example.smart_home_syst.fileSettings.DevicesExportWrapper;
+import com.example.smart_home_syst.fileSettings.XmlExportWriter;
+import com.example.smart_home_syst.fileSettings.XmlRecordReader;
 import com.example.smart_home_syst.model.Device;
 import com.example.smart_home_syst.model.Mode;
 import com.example.smart_home_syst.model.Room;
@@ -40,9 +57,14 @@ import com.example.smart_home_syst.repository.DeviceRepository;
 import com.example.smart_home_syst.repository.ModeRepository;
 import com.example.smart_home_syst.repository.RoomRepository;
 import com.example.smart_home_syst.specifications.DeviceSpecifications;
+import com.example.smart_home_syst.util.IndexedListCache;
+import com.example.smart_home_syst.util.NdjsonWriter;
+import com.example.smart_home_syst.util.KeysetPager;
+import com.example.smart_home_syst.util.TrigramIndex;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 
-import net.sf.jasperreports.engine.JasperCompileManager;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import net.sf.jasperreports.engine.JasperExportManager;
 import net.sf.jasperreports.engine.JasperFillManager;
 import net.sf.jasperreports.engine.JasperPrint;
@@ -54,24 +76,38 @@ public class DeviceService {
     private final DeviceRepository deviceRepository;
     private final ModeRepository modeRepository;
     private final RoomRepository roomRepository;
+    private final DeviceBulkCommandExecutor bulkCommandExecutor;
+    private final IndexedListCache<DeviceSnapshot> deviceListCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private volatile TrigramIndex<DeviceSnapshot> titleIndex; // пересобирается, только когда меняются состав или названия устройств
     private static final Logger logger = LoggerFactory.getLogger(DeviceService.class);
+    private final ReportTemplateCache reportTemplateCache;
     private final XmlMapper xmlMapper = new XmlMapper();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${import.chunk-size}")
+    private int importChunkSize;
     
     @Value("${spring.servlet.multipart.location}")
     private String uploadLocation;
 
-    public DeviceService(DeviceRepository deviceRepository, ModeRepository modeRepository, RoomRepository roomRepository) {
+    public DeviceService(DeviceRepository deviceRepository, ModeRepository modeRepository, RoomRepository roomRepository, DeviceBulkCommandExecutor bulkCommandExecutor, IndexedListCache<DeviceSnapshot> deviceListCache, ReportTemplateCache reportTemplateCache, ApplicationEventPublisher eventPublisher) {
         this.deviceRepository = deviceRepository;
         this.modeRepository = modeRepository;
         this.roomRepository = roomRepository;
+        this.bulkCommandExecutor = bulkCommandExecutor;
+        this.deviceListCache = deviceListCache;
+        this.reportTemplateCache = reportTemplateCache;
+        this.eventPublisher = eventPublisher;
         xmlMapper.enable(com.fasterxml.jackson.databind.SerializationFeature.INDENT_OUTPUT);
     }
 
     @Transactional(readOnly = true)
-    @Cacheable(value="devices", key="#root.methodName")
-    public List<Device> getAll() {
+    public List<DeviceSnapshot> getAll() {
         logger.debug("Get all devices");
-        return deviceRepository.findAll();
+        return deviceListCache.getAll(deviceRepository::findAllSnapshots);
     }
 
     public List<Device> getAllByTitle(String title) {
@@ -81,22 +117,20 @@ public class DeviceService {
 
     @Transactional(readOnly = true)
     @Cacheable(value="device", key="#id")
-    public Device getById(Long id) {
+    public DeviceSnapshot getById(Long id) {
         logger.debug("Get device with id: {}", id);
-        return deviceRepository.findById(id).orElse(null);
+        return deviceRepository.findById(id).map(DeviceSnapshot::from).orElse(null);
     }
 
-    @Caching(evict = {
-        @CacheEvict(value="devices", allEntries=true),
-        @CacheEvict(value="device", key="#id")
-    })
+    @CachePut(value="device", key="#id")
     @Transactional
-    public Device update(Long id, DeviceDto deviceDto) {
+    public DeviceSnapshot update(Long id, DeviceDto deviceDto) {
         logger.info("Start Update device operation");
         Device existingDevice = deviceRepository.findById(id).orElseThrow(() -> {
             logger.warn("Device not found with id: {}", id);
             return new ResourceNotFoundException("Device not found with id: " + id);
         });
+        DeviceSnapshot before = DeviceSnapshot.from(existingDevice);
         existingDevice.setTitle(deviceDto.title());
         existingDevice.setType(deviceDto.type());
         existingDevice.setPower(deviceDto.power());
@@ -113,37 +147,33 @@ public class DeviceService {
             existingDevice.setMode(mode);
         }
         
-        if (deviceDto.roomId() != null) {
-            Room room = roomRepository.findById(deviceDto.roomId()).orElseThrow(() -> {
-                logger.warn("Room not found with id: {}", id);
-                return new ResourceNotFoundException("Room not found with id: " + id);
-            });
-            if (room.getDevices().size() < room.getCapacity() || deviceDto.roomId() == getById(id).getRoomId()) { // проверка того, что количество устройств в комнате < вместимости, или того, что устройство остаётся в комнате
-                //if (deviceDto.roomId() == getById(id).getRoomId()) {System.out.println("Устройство на месте");}
-                existingDevice.setRoom(room);
-                logger.debug("Devices in Room {} less than room capacity {}. Device added", room.getId(), room.getCapacity());
-            }
-            else {
-                existingDevice.setRoom(null);
-                logger.debug("Too many devices in Room {} (room capacity {}). Set null room in device", room.getId(), room.getCapacity());
-            }
+        if (deviceDto.roomId() != null && !moveToRoom(existingDevice, deviceDto.roomId())) {
+            logger.warn("Room not found with id: {}", deviceDto.roomId());
+            throw new ResourceNotFoundException("Room not found with id: " + deviceDto.roomId());
         }
         
-        deviceRepository.save(existingDevice);
+        deviceRepository.saveAndFlush(existingDevice); // после flush снимок получает новую версию
+        DeviceSnapshot snapshot = DeviceSnapshot.from(existingDevice);
+        deviceListCache.put(snapshot);
+        eventPublisher.publishEvent(DeviceChangedEvent.updated(before, snapshot));
         logger.info("Update comleted successfully for Device {}", id);
-        return existingDevice;
+        return snapshot;
     }
 
-    @Caching(evict = {
-        @CacheEvict(value="devices", allEntries=true),
-        @CacheEvict(value="device", key="#id")
-    })
+    @CacheEvict(value="device", key="#id")
     @Transactional
     public boolean deleteById(Long id) {
         logger.info("Start Delete device operation");
         logger.debug("Try to find device with Id {}", id);
-        if (deviceRepository.existsById(id)) {
-            deviceRepository.deleteById(id);
+        Device device = deviceRepository.findById(id).orElse(null);
+        if (device != null) {
+            DeviceSnapshot snapshot = DeviceSnapshot.from(device);
+            if (device.getRoomId() != null) {
+                roomRepository.releaseSlot(device.getRoomId());
+            }
+            deviceRepository.delete(device);
+            deviceListCache.remove(id);
+            eventPublisher.publishEvent(DeviceChangedEvent.deleted(snapshot));
             logger.info("Delete device with Id {} completed successfully", id);
             return true;
         }
@@ -152,8 +182,8 @@ public class DeviceService {
     }
 
     @Transactional
-    @CacheEvict(value="devices", allEntries=true)
-    public Device create (DeviceDto deviceDto) {
+    @CachePut(value="device", key="#result.id")
+    public DeviceSnapshot create (DeviceDto deviceDto) {
         logger.info("Start Create device operation");
         Device device = new Device();
         device.setTitle(deviceDto.title());
@@ -179,88 +209,121 @@ public class DeviceService {
         }
         
         if (deviceDto.roomId() != null) {
-            Room room = roomRepository.findById(deviceDto.roomId()).orElseThrow(() -> {
+            if (!moveToRoom(device, deviceDto.roomId())) {
                 logger.warn("Room not found with id: {}", deviceDto.roomId());
-                return new ResourceNotFoundException("Room not found with id: " + deviceDto.roomId());
-            });
-            if (room.getDevices().size() < room.getCapacity()) {
-                device.setRoom(room);
-                logger.debug("Devices in Room {} less than room capacity {}. Device added", room.getId(), room.getCapacity());
-            }
-            else {
-                logger.debug("Too many devices in Room {} (room capacity {}). Set null room in device", room.getId(), room.getCapacity());
+                throw new ResourceNotFoundException("Room not found with id: " + deviceDto.roomId());
             }
         }
         else {
             device.setRoom(null);
         }
         deviceRepository.save(device);
+        DeviceSnapshot snapshot = DeviceSnapshot.from(device);
+        deviceListCache.put(snapshot);
+        eventPublisher.publishEvent(DeviceChangedEvent.created(snapshot));
         logger.info("Device with Id {} successfully created", device.getId());
-        return device;
+        return snapshot;
+    }
+
+    // Если список устройств уже в кэше, фильтр считается в памяти по индексу триграмм названий,
+    // иначе запрос идёт в БД, где поиск по подстроке обслуживает GIN-индекс pg_trgm.
+    // Оба пути ищут подстроку одинаково (LikePatterns) и в памяти сортируют только по id, поэтому ответ не зависит
+    // от того, загружен ли кэш. Сортировка по title выполняется в БД: порядок строк задает её collation
+    public Page<DeviceSnapshot> getByFilter (String title, Double min_power, Double max_power, Boolean activity, DeviceType type, Pageable pageable) {
+        List<DeviceSnapshot> cached = deviceListCache.peek();
+        Comparator<DeviceSnapshot> order = snapshotOrder(pageable.getSort());
+        if (cached == null || order == null) {
+            return deviceRepository.findAll(DeviceSpecifications.filter(title, min_power, max_power, activity, type), pageable)
+                .map(DeviceSnapshot::from);
+        }
+
+        List<DeviceSnapshot> matches = titleIndexFor(cached).search(title, cached).stream()
+            .filter(device -> min_power == null || (device.power() != null && device.power() >= min_power))
+            .filter(device -> max_power == null || (device.power() != null && device.power() <= max_power))
+            .filter(device -> activity == null || device.active() == activity)
+            .filter(device -> type == null || device.type() == type)
+            .sorted(order)
+            .toList();
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(matches, pageable, matches.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        int to = Math.min(from + pageable.getPageSize(), matches.size());
+        return new PageImpl<>(matches.subList(from, to), pageable, matches.size());
+    }
+
+    // Переключения устройств не меняют названий, и индекс остаётся прежним; после создания, переименования
+    // или удаления устройства он строится заново
+    private TrigramIndex<DeviceSnapshot> titleIndexFor(List<DeviceSnapshot> devices) {
+        long keyVersion = deviceListCache.keyVersion(devices);
+        TrigramIndex<DeviceSnapshot> index = titleIndex;
+        if (index == null || !index.isBuiltFor(keyVersion)) {
+            index = new TrigramIndex<>(devices, DeviceSnapshot::title, keyVersion);
+            titleIndex = index;
+        }
+        return index;
     }
 
-    public Page<Device> getByFilter (String title, Double min_power, Double max_power, Boolean activity, DeviceType type, Pageable pageable) {
-        return deviceRepository.findAll(DeviceSpecifications.filter(title, min_power, max_power, activity, type), pageable);
+    // В памяти поддерживается сортировка только по id, для остальных полей фильтр выполняет БД
+    private static Comparator<DeviceSnapshot> snapshotOrder(Sort sort) {
+        Comparator<DeviceSnapshot> order = Comparator.comparing(DeviceSnapshot::id);
+        for (Sort.Order sortOrder : sort) {
+            if (!"id".equals(sortOrder.getProperty())) {
+                return null;
+            }
+            order = sortOrder.isDescending() ? Comparator.comparing(DeviceSnapshot::id).reversed() : Comparator.comparing(DeviceSnapshot::id);
+        }
+        return order;
+    }
+
+    // Курсорная пагинация: глубокие страницы стоят столько же, сколько первая
+    @Transactional(readOnly = true)
+    public CursorPageDto<DeviceSnapshot> getByFilterCursor(String title, Double min_power, Double max_power, Boolean activity, DeviceType type,
+            String sort, String cursor, int size, boolean withTotal) {
+        return KeysetPager.fetch(deviceRepository, DeviceSpecifications.filter(title, min_power, max_power, activity, type),
+            sort, cursor, size, withTotal, Device::getId, Device::getTitle, DeviceSnapshot::from);
     }
 
     @Transactional
-    @CacheEvict(value="devices", allEntries=true)
-    public List<Device> turnOnDevicesWithType(DeviceType type) {
+    public BulkCommandResultDto turnOnDevicesWithType(DeviceType type) {
         logger.info("Start 'Turn on devices with same type' operation");
-        List<Device> device_to_change = deviceRepository.findAllByType(type);
-        logger.debug("Founded {} devices with type {}", device_to_change.size(), type);
-        for (Device dev : device_to_change) {
-            dev.setActive(true);
-            deviceRepository.save(dev);
-        }
-        logger.info("All devices activity with type {} was changed to true", type);
-        return device_to_change;
+        BulkCommandResultDto result = bulkCommandExecutor.setActiveForType(type, true);
+        logger.info("All devices activity with type {} was changed to true ({} changed)", type, result.changedIds().size());
+        return result;
     }
     @Transactional
-    @CacheEvict(value="devices", allEntries=true)
-    public List<Device> turnOffDevicesWithType(DeviceType type) {
+    public BulkCommandResultDto turnOffDevicesWithType(DeviceType type) {
         logger.info("Start 'Turn off devices with same type' operation");
-        List<Device> device_to_change = deviceRepository.findAllByType(type);
-        logger.debug("Founded {} devices with type {}", device_to_change.size(), type);
-        for (Device dev : device_to_change) {
-            dev.setActive(false);
-            deviceRepository.save(dev);
-        }
-        logger.info("All devices activity with type {} was changed to false", type);
-        return device_to_change;
+        BulkCommandResultDto result = bulkCommandExecutor.setActiveForType(type, false);
+        logger.info("All devices activity with type {} was changed to false ({} changed)", type, result.changedIds().size());
+        return result;
     }
 
-    private DevicesExportWrapper createExportWrapper(List<Device> devices) {
-        List<DeviceDto> devicesDto_to_export = devices.stream()
-            .map(device -> new DeviceDto(
-                device.getTitle(),
-                device.getType(),
-                device.getPower(),
-                device.isActive(),
-                device.getMode().getId(),
-                device.getRoom().getId()
-            ))
-            .toList();
-        
-        DevicesExportWrapper wrapper = new DevicesExportWrapper();
-        wrapper.setDevices(devicesDto_to_export);
-        wrapper.setTotalCount(devicesDto_to_export.size());
-        return wrapper;
+    // NDJSON по одной записи на строку: при загруженном кэше списка читается он, иначе поток из БД с fetch size
+    @Transactional(readOnly = true)
+    public long writeDevicesNdjson(OutputStream out, Set<String> fields) {
+        List<DeviceSnapshot> cached = deviceListCache.peek();
+        try (Stream<DeviceSnapshot> devices = cached != null ? cached.stream() : deviceRepository.streamAllSnapshots()) {
+            long written = NdjsonWriter.write(out, devices, fields);
+            logger.debug("NDJSON stream finished, {} devices written", written);
+            return written;
+        } catch (Exception e) {
+            logger.warn("NDJSON streaming error: {}", e.getMessage());
+            throw new RuntimeException("Error of NDJSON streaming", e);
+        }
     }
 
+    // Потоковая запись: DTO читаются из БД порциями и сразу пишутся в поток, память не зависит от числа записей
     @Transactional(readOnly = true)
-    public String exportDevicesListToXmlString() {
-        logger.info("Start device exporting to string operation");
-
-        List<Device> devices_to_export = deviceRepository.findAll();
-        logger.debug("{} devices was founded", devices_to_export.size());
-        
-        DevicesExportWrapper wrapper = createExportWrapper(devices_to_export);
-        
-        try {
-            String xml = xmlMapper.writeValueAsString(wrapper);
-            logger.debug("XML export to string successfully finished");
-            return xml;
+    public long writeDevicesXml(OutputStream out) {
+        logger.info("Start device exporting to stream operation");
+
+        long totalCount = deviceRepository.count();
+        try (Stream<DeviceDto> devices_to_export = deviceRepository.streamAllForExport()) {
+            long written = XmlExportWriter.write(xmlMapper, out, "SmartHomeSystem-Devices", "device",
+                totalCount, new DevicesExportWrapper.SystemInfo(), devices_to_export);
+            logger.debug("XML export to stream successfully finished, {} devices written", written);
+            return written;
         } catch (Exception e) {
             logger.warn("Formating to XML error: {}", e.getMessage(), e);
             throw new RuntimeException("Error of export to XML", e);
@@ -268,7 +331,7 @@ public class DeviceService {
     }
 
     @Transactional(readOnly=true)
-    public String exportDevicesListToXmlFile(String pathToFile, String fileName) {
+    public Path exportDevicesListToXmlFile(String pathToFile, String fileName) {
         logger.info("Start device exporting to file operation");
 
         try {
@@ -278,13 +341,12 @@ public class DeviceService {
             Path filePath = fileDir.resolve(fileName + ".xml"); // Соединяем путь и имя файла
             logger.debug("Full path to file created: {}", filePath);
 
-            String xml = exportDevicesListToXmlString();
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(filePath))) {
+                writeDevicesXml(out);
+            }
 
-            logger.debug("Try to write XML string to file: {}", filePath);
-            Files.writeString(filePath, xml);
-            
             logger.info("Devices data successfully exported to XML file {}", filePath);
-            return xml;
+            return filePath;
         }
         catch (Exception e) {
             logger.warn("Export to file error: {}", e.getMessage(), e);
@@ -305,9 +367,169 @@ public class DeviceService {
         }
     }
 
+    // Импорт порции устройств: связанные записи загружаются заранее несколькими IN запросами,
+    // вставки и обновления определяются в памяти и записываются одним сбросом пачками JDBC
+    private ImportResultDto importDeviceChunk(List<DeviceDto> items) {
+        Set<String> titles = new HashSet<>();
+        Set<Long> modeIds = new HashSet<>();
+        Set<Long> roomIds = new HashSet<>();
+        for (DeviceDto item : items) {
+            if (item.title() != null) titles.add(item.title());
+            if (item.modeId() != null) modeIds.add(item.modeId());
+            if (item.roomId() != null) roomIds.add(item.roomId());
+        }
+
+        Map<String, Device> devicesByTitle = new HashMap<>();
+        deviceRepository.findAllByTitleIn(titles).forEach(device -> devicesByTitle.put(device.getTitle(), device));
+        Map<Long, Mode> modesById = modeRepository.findAllById(modeIds).stream()
+            .collect(Collectors.toMap(Mode::getId, Function.identity()));
+        Map<Long, Room> roomsById = roomRepository.findAllById(roomIds).stream()
+            .collect(Collectors.toMap(Room::getId, Function.identity()));
+        logger.debug("Preloaded {} devices, {} modes, {} rooms for import", devicesByTitle.size(), modesById.size(), roomsById.size());
+
+        List<Device> devicesToCreate = new ArrayList<>();
+        Map<String, Long> roomMoves = new LinkedHashMap<>(); // название устройства -> комната, в которую оно переносится
+        List<String> failedTitles = new ArrayList<>();
+        int created = 0;
+        int updated = 0;
+        for (DeviceDto item : items) {
+            if (item.title() == null || item.title().isBlank() || item.title().length() > 150) {
+                logger.warn("Error to add Device {} to DB: wrong title", item.title());
+                failedTitles.add(item.title());
+                continue;
+            }
+            Mode mode = item.modeId() != null ? modesById.get(item.modeId()) : null;
+            Room room = item.roomId() != null ? roomsById.get(item.roomId()) : null;
+            if ((item.modeId() != null && mode == null) || (item.roomId() != null && room == null)) {
+                logger.warn("Error to add Device {} to DB: mode {} or room {} not found", item.title(), item.modeId(), item.roomId());
+                failedTitles.add(item.title());
+                continue;
+            }
+
+            Device device = devicesByTitle.get(item.title());
+            boolean isNew = device == null;
+            if (isNew) {
+                device = new Device();
+                device.setTitle(item.title());
+                device.setActive(false);
+            }
+            device.setType(item.type());
+            device.setPower(item.power());
+            if (item.active() != null) {
+                device.setActive(item.active()); // т.к. у Dto нет isActive
+            }
+            if (mode != null) {
+                device.setMode(mode);
+            }
+            if (room != null) {
+                if (room.getId().equals(device.getRoomId())) {
+                    roomMoves.remove(item.title()); // повтор названия вернул устройство в текущую комнату
+                }
+                else {
+                    roomMoves.put(item.title(), room.getId());
+                }
+            }
+
+            if (isNew) {
+                devicesToCreate.add(device);
+                devicesByTitle.put(device.getTitle(), device); // повтор названия в файле обновит это же устройство
+                created++;
+                logger.debug("Device imported to DB: {}", item.title());
+            }
+            else {
+                updated++;
+                logger.debug("Device updated in DB: {}", item.title());
+            }
+        }
+
+        moveToRooms(roomMoves, devicesByTitle);
+
+        // Измененные существующие устройства сохраняются при сбросе контекста, новые - через saveAll
+        deviceRepository.saveAll(devicesToCreate);
+        deviceRepository.flush();
+        return new ImportResultDto(created, updated, failedTitles.size(), failedTitles);
+    }
+
+    // Перенос устройства в комнату. Место занимается атомарно (RoomRepository.tryReserveSlot) без загрузки
+    // списка устройств комнаты; если комната заполнена, устройство остаётся без комнаты.
+    // Место в прежней комнате освобождается. Обе строки комнат блокируются в порядке Id, как в moveToRooms:
+    // встречные переносы A -> B и B -> A не ведут к взаимоблокировке. false - комнаты с таким Id нет
+    // (вызывающий бросает исключение, и освобождение прежнего места откатывается)
+    private boolean moveToRoom(Device device, Long roomId) {
+        Long currentRoomId = device.getRoomId();
+        if (roomId.equals(currentRoomId)) {
+            return true; // устройство остаётся в комнате
+        }
+        boolean releaseFirst = currentRoomId != null && currentRoomId < roomId;
+        if (releaseFirst) {
+            roomRepository.releaseSlot(currentRoomId);
+        }
+        boolean reserved = roomRepository.tryReserveSlot(roomId) == 1;
+        if (!reserved && !roomRepository.existsById(roomId)) {
+            return false;
+        }
+        if (currentRoomId != null && !releaseFirst) {
+            roomRepository.releaseSlot(currentRoomId);
+        }
+        if (reserved) {
+            device.setRoom(roomRepository.getReferenceById(roomId));
+            logger.debug("Room {} has free capacity. Device added", roomId);
+        }
+        else {
+            device.setRoom(null);
+            logger.debug("Room {} is full. Set null room in device", roomId);
+        }
+        return true;
+    }
+
+    // Перенос порции импорта по комнатам: места занимаются одним UPDATE на комнату (deviceCount + n <= capacity),
+    // а не по одному на устройство, и комнаты блокируются в порядке Id, как и в других массовых операциях,
+    // поэтому параллельный импорт не приводит к взаимоблокировке. Если все устройства в комнату не помещаются,
+    // места занимают первые по порядку в файле, остальные остаются без комнаты, как и при переносе по одному
+    private void moveToRooms(Map<String, Long> roomMoves, Map<String, Device> devicesByTitle) {
+        if (roomMoves.isEmpty()) {
+            return;
+        }
+        Map<Long, List<Device>> arriving = new TreeMap<>();
+        Map<Long, Integer> leaving = new HashMap<>();
+        roomMoves.forEach((title, roomId) -> {
+            Device device = devicesByTitle.get(title);
+            arriving.computeIfAbsent(roomId, id -> new ArrayList<>()).add(device);
+            if (device.getRoomId() != null) {
+                leaving.merge(device.getRoomId(), 1, Integer::sum);
+            }
+        });
+        Set<Long> roomIds = new TreeSet<>(arriving.keySet());
+        roomIds.addAll(leaving.keySet());
+
+        for (Long roomId : roomIds) {
+            Integer released = leaving.get(roomId);
+            if (released != null) {
+                roomRepository.releaseSlots(roomId, released);
+            }
+            List<Device> devices = arriving.get(roomId);
+            if (devices == null) {
+                continue;
+            }
+            int granted = devices.size();
+            if (roomRepository.tryReserveSlots(roomId, granted) == 0) {
+                Integer free = roomRepository.lockFreeSlots(roomId);
+                granted = free != null ? Math.min(free, devices.size()) : 0;
+                if (granted > 0) {
+                    roomRepository.tryReserveSlots(roomId, granted);
+                }
+                logger.debug("Room {} is full: {} of {} imported devices added", roomId, granted, devices.size());
+            }
+            Room room = roomRepository.getReferenceById(roomId);
+            for (int i = 0; i < devices.size(); i++) {
+                devices.get(i).setRoom(i < granted ? room : null);
+            }
+        }
+    }
+
     @Transactional
-    @CacheEvict(value="devices", allEntries=true)
-    public List<Device> importDevicesListFromXmlFile(MultipartFile file) {
+    @CacheEvict(value="device", allEntries=true)
+    public ImportResultDto importDevicesListFromXmlFile(MultipartFile file) {
         logger.info("Start device importing from file operation");
         validateFile(file);
 
@@ -318,33 +540,20 @@ public class DeviceService {
             Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
             logger.info("File copied with path: {}", filePath);
 
-            try (InputStream fileByteStream = file.getInputStream()) {
-                DeviceListImportDto xmlDto = xmlMapper.readValue(fileByteStream, DeviceListImportDto.class);
-                List<DeviceDto> deviceToImport = xmlDto.getDevices();
-
-                List<Device> importedDevices = new ArrayList<>();
-
-                for (int i = 0; i < xmlDto.getDevices().size(); i++) {
-                    DeviceDto item = xmlDto.getDevices().get(i);
-                    List<Device> devicesWithSameName = deviceRepository.findAllByTitle(item.title());
-                    try {
-                        if (devicesWithSameName.size() == 0 || devicesWithSameName == null) {
-                            importedDevices.add(create(item));
-                            
-                            logger.debug("Device imported to DB: {}", item.title());
-                        }
-                        else {
-                            importedDevices.add(update(devicesWithSameName.get(0).getId(), item));
-                            
-                            logger.debug("Device updated in DB: {}", item.title());
-                        }
-                        
-                    } catch (Exception e) {
-                        logger.warn("Error to add Device {} to DB", item.title());
-                    }
+            // Сохраненный файл читается потоком порциями по importChunkSize записей
+            try (XmlRecordReader<DeviceDto> recordReader = new XmlRecordReader<>(xmlMapper, filePath, "device", DeviceDto.class)) {
+                deviceListCache.invalidate(); // после импорта список загрузится заново одним запросом
+                ImportResultDto result = ImportResultDto.empty();
+                List<DeviceDto> deviceChunk = recordReader.readChunk(importChunkSize);
+                while (!deviceChunk.isEmpty()) {
+                    result = result.plus(importDeviceChunk(deviceChunk));
+                    entityManager.clear(); // порция уже записана в БД, контекст персистентности не растет от порции к порции
+                    logger.info("Devices import progress: {} records processed (~{}% of file)", recordReader.getRecordsRead(), recordReader.getProgressPercent());
+                    deviceChunk = recordReader.readChunk(importChunkSize);
                 }
-                logger.info("Devices data successfully imported from XML file {}", filePath);
-                return importedDevices;
+                eventPublisher.publishEvent(DeviceChangedEvent.reload());
+                logger.info("Devices data successfully imported from XML file {}: {} created, {} updated, {} failed", filePath, result.created(), result.updated(), result.failed());
+                return result;
             }
             catch (Exception e) {
                 logger.warn("Error of opening XML file: {}", e.getMessage(), e);
@@ -357,24 +566,17 @@ public class DeviceService {
         }
     }
 
+    // PDF пишется сразу в поток (файл задания отчёта), без сборки всего документа в byte[].
+    // generatedBy передаётся явно, т.к. отчёт строится в потоке исполнителя без SecurityContext
     @Transactional(readOnly=true)
-    public byte[] generateDevicePdfReport() {
+    public void writeDevicePdfReport(OutputStream out, String generatedBy) {
         logger.info("Start device report creating");
         try {
-            InputStream templateStream = new ClassPathResource("reportPdfConfig/deviceReportConfig.jrxml").getInputStream(); // загрузка шаблона
-            logger.debug("Pdf template loaded");
-
-            JasperReport jasperReport = JasperCompileManager.compileReport(templateStream);
-            logger.debug("Pdf template compiled");
-
-            List<DeviceReportDto> reportData = deviceRepository.findAll().stream().map(device -> new DeviceReportDto(
-                device.getTitle(),
-                device.getType().toString(),
-                device.getPower(),
-                device.isActive(),
-                device.getRoom().getTitle(),
-                device.getMode().getTitle()
-            )).toList();
+            long start = System.nanoTime();
+            JasperReport jasperReport = reportTemplateCache.get(ReportTemplateCache.DEVICE_REPORT); // шаблон компилируется один раз
+            logger.debug("Pdf template taken from cache");
+
+            List<DeviceReportDto> reportData = deviceRepository.findReportRows();
             logger.debug("Data taken from DB and change to DeviceReportDto");
 
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(reportData);
@@ -382,14 +584,14 @@ public class DeviceService {
 
             Map<String, Object> parameters = new HashMap<>();
             parameters.put("reportTitle", "Report about devices of Smart Home System");
-            parameters.put("generatedBy", SecurityContextHolder.getContext().getAuthentication().getName());
+            parameters.put("generatedBy", generatedBy);
             logger.debug("Pdf parametrs entered");
 
             JasperPrint jasperPrint = JasperFillManager.fillReport(
                 jasperReport, parameters, dataSource);
             
-            logger.info("Devices data report successfully created");
-            return JasperExportManager.exportReportToPdf(jasperPrint);
+            JasperExportManager.exportReportToPdfStream(jasperPrint, out);
+            logger.info("Devices data report successfully created in {} ms", (System.nanoTime() - start) / 1_000_000);
         }
         catch (Exception e) {
             logger.warn("Device report creating error: {}", e.getMessage(), e);
@@ -0,0 +1,148 @@
+package com.example.smart_home_syst.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.smart_home_syst.dto.DeviceSnapshot;
+import com.example.smart_home_syst.dto.DeviceStatsDto;
+import com.example.smart_home_syst.dto.DeviceStatsOverviewDto;
+import com.example.smart_home_syst.dto.DeviceStatsRowDto;
+import com.example.smart_home_syst.enumerator.DeviceChangeType;
+import com.example.smart_home_syst.enumerator.DeviceType;
+import com.example.smart_home_syst.event.DeviceChangedEvent;
+import com.example.smart_home_syst.repository.DeviceRepository;
+
+// Текущая статистика устройств (количество, включённые, их суммарная мощность) по комнатам, типам и режимам.
+// Счетчики собираются одним GROUP BY при старте, дальше меняются на разницу before/after каждого
+// DeviceChangedEvent, поэтому ответ не зависит от числа устройств. LongAdder/DoubleAdder не создают
+// конкуренции между потоками, одновременно применяющими события. Периодическая пересборка убирает
+// возможное расхождение (событие, попавшее между запросом пересборки и заменой счетчиков)
+@Service
+public class DeviceStatsService {
+    private static final String NONE = "none";
+
+    private final DeviceRepository deviceRepository;
+    private volatile Counters counters = new Counters();
+    private static final Logger logger = LoggerFactory.getLogger(DeviceStatsService.class);
+
+    public DeviceStatsService(DeviceRepository deviceRepository) {
+        this.deviceRepository = deviceRepository;
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE) // при старте счетчики собираются раньше правил автоматизации, которые их читают
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${stats.rebuild.cron}")
+    public void rebuild() {
+        Counters rebuilt = new Counters();
+        for (DeviceStatsRowDto row : deviceRepository.findStatsRows()) {
+            rebuilt.add(key(row.roomId()), key(row.type()), key(row.modeId()),
+                row.deviceCount(), row.activeCount(), row.activePower() != null ? row.activePower() : 0.0);
+        }
+        counters = rebuilt;
+        logger.debug("Device statistics rebuilt: {} devices, {} active", rebuilt.total.deviceCount.sum(), rebuilt.total.activeCount.sum());
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE) // счетчики обновляются раньше остальных слушателей, которые их читают
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        if (event.change() == DeviceChangeType.RELOAD) {
+            rebuild();
+            return;
+        }
+        Counters current = counters;
+        apply(current, event.before(), -1);
+        apply(current, event.after(), 1);
+    }
+
+    private static void apply(Counters target, DeviceSnapshot device, int sign) {
+        if (device == null) {
+            return;
+        }
+        double power = device.active() && device.power() != null ? device.power() : 0.0;
+        target.add(key(device.roomId()), key(device.type()), key(device.modeId()),
+            sign, device.active() ? sign : 0, sign * power);
+    }
+
+    public DeviceStatsOverviewDto getOverview() {
+        Counters current = counters;
+        return new DeviceStatsOverviewDto(current.total.toDto(), toDto(current.byRoom), toDto(current.byType), toDto(current.byMode));
+    }
+
+    public DeviceStatsDto getRoomStats(Long roomId) {
+        return statsOf(counters.byRoom, key(roomId));
+    }
+
+    public DeviceStatsDto getModeStats(Long modeId) {
+        return statsOf(counters.byMode, key(modeId));
+    }
+
+    public DeviceStatsDto getTypeStats(DeviceType type) {
+        return statsOf(counters.byType, key(type));
+    }
+
+    private static DeviceStatsDto statsOf(Map<String, Bucket> buckets, String key) {
+        Bucket bucket = buckets.get(key);
+        return bucket != null ? bucket.toDto() : DeviceStatsDto.empty();
+    }
+
+    private static Map<String, DeviceStatsDto> toDto(Map<String, Bucket> buckets) {
+        Map<String, DeviceStatsDto> result = new TreeMap<>();
+        buckets.forEach((key, bucket) -> {
+            DeviceStatsDto stats = bucket.toDto();
+            if (stats.deviceCount() > 0) { // пустые группы (все устройства ушли) не выводятся
+                result.put(key, stats);
+            }
+        });
+        return result;
+    }
+
+    private static String key(Object value) {
+        if (value == null) {
+            return NONE;
+        }
+        return value instanceof DeviceType type ? type.name() : value.toString();
+    }
+
+    private static class Counters {
+        private final Bucket total = new Bucket();
+        private final Map<String, Bucket> byRoom = new ConcurrentHashMap<>();
+        private final Map<String, Bucket> byType = new ConcurrentHashMap<>();
+        private final Map<String, Bucket> byMode = new ConcurrentHashMap<>();
+
+        void add(String roomKey, String typeKey, String modeKey, long devices, long active, double power) {
+            total.add(devices, active, power);
+            byRoom.computeIfAbsent(roomKey, k -> new Bucket()).add(devices, active, power);
+            byType.computeIfAbsent(typeKey, k -> new Bucket()).add(devices, active, power);
+            byMode.computeIfAbsent(modeKey, k -> new Bucket()).add(devices, active, power);
+        }
+    }
+
+    private static class Bucket {
+        private final LongAdder deviceCount = new LongAdder();
+        private final LongAdder activeCount = new LongAdder();
+        private final DoubleAdder activePower = new DoubleAdder();
+
+        void add(long devices, long active, double power) {
+            deviceCount.add(devices);
+            activeCount.add(active);
+            activePower.add(power);
+        }
+
+        DeviceStatsDto toDto() {
+            return new DeviceStatsDto(deviceCount.sum(), activeCount.sum(), activePower.sum());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.smart_home_syst.service;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.smart_home_syst.dto.ModeScheduleDto;
+import com.example.smart_home_syst.exception.ResourceNotFoundException;
+import com.example.smart_home_syst.model.ModeSchedule;
+import com.example.smart_home_syst.repository.ModeRepository;
+import com.example.smart_home_syst.repository.ModeScheduleRepository;
+import com.example.smart_home_syst.repository.RoomRepository;
+import com.example.smart_home_syst.util.AfterCommitUtil;
+
+@Service
+public class ModeScheduleService {
+    private final ModeScheduleRepository scheduleRepository;
+    private final ModeRepository modeRepository;
+    private final RoomRepository roomRepository;
+    private final ModeScheduler modeScheduler;
+    private static final Logger logger = LoggerFactory.getLogger(ModeScheduleService.class);
+
+    public ModeScheduleService(ModeScheduleRepository scheduleRepository, ModeRepository modeRepository,
+                               RoomRepository roomRepository, ModeScheduler modeScheduler) {
+        this.scheduleRepository = scheduleRepository;
+        this.modeRepository = modeRepository;
+        this.roomRepository = roomRepository;
+        this.modeScheduler = modeScheduler;
+    }
+
+    @Transactional(readOnly = true)
+    public List<ModeScheduleDto> getAll() {
+        return scheduleRepository.findAll().stream().map(ModeScheduleDto::from).toList();
+    }
+
+    @Transactional(readOnly = true)
+    public ModeScheduleDto getById(Long id) {
+        return scheduleRepository.findById(id).map(ModeScheduleDto::from).orElse(null);
+    }
+
+    @Transactional
+    public ModeScheduleDto create(ModeScheduleDto scheduleDto) {
+        logger.info("Start Create mode schedule operation");
+        ModeSchedule schedule = new ModeSchedule();
+        apply(schedule, scheduleDto);
+        ModeScheduleDto saved = ModeScheduleDto.from(scheduleRepository.save(schedule));
+        AfterCommitUtil.run(() -> modeScheduler.arm(saved)); // планировщик видит только закоммиченные расписания
+        logger.info("Mode schedule with Id {} successfully created, next fire at {}", saved.id(), saved.nextFireAt());
+        return saved;
+    }
+
+    @Transactional
+    public ModeScheduleDto update(Long id, ModeScheduleDto scheduleDto) {
+        logger.info("Start Update mode schedule operation");
+        ModeSchedule schedule = scheduleRepository.findById(id).orElseThrow(() -> {
+            logger.warn("Mode schedule not found with id: {}", id);
+            return new ResourceNotFoundException("Mode schedule not found with id: " + id);
+        });
+        apply(schedule, scheduleDto);
+        ModeScheduleDto saved = ModeScheduleDto.from(scheduleRepository.save(schedule));
+        AfterCommitUtil.run(() -> modeScheduler.arm(saved));
+        logger.info("Update comleted successfully for mode schedule {}, next fire at {}", id, saved.nextFireAt());
+        return saved;
+    }
+
+    @Transactional
+    public boolean deleteById(Long id) {
+        logger.info("Start Delete mode schedule operation");
+        if (scheduleRepository.existsById(id)) {
+            scheduleRepository.deleteById(id);
+            AfterCommitUtil.run(() -> modeScheduler.disarm(id));
+            logger.info("Delete mode schedule with Id {} completed successfully", id);
+            return true;
+        }
+        logger.info("Mode schedule with Id {} doesn't founded. Operation canceled", id);
+        return false;
+    }
+
+    // Изменение времени или дней пересчитывает ближайшее срабатывание от текущего момента
+    private void apply(ModeSchedule schedule, ModeScheduleDto scheduleDto) {
+        if (scheduleDto.title() == null || scheduleDto.title().isBlank()) {
+            throw new IllegalArgumentException("Schedule title is required");
+        }
+        if (scheduleDto.modeId() == null || scheduleDto.fireTime() == null) {
+            throw new IllegalArgumentException("Schedule modeId and fireTime are required");
+        }
+        if (!modeRepository.existsById(scheduleDto.modeId())) {
+            throw new ResourceNotFoundException("Mode not found with id: " + scheduleDto.modeId());
+        }
+        Set<Long> roomIds = scheduleDto.roomIds() != null ? new HashSet<>(scheduleDto.roomIds()) : new HashSet<>();
+        if (!roomIds.isEmpty() && roomRepository.findAllById(roomIds).size() != roomIds.size()) {
+            throw new ResourceNotFoundException("Some rooms not found: " + roomIds);
+        }
+
+        schedule.setTitle(scheduleDto.title());
+        schedule.setEnabled(scheduleDto.enabled() == null || scheduleDto.enabled()); // по умолчанию расписание включено
+        schedule.setModeId(scheduleDto.modeId());
+        schedule.getRoomIds().clear();
+        schedule.getRoomIds().addAll(roomIds);
+        schedule.getDaysOfWeek().clear();
+        if (scheduleDto.daysOfWeek() != null) {
+            schedule.getDaysOfWeek().addAll(scheduleDto.daysOfWeek());
+        }
+        schedule.setFireTime(scheduleDto.fireTime().withSecond(0).withNano(0));
+        schedule.setNextFireAt(schedule.isEnabled() ? ModeScheduleDto.from(schedule).nextFireAfter(LocalDateTime.now()) : null);
+    }
+}
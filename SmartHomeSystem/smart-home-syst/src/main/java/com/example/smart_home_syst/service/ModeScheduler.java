@@ -0,0 +1,225 @@
+package com.example.smart_home_syst.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.smart_home_syst.dto.ModeScheduleDto;
+import com.example.smart_home_syst.model.ModeSchedule;
+import com.example.smart_home_syst.repository.ModeScheduleRepository;
+import com.example.smart_home_syst.util.HierarchicalTimingWheel;
+
+import jakarta.annotation.PreDestroy;
+
+// Планировщик расписаний режимов. Ближайшее срабатывание каждого включённого расписания лежит в иерархическом
+// колесе таймеров, которое продвигает один тикер раз в schedule.tick-ms, вместо отдельного потока или задачи
+// на каждое расписание. Срабатывания одного тика объединяются: каждая комната переводится только в режим
+// последнего по времени расписания, а одинаковые действия выполняются один раз.
+// Действия выполняются в одном потоке по порядку, после выполнения в БД сохраняется следующее срабатывание.
+// При старте срабатывания, пропущенные пока приложение не работало, выполняются один раз (последнее для каждого
+// расписания), если с момента срабатывания прошло не больше schedule.misfire-grace-minutes
+@Service
+public class ModeScheduler {
+    private final ModeScheduleRepository scheduleRepository;
+    private final RoomService roomService;
+    private final ModeService modeService;
+    private final TransactionTemplate transactionTemplate;
+    private final HierarchicalTimingWheel<Fire> wheel;
+    private final Map<Long, Fire> armed = new ConcurrentHashMap<>(); // актуальное срабатывание расписания, остальные в колесе устарели
+    private final ThreadPoolExecutor executor;
+    private final Duration misfireGrace;
+    private static final Logger logger = LoggerFactory.getLogger(ModeScheduler.class);
+
+    public ModeScheduler(ModeScheduleRepository scheduleRepository, RoomService roomService, ModeService modeService,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${schedule.tick-ms}") long tickMs,
+                         @Value("${schedule.wheel-size}") int wheelSize,
+                         @Value("${schedule.misfire-grace-minutes}") int misfireGraceMinutes,
+                         @Value("${schedule.executor.queue-capacity}") int queueCapacity) {
+        this.scheduleRepository = scheduleRepository;
+        this.roomService = roomService;
+        this.modeService = modeService;
+        this.transactionTemplate = transactionTemplate;
+        this.wheel = new HierarchicalTimingWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+        this.misfireGrace = Duration.ofMinutes(misfireGraceMinutes);
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), // при переполнении очереди срабатывание пропускается с записью в лог
+            runnable -> new Thread(runnable, "mode-schedule"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Восстановление после перезапуска: будущие срабатывания ставятся в колесо, пропущенные выполняются одним пакетом
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Fire, LocalDateTime> missed = new LinkedHashMap<>();
+        List<ModeScheduleDto> upcoming = transactionTemplate.execute(status -> {
+            List<ModeScheduleDto> result = new ArrayList<>();
+            for (ModeSchedule schedule : scheduleRepository.findAllByEnabledTrue()) {
+                ModeScheduleDto dto = ModeScheduleDto.from(schedule);
+                if (dto.nextFireAt() != null && dto.nextFireAt().isAfter(now)) {
+                    result.add(dto);
+                    continue;
+                }
+                LocalDateTime next = dto.nextFireAfter(now);
+                if (dto.nextFireAt() != null) {
+                    LocalDateTime latestMissed = dto.nextFireAt();
+                    for (LocalDateTime fireAt = latestMissed; !fireAt.isAfter(now); fireAt = dto.nextFireAfter(fireAt)) {
+                        latestMissed = fireAt;
+                    }
+                    if (Duration.between(latestMissed, now).compareTo(misfireGrace) <= 0) {
+                        // nextFireAt в БД обновит markFired после выполнения
+                        missed.put(new Fire(dto, latestMissed), next);
+                        result.add(withNextFireAt(dto, next));
+                        continue;
+                    }
+                    logger.warn("Mode schedule {} missed fire at {} is older than grace period, skipped", dto.id(), latestMissed);
+                }
+                schedule.setNextFireAt(next);
+                result.add(withNextFireAt(dto, next));
+            }
+            return result;
+        });
+        upcoming.forEach(this::arm);
+        logger.info("Mode schedules loaded: {} armed, {} missed fires to recover", upcoming.size(), missed.size());
+        if (!missed.isEmpty()) {
+            dispatch(missed);
+        }
+    }
+
+    // Постановка расписания в колесо после коммита его изменения; выключенное расписание снимается
+    public void arm(ModeScheduleDto schedule) {
+        if (!Boolean.TRUE.equals(schedule.enabled()) || schedule.nextFireAt() == null) {
+            disarm(schedule.id());
+            return;
+        }
+        Fire fire = new Fire(schedule, schedule.nextFireAt());
+        armed.put(schedule.id(), fire);
+        if (!wheel.add(toEpochMs(fire.fireAt()), fire)) {
+            onDue(List.of(fire));
+        }
+    }
+
+    // Запись в колесе остаётся и будет пропущена при срабатывании
+    public void disarm(Long scheduleId) {
+        armed.remove(scheduleId);
+    }
+
+    @Scheduled(fixedRateString = "${schedule.tick-ms}")
+    public void tick() {
+        List<Fire> due = wheel.advance(System.currentTimeMillis());
+        if (!due.isEmpty()) {
+            onDue(due);
+        }
+    }
+
+    // Актуальные срабатывания сразу заменяются следующими, чтобы долгое выполнение не задерживало расписание.
+    // Следующее считается не раньше текущего времени: после долгой остановки тикера повторы не выполняются пачкой
+    private void onDue(List<Fire> due) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Fire, LocalDateTime> current = new LinkedHashMap<>();
+        List<Fire> late = new ArrayList<>();
+        for (Fire fire : due) {
+            ModeScheduleDto schedule = fire.schedule();
+            LocalDateTime nextFireAt = schedule.nextFireAfter(fire.fireAt().isAfter(now) ? fire.fireAt() : now);
+            Fire next = new Fire(schedule, nextFireAt);
+            if (armed.replace(schedule.id(), fire, next)) {
+                current.put(fire, nextFireAt);
+                if (!wheel.add(toEpochMs(nextFireAt), next)) {
+                    late.add(next);
+                }
+            }
+        }
+        if (!current.isEmpty()) {
+            dispatch(current);
+        }
+        if (!late.isEmpty()) {
+            onDue(late);
+        }
+    }
+
+    // fires: срабатывание -> следующее срабатывание того же расписания, которое сохраняется в БД после выполнения
+    private void dispatch(Map<Fire, LocalDateTime> fires) {
+        try {
+            executor.execute(() -> execute(fires));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Mode schedule queue is full, {} fires dropped", fires.size());
+        }
+    }
+
+    private void execute(Map<Fire, LocalDateTime> fires) {
+        List<Fire> ordered = new ArrayList<>(fires.keySet());
+        ordered.sort(Comparator.comparing(Fire::fireAt).thenComparing(fire -> fire.schedule().id()));
+
+        Set<Long> modesToTurnOn = new LinkedHashSet<>(); // расписания без комнат включают режим целиком
+        Map<Long, Long> roomModes = new LinkedHashMap<>(); // комната -> режим последнего срабатывания
+        for (Fire fire : ordered) {
+            ModeScheduleDto schedule = fire.schedule();
+            if (schedule.roomIds().isEmpty()) {
+                modesToTurnOn.add(schedule.modeId());
+            }
+            for (Long roomId : schedule.roomIds()) {
+                roomModes.put(roomId, schedule.modeId());
+            }
+        }
+        logger.info("Mode schedule fired: {} schedules, {} modes, {} rooms", ordered.size(), modesToTurnOn.size(), roomModes.size());
+
+        for (Long modeId : modesToTurnOn) {
+            try {
+                modeService.turnOnDevicesOfMode(modeId);
+            } catch (Exception e) {
+                logger.warn("Scheduled turn on of mode {} failed: {}", modeId, e.getMessage());
+            }
+        }
+        // Комнатные расписания применяются после общих, чтобы режим конкретной комнаты не был перезаписан
+        roomModes.forEach((roomId, modeId) -> {
+            try {
+                roomService.switchDevicesModeInRoom(roomId, modeId);
+                roomService.turnOnDevicesInRoom(roomId);
+            } catch (Exception e) {
+                logger.warn("Scheduled switch of room {} to mode {} failed: {}", roomId, modeId, e.getMessage());
+            }
+        });
+
+        LocalDateTime firedAt = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status ->
+            fires.forEach((fire, nextFireAt) -> scheduleRepository.markFired(fire.schedule().id(), fire.fireAt(), firedAt, nextFireAt)));
+    }
+
+    private static ModeScheduleDto withNextFireAt(ModeScheduleDto dto, LocalDateTime nextFireAt) {
+        return new ModeScheduleDto(dto.id(), dto.title(), dto.enabled(), dto.modeId(), dto.roomIds(),
+            dto.daysOfWeek(), dto.fireTime(), nextFireAt, dto.lastFiredAt());
+    }
+
+    private static long toEpochMs(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // Сравнивается по значению: после изменения расписания или его срабатывания запись в колесе отличается от armed
+    private record Fire(ModeScheduleDto schedule, LocalDateTime fireAt) {}
+}
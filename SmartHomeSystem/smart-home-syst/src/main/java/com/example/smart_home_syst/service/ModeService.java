@@ -1,6 +1,7 @@
 package com.example.smart_home_syst.service;
 
-import java.io.InputStream;
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -9,39 +10,56 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.cache.annotation.Caching;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.smart_home_syst.dto.BulkCommandResultDto;
+import com.example.smart_home_syst.dto.CursorPageDto;
+import com.example.smart_home_syst.dto.DeviceSnapshot;
+import com.example.smart_home_syst.dto.ImportResultDto;
 import com.example.smart_home_syst.dto.DeviceDto;
 import com.example.smart_home_syst.dto.DeviceListImportDto;
 import com.example.smart_home_syst.dto.DeviceReportDto;
 import com.example.smart_home_syst.dto.ModeDto;
-import com.example.smart_home_syst.dto.ModeListImportDto;
 import com.example.smart_home_syst.dto.ModeReportDto;
+import com.example.smart_home_syst.dto.ModeSnapshot;
+import com.example.smart_home_syst.event.DeviceChangedEvent;
 import com.example.smart_home_syst.enumerator.ModeType;
 import com.example.smart_home_syst.exception.ResourceNotFoundException;
 import com.example.smart_home_syst.fileSettings.ModesExportWrapper;
+import com.example.smart_home_syst.fileSettings.XmlExportWriter;
+import com.example.smart_home_syst.fileSettings.XmlRecordReader;
 import com.example.smart_home_syst.model.Device;
 import com.example.smart_home_syst.model.Mode;
 import com.example.smart_home_syst.repository.DeviceRepository;
 import com.example.smart_home_syst.repository.ModeRepository;
+import com.example.smart_home_syst.repository.RoomRepository;
 import com.example.smart_home_syst.specifications.ModeSpecifications;
+import com.example.smart_home_syst.util.IndexedListCache;
+import com.example.smart_home_syst.util.NdjsonWriter;
+import com.example.smart_home_syst.util.KeysetPager;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 
-import net.sf.jasperreports.engine.JasperCompileManager;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import net.sf.jasperreports.engine.JasperExportManager;
 import net.sf.jasperreports.engine.JasperFillManager;
 import net.sf.jasperreports.engine.JasperPrint;
@@ -52,20 +70,37 @@ import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
 public class ModeService {
     private final ModeRepository modeRepository;
     private final DeviceRepository deviceRepository;
+    private final RoomRepository roomRepository;
+    private final DeviceBulkCommandExecutor bulkCommandExecutor;
+    private final IndexedListCache<ModeSnapshot> modeListCache;
+    private final IndexedListCache<DeviceSnapshot> deviceListCache;
+    private final ApplicationEventPublisher eventPublisher;
     private static final Logger logger = LoggerFactory.getLogger(DeviceService.class);
+    private final ReportTemplateCache reportTemplateCache;
     private final XmlMapper xmlMapper = new XmlMapper();
 
-    public ModeService(ModeRepository modeRepository, DeviceRepository deviceRepository) {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${import.chunk-size}")
+    private int importChunkSize;
+
+    public ModeService(ModeRepository modeRepository, DeviceRepository deviceRepository, RoomRepository roomRepository, DeviceBulkCommandExecutor bulkCommandExecutor, IndexedListCache<ModeSnapshot> modeListCache, IndexedListCache<DeviceSnapshot> deviceListCache, ReportTemplateCache reportTemplateCache, ApplicationEventPublisher eventPublisher) {
         this.modeRepository = modeRepository;
         this.deviceRepository = deviceRepository;
+        this.roomRepository = roomRepository;
+        this.bulkCommandExecutor = bulkCommandExecutor;
+        this.modeListCache = modeListCache;
+        this.deviceListCache = deviceListCache;
+        this.reportTemplateCache = reportTemplateCache;
+        this.eventPublisher = eventPublisher;
         xmlMapper.enable(com.fasterxml.jackson.databind.SerializationFeature.INDENT_OUTPUT);
     }
 
     @Transactional(readOnly = true)
-    @Cacheable(value="modes", key="#root.methodName")
-    public List<Mode> getAll() {
+    public List<ModeSnapshot> getAll() {
         logger.debug("Get all modes");
-        return modeRepository.findAll();
+        return modeListCache.getAll(modeRepository::findAllSnapshots);
     }
 
     public List<Mode> getAllByTitle(String title) {
@@ -74,23 +109,22 @@ public class ModeService {
 
     @Transactional(readOnly = true)
     @Cacheable(value="mode", key="#id")
-    public Mode getById(Long id) {
+    public ModeSnapshot getById(Long id) {
         logger.debug("Get mode with id: {}", id);
-        return modeRepository.findById(id).orElse(null);
+        return modeRepository.findById(id).map(ModeSnapshot::from).orElse(null);
     }
 
-    @Caching(evict = {
-        @CacheEvict(value="modes", allEntries=true),
-        @CacheEvict(value="mode", key="#id")
-    })
+    @CachePut(value="mode", key="#id")
     @Transactional
-    public Mode update(Long id, ModeDto modeDto) {
+    public ModeSnapshot update(Long id, ModeDto modeDto) {
         logger.info("Start Update mode operation");
         return modeRepository.findById(id).map(existingMode -> {
             existingMode.setTitle(modeDto.title());
             existingMode.setType(modeDto.type());
+            ModeSnapshot snapshot = ModeSnapshot.from(modeRepository.saveAndFlush(existingMode)); // после flush снимок получает новую версию
+            modeListCache.put(snapshot);
             logger.info("Update comleted successfully for Mode {}", id);
-            return modeRepository.save(existingMode);
+            return snapshot;
         }).orElseThrow(() -> {
                 logger.warn("Error to update mode with id: {}", id);
                 return new ResourceNotFoundException("Error to update mode with id: " + id);
@@ -98,15 +132,19 @@ public class ModeService {
     }
 
     @Caching(evict = {
-        @CacheEvict(value="modes", allEntries=true),
-        @CacheEvict(value="mode", key="#id")
+        @CacheEvict(value="mode", key="#id"),
+        @CacheEvict(value="device", allEntries=true) // устройства режима удаляются каскадно
     })
     @Transactional
     public boolean deleteById(Long id) {
         logger.info("Start Delete mode operation");
         logger.debug("Try to find mode with Id {}", id);
         if (modeRepository.existsById(id)) {
+            roomRepository.releaseSlotsOfMode(id);
             modeRepository.deleteById(id);
+            modeListCache.remove(id);
+            deviceListCache.invalidate();
+            eventPublisher.publishEvent(DeviceChangedEvent.reload());
             logger.info("Delete mode with Id {} completed successfully", id);
             return true;
         }
@@ -115,83 +153,92 @@ public class ModeService {
     }
 
     @Transactional
-    @CacheEvict(value="modes", allEntries=true)
-    public Mode create (ModeDto modeDto) {
+    @CachePut(value="mode", key="#result.id")
+    public ModeSnapshot create (ModeDto modeDto) {
         logger.info("Start Create mode operation");
         Mode mode = new Mode();
         mode.setTitle(modeDto.title());
         mode.setType(modeDto.type());
-        logger.info("Mode with Id {} successfully created", mode.getId());
-        return modeRepository.save(mode);
+        ModeSnapshot snapshot = ModeSnapshot.from(modeRepository.save(mode));
+        modeListCache.put(snapshot);
+        logger.info("Mode with Id {} successfully created", snapshot.id());
+        return snapshot;
     }
 
     public Page<Mode> getByFilter(String title, ModeType type, Pageable pageable) {
         return modeRepository.findAll(ModeSpecifications.filter(title, type), pageable);
     }
 
+    // Курсорная пагинация: глубокие страницы стоят столько же, сколько первая
+    @Transactional(readOnly = true)
+    public CursorPageDto<ModeSnapshot> getByFilterCursor(String title, ModeType type, String sort, String cursor, int size, boolean withTotal) {
+        return KeysetPager.fetch(modeRepository, ModeSpecifications.filter(title, type),
+            sort, cursor, size, withTotal, Mode::getId, Mode::getTitle, ModeSnapshot::from);
+    }
+
     
+    // Раньше кэшировалось в "mode" под тем же ключом #id, что и getById, и один результат подменял другой.
+    // Теперь проекция по индексу device.mode_id, без перебора всего списка устройств
     @Transactional(readOnly = true)
-    @Cacheable(value="mode", key="#id")
-    public List<Device> getDevicesOfMode(Long id) {
-        return modeRepository.findById(id).orElse(null).getDevices();
+    public List<DeviceSnapshot> getDevicesOfMode(Long id) {
+        if (!modeRepository.existsById(id)) {
+            logger.warn("Mode not found with id: {}", id);
+            throw new ResourceNotFoundException("Mode not found with id: " + id);
+        }
+        return deviceRepository.findSnapshotsByModeId(id);
     }
 
     
+    private Mode findModeOrThrow(Long id) {
+        return modeRepository.findById(id).orElseThrow(() -> {
+            logger.warn("Mode not found with id: {}", id);
+            return new ResourceNotFoundException("Mode not found with id: " + id);
+        });
+    }
+
     @Transactional
-    @CacheEvict(value="devices", allEntries=true)
-    public List<Device> turnOffDevicesOfMode(Long id) {
+    public BulkCommandResultDto turnOffDevicesOfMode(Long id) {
         logger.info("Start 'Turn off devices with same mode' operation");
-        List<Device> device_to_change = modeRepository.findById(id).orElse(null).getDevices();
-        logger.debug("Founded {} devices with mode {}", device_to_change.size(), modeRepository.findById(id).orElse(null).getTitle());
-        for (Device dev : device_to_change) {
-            dev.setActive(false);
-            deviceRepository.save(dev);
-        }
-        logger.info("All devices activity with mode {} was changed to false", modeRepository.findById(id).orElse(null).getTitle());
-        return device_to_change;
+        Mode mode = findModeOrThrow(id);
+        BulkCommandResultDto result = bulkCommandExecutor.setActiveForMode(id, false);
+        logger.info("All devices activity with mode {} was changed to false ({} of {} changed)", mode.getTitle(), result.changedIds().size(), result.total());
+        return result;
     }
 
     @Transactional
-    @CacheEvict(value="devices", allEntries=true)
-    public List<Device> turnOnDevicesOfMode(Long id) {
+    public BulkCommandResultDto turnOnDevicesOfMode(Long id) {
         logger.info("Start 'Turn on devices with same mode' operation");
-        List<Device> device_to_change = modeRepository.findById(id).orElse(null).getDevices();
-        logger.debug("Founded {} devices with mode {}", device_to_change.size(), modeRepository.findById(id).orElse(null).getTitle());
-        for (Device dev : device_to_change) {
-            dev.setActive(true);
-            deviceRepository.save(dev);
-        }
-        logger.info("All devices activity with mode {} was changed to true", modeRepository.findById(id).orElse(null).getTitle());
-        return device_to_change;
+        Mode mode = findModeOrThrow(id);
+        BulkCommandResultDto result = bulkCommandExecutor.setActiveForMode(id, true);
+        logger.info("All devices activity with mode {} was changed to true ({} of {} changed)", mode.getTitle(), result.changedIds().size(), result.total());
+        return result;
     }
 
-    private ModesExportWrapper createExportWrapper(List<Mode> modes) {
-        List<ModeDto> modesDto_to_export = modes.stream()
-            .map(mode -> new ModeDto(
-                mode.getTitle(),
-                mode.getType()
-            ))
-            .toList();
-        
-        ModesExportWrapper wrapper = new ModesExportWrapper();
-        wrapper.setModes(modesDto_to_export);
-        wrapper.setTotalCount(modesDto_to_export.size());
-        return wrapper;
+    // NDJSON по одной записи на строку: при загруженном кэше списка читается он, иначе поток из БД с fetch size
+    @Transactional(readOnly = true)
+    public long writeModesNdjson(OutputStream out, Set<String> fields) {
+        List<ModeSnapshot> cached = modeListCache.peek();
+        try (Stream<ModeSnapshot> modes = cached != null ? cached.stream() : modeRepository.streamAllSnapshots()) {
+            long written = NdjsonWriter.write(out, modes, fields);
+            logger.debug("NDJSON stream finished, {} modes written", written);
+            return written;
+        } catch (Exception e) {
+            logger.warn("NDJSON streaming error: {}", e.getMessage());
+            throw new RuntimeException("Error of NDJSON streaming", e);
+        }
     }
 
+    // Потоковая запись: DTO читаются из БД порциями и сразу пишутся в поток, память не зависит от числа записей
     @Transactional(readOnly = true)
-    public String exportModesListToXmlString() {
-        logger.info("Start mode exporting to string operation");
-
-        List<Mode> modes_to_export = modeRepository.findAll();
-        logger.debug("{} modes was founded", modes_to_export.size());
-        
-        ModesExportWrapper wrapper = createExportWrapper(modes_to_export);
-        
-        try {
-            String xml = xmlMapper.writeValueAsString(wrapper);
-            logger.debug("XML export to string successfully finished");
-            return xml;
+    public long writeModesXml(OutputStream out) {
+        logger.info("Start mode exporting to stream operation");
+
+        long totalCount = modeRepository.count();
+        try (Stream<ModeDto> modes_to_export = modeRepository.streamAllForExport()) {
+            long written = XmlExportWriter.write(xmlMapper, out, "SmartHomeSystem-Modes", "mode",
+                totalCount, new ModesExportWrapper.SystemInfo(), modes_to_export);
+            logger.debug("XML export to stream successfully finished, {} modes written", written);
+            return written;
         } catch (Exception e) {
             logger.warn("Formating to XML error: {}", e.getMessage(), e);
             throw new RuntimeException("Error of export to XML", e);
@@ -199,7 +246,7 @@ public class ModeService {
     }
 
     @Transactional(readOnly=true)
-    public String exportModesListToXmlFile(String pathToFile, String fileName) {
+    public Path exportModesListToXmlFile(String pathToFile, String fileName) {
         logger.info("Start mode exporting to file operation");
 
         try {
@@ -209,13 +256,12 @@ public class ModeService {
             Path filePath = fileDir.resolve(fileName + ".xml"); // Соединяем путь и имя файла
             logger.debug("Full path to file created: {}", filePath);
 
-            String xml = exportModesListToXmlString();
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(filePath))) {
+                writeModesXml(out);
+            }
 
-            logger.debug("Try to write XML string to file: {}", filePath);
-            Files.writeString(filePath, xml);
-            
             logger.info("Modes data successfully exported to XML file {}", filePath);
-            return xml;
+            return filePath;
         }
         catch (Exception e) {
             logger.warn("Export to file error: {}", e.getMessage(), e);
@@ -236,9 +282,57 @@ public class ModeService {
         }
     }
 
+    // Импорт порции режимов: существующие режимы загружаются одним IN запросом,
+    // вставки и обновления определяются в памяти и записываются одним сбросом
+    private ImportResultDto importModeChunk(List<ModeDto> items) {
+        Set<String> titles = new HashSet<>();
+        for (ModeDto item : items) {
+            if (item.title() != null) titles.add(item.title());
+        }
+
+        Map<String, Mode> modesByTitle = new HashMap<>();
+        modeRepository.findAllByTitleIn(titles).forEach(mode -> modesByTitle.put(mode.getTitle(), mode));
+        logger.debug("Preloaded {} modes for import", modesByTitle.size());
+
+        List<Mode> modesToCreate = new ArrayList<>();
+        List<String> failedTitles = new ArrayList<>();
+        int created = 0;
+        int updated = 0;
+        for (ModeDto item : items) {
+            if (item.title() == null || item.title().isBlank() || item.title().length() > 150) {
+                logger.warn("Error to add Mode {} to DB: wrong title", item.title());
+                failedTitles.add(item.title());
+                continue;
+            }
+
+            Mode mode = modesByTitle.get(item.title());
+            boolean isNew = mode == null;
+            if (isNew) {
+                mode = new Mode();
+                mode.setTitle(item.title());
+            }
+            mode.setType(item.type());
+
+            if (isNew) {
+                modesToCreate.add(mode);
+                modesByTitle.put(mode.getTitle(), mode); // повтор названия в файле обновит этот же режим
+                created++;
+                logger.debug("Mode imported to DB: {}", item.title());
+            }
+            else {
+                updated++;
+                logger.debug("Mode updated in DB: {}", item.title());
+            }
+        }
+
+        modeRepository.saveAll(modesToCreate);
+        modeRepository.flush();
+        return new ImportResultDto(created, updated, failedTitles.size(), failedTitles);
+    }
+
     @Transactional
-    @CacheEvict(value="modes", allEntries=true)
-    public List<Mode> importModesListFromXmlFile(MultipartFile file) {
+    @CacheEvict(value="mode", allEntries=true)
+    public ImportResultDto importModesListFromXmlFile(MultipartFile file) {
         logger.info("Start mode importing from file operation");
         validateFile(file);
 
@@ -249,33 +343,19 @@ public class ModeService {
             Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
             logger.info("File copied with path: {}", filePath);
 
-            try (InputStream fileByteStream = file.getInputStream()) {
-                ModeListImportDto xmlDto = xmlMapper.readValue(fileByteStream, ModeListImportDto.class);
-                List<ModeDto> modeToImport = xmlDto.getModes();
-
-                List<Mode> importedModes = new ArrayList<>();
-
-                for (int i = 0; i < modeToImport.size(); i++) {
-                    ModeDto item = modeToImport.get(i);
-                    List<Mode> modesWithSameName = modeRepository.findAllByTitle(item.title());
-                    try {
-                        if (modesWithSameName.size() == 0 || modesWithSameName == null) {
-                            importedModes.add(create(item));
-                            
-                            logger.debug("Mode imported to DB: {}", item.title());
-                        }
-                        else {
-                            importedModes.add(update(modesWithSameName.get(0).getId(), item));
-                            
-                            logger.debug("Mode updated in DB: {}", item.title());
-                        }
-                        
-                    } catch (Exception e) {
-                        logger.warn("Error to add Mode {} to DB", item.title());
-                    }
+            // Сохраненный файл читается потоком порциями по importChunkSize записей
+            try (XmlRecordReader<ModeDto> recordReader = new XmlRecordReader<>(xmlMapper, filePath, "mode", ModeDto.class)) {
+                modeListCache.invalidate(); // после импорта список загрузится заново одним запросом
+                ImportResultDto result = ImportResultDto.empty();
+                List<ModeDto> modeChunk = recordReader.readChunk(importChunkSize);
+                while (!modeChunk.isEmpty()) {
+                    result = result.plus(importModeChunk(modeChunk));
+                    entityManager.clear(); // порция уже записана в БД, контекст персистентности не растет от порции к порции
+                    logger.info("Modes import progress: {} records processed (~{}% of file)", recordReader.getRecordsRead(), recordReader.getProgressPercent());
+                    modeChunk = recordReader.readChunk(importChunkSize);
                 }
-                logger.info("Modes data successfully imported from XML file {}", filePath);
-                return importedModes;
+                logger.info("Modes data successfully imported from XML file {}: {} created, {} updated, {} failed", filePath, result.created(), result.updated(), result.failed());
+                return result;
             }
             catch (Exception e) {
                 logger.warn("Error of opening XML file: {}", e.getMessage(), e);
@@ -289,31 +369,22 @@ public class ModeService {
     }
 
     public String getModeDevicesNames (Mode mode) {
-        String devicesNames = "";
-        for (int i = 0; i < mode.getDevices().size(); i++) {
-            if (devicesNames != "") {
-                devicesNames += ", ";
-            }
-            devicesNames += mode.getDevices().get(i).getTitle();
-        }
-        return devicesNames;
+        return mode.getDevices().stream()
+            .map(Device::getTitle)
+            .collect(Collectors.joining(", "));
     }
 
+    // PDF пишется сразу в поток (файл задания отчёта), без сборки всего документа в byte[].
+    // generatedBy передаётся явно, т.к. отчёт строится в потоке исполнителя без SecurityContext
     @Transactional(readOnly=true)
-    public byte[] generateModePdfReport() {
+    public void writeModePdfReport(OutputStream out, String generatedBy) {
         logger.info("Start mode report creating");
         try {
-            InputStream templateStream = new ClassPathResource("reportPdfConfig/modeReportConfig.jrxml").getInputStream(); // загрузка шаблона
-            logger.debug("Pdf template loaded");
-
-            JasperReport jasperReport = JasperCompileManager.compileReport(templateStream);
-            logger.debug("Pdf template compiled");
+            long start = System.nanoTime();
+            JasperReport jasperReport = reportTemplateCache.get(ReportTemplateCache.MODE_REPORT); // шаблон компилируется один раз
+            logger.debug("Pdf template taken from cache");
 
-            List<ModeReportDto> reportData = modeRepository.findAll().stream().map(mode -> new ModeReportDto(
-                mode.getTitle(),
-                mode.getType().toString(),
-                getModeDevicesNames(mode)
-            )).toList();
+            List<ModeReportDto> reportData = modeRepository.findReportRows();
             logger.debug("Data taken from DB and change to ModeReportDto");
 
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(reportData);
@@ -321,14 +392,14 @@ public class ModeService {
 
             Map<String, Object> parameters = new HashMap<>();
             parameters.put("reportTitle", "Report about modes of Smart Home System");
-            parameters.put("generatedBy", SecurityContextHolder.getContext().getAuthentication().getName());
+            parameters.put("generatedBy", generatedBy);
             logger.debug("Pdf parametrs entered");
 
             JasperPrint jasperPrint = JasperFillManager.fillReport(
                 jasperReport, parameters, dataSource);
             
-            logger.info("Modes data report successfully created");
-            return JasperExportManager.exportReportToPdf(jasperPrint);
+            JasperExportManager.exportReportToPdfStream(jasperPrint, out);
+            logger.info("Modes data report successfully created in {} ms", (System.nanoTime() - start) / 1_000_000);
         }
         catch (Exception e) {
             logger.warn("Mode report creating error: {}", e.getMessage(), e);
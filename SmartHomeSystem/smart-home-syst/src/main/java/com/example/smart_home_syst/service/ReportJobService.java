@@ -0,0 +1,165 @@
+package com.example.smart_home_syst.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import com.example.smart_home_syst.dto.ReportJobDto;
+import com.example.smart_home_syst.enumerator.ReportJobStatus;
+import com.example.smart_home_syst.enumerator.ReportType;
+
+import jakarta.annotation.PreDestroy;
+
+// Фоновые задания построения PDF отчётов. Отчёт строится в ограниченном пуле потоков
+// и пишется в report.storage.path, запрос только ставит задание в очередь и получает его Id
+@Service
+public class ReportJobService {
+    private final DeviceService deviceService;
+    private final RoomService roomService;
+    private final ModeService modeService;
+    private final Path storagePath;
+    private final int retentionDays;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ReportJobDto> jobs = new ConcurrentHashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobService.class);
+
+    public ReportJobService(DeviceService deviceService, RoomService roomService, ModeService modeService,
+                            @Value("${report.storage.path}") String storagePath,
+                            @Value("${report.retention-days}") int retentionDays,
+                            @Value("${report.executor.pool-size}") int poolSize,
+                            @Value("${report.executor.queue-capacity}") int queueCapacity) {
+        this.deviceService = deviceService;
+        this.roomService = roomService;
+        this.modeService = modeService;
+        this.storagePath = Paths.get(storagePath);
+        this.retentionDays = retentionDays;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), // при переполнении очереди новые задания отклоняются
+            runnable -> new Thread(runnable, "report-" + threadNumber.incrementAndGet()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // RejectedExecutionException - очередь отчётов заполнена
+    public ReportJobDto submit(ReportType type) {
+        String requestedBy = SecurityContextHolder.getContext().getAuthentication().getName();
+        ReportJobDto job = new ReportJobDto(UUID.randomUUID().toString(), type, ReportJobStatus.QUEUED, requestedBy, LocalDateTime.now(), null, null);
+        jobs.put(job.id(), job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id());
+            logger.warn("Report queue is full, {} report for {} rejected", type, requestedBy);
+            throw e;
+        }
+        logger.info("Report job {} ({}) queued by {}", job.id(), type, requestedBy);
+        return job;
+    }
+
+    // Задание видно только пользователю, который его создал
+    // null - задания нет: неизвестный Id, чужое задание или оно уже удалено по сроку хранения
+    public ReportJobDto getJob(String jobId) {
+        ReportJobDto job = jobs.get(jobId);
+        String currentUser = SecurityContextHolder.getContext().getAuthentication().getName();
+        if (job == null || !job.requestedBy().equals(currentUser)) {
+            return null;
+        }
+        return job;
+    }
+
+    // null - задания нет или отчёт ещё не готов
+    public Path getReportFile(String jobId) {
+        ReportJobDto job = getJob(jobId);
+        if (job == null) {
+            return null;
+        }
+        Path reportFile = reportFile(job);
+        if (job.status() != ReportJobStatus.DONE || !Files.exists(reportFile)) {
+            return null;
+        }
+        return reportFile;
+    }
+
+    private Path reportFile(ReportJobDto job) {
+        return storagePath.resolve(job.type().name().toLowerCase() + "_report_" + job.id() + ".pdf");
+    }
+
+    private void run(ReportJobDto job) {
+        jobs.put(job.id(), job.withStatus(ReportJobStatus.RUNNING, null));
+        Path reportFile = reportFile(job);
+        Path partFile = reportFile.resolveSibling(reportFile.getFileName() + ".part");
+        try {
+            Files.createDirectories(storagePath);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partFile))) {
+                switch (job.type()) {
+                    case DEVICES -> deviceService.writeDevicePdfReport(out, job.requestedBy());
+                    case ROOMS -> roomService.writeRoomPdfReport(out, job.requestedBy());
+                    case MODES -> modeService.writeModePdfReport(out, job.requestedBy());
+                }
+            }
+            // Файл появляется под итоговым именем только целиком
+            Files.move(partFile, reportFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            jobs.put(job.id(), job.withStatus(ReportJobStatus.DONE, null));
+            logger.info("Report job {} finished, file {}", job.id(), reportFile);
+        } catch (Exception e) {
+            logger.warn("Report job {} error: {}", job.id(), e.getMessage(), e);
+            jobs.put(job.id(), job.withStatus(ReportJobStatus.FAILED, e.getMessage()));
+            try {
+                Files.deleteIfExists(partFile);
+            } catch (IOException ignored) {
+                logger.debug("Part file {} not deleted", partFile);
+            }
+        }
+    }
+
+    // Удаление отчётов старше report.retention-days
+    @Scheduled(cron = "${report.cleanup.cron}")
+    public void deleteExpiredReports() {
+        Instant expiration = Instant.now().minus(retentionDays, ChronoUnit.DAYS);
+        jobs.values().removeIf(job -> job.createdAt().isBefore(LocalDateTime.now().minusDays(retentionDays)));
+        if (!Files.isDirectory(storagePath)) {
+            return;
+        }
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(storagePath)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                FileTime modified = Files.getLastModifiedTime(file);
+                if (Files.isRegularFile(file) && modified.toInstant().isBefore(expiration)) {
+                    Files.deleteIfExists(file);
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Reports cleanup error: {}", e.getMessage(), e);
+        }
+        logger.info("Reports cleanup finished, {} files deleted", deleted);
+    }
+}
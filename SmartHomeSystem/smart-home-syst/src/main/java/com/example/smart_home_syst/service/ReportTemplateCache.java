@@ -0,0 +1,71 @@
+package com.example.smart_home_syst.service;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.util.JRLoader;
+
+// Скомпилированные шаблоны отчётов. Компиляция .jrxml - самая дорогая часть отчёта,
+// поэтому каждый шаблон компилируется один раз, а дальше используется готовый JasperReport
+@Service
+public class ReportTemplateCache {
+    public static final String DEVICE_REPORT = "deviceReportConfig";
+    public static final String ROOM_REPORT = "roomReportConfig";
+    public static final String MODE_REPORT = "modeReportConfig";
+
+    private static final String TEMPLATE_DIR = "reportPdfConfig/";
+    private static final Logger logger = LoggerFactory.getLogger(ReportTemplateCache.class);
+    private final Map<String, JasperReport> templates = new ConcurrentHashMap<>();
+
+    public JasperReport get(String templateName) {
+        return templates.computeIfAbsent(templateName, this::load);
+    }
+
+    // Шаблоны компилируются при старте, чтобы первый запрос отчёта не платил за компиляцию
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        for (String templateName : List.of(DEVICE_REPORT, ROOM_REPORT, MODE_REPORT)) {
+            try {
+                get(templateName);
+            } catch (RuntimeException e) {
+                logger.warn("Report template {} not loaded at startup: {}", templateName, e.getMessage());
+            }
+        }
+    }
+
+    private JasperReport load(String templateName) {
+        long start = System.nanoTime();
+        // Заранее скомпилированный .jasper (если положен в classpath) загружается без компиляции
+        ClassPathResource compiled = new ClassPathResource(TEMPLATE_DIR + templateName + ".jasper");
+        try {
+            JasperReport report;
+            if (compiled.exists()) {
+                try (InputStream templateStream = compiled.getInputStream()) {
+                    report = (JasperReport) JRLoader.loadObject(templateStream);
+                }
+            }
+            else {
+                try (InputStream templateStream = new ClassPathResource(TEMPLATE_DIR + templateName + ".jrxml").getInputStream()) {
+                    report = JasperCompileManager.compileReport(templateStream);
+                }
+            }
+            logger.info("Report template {} loaded in {} ms", templateName, (System.nanoTime() - start) / 1_000_000);
+            return report;
+        }
+        catch (Exception e) {
+            logger.warn("Report template {} loading error: {}", templateName, e.getMessage(), e);
+            throw new RuntimeException("Error to load report template " + templateName, e);
+        }
+    }
+}
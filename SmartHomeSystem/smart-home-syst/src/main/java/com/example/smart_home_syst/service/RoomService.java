@@ -1,6 +1,7 @@
 package com.example.smart_home_syst.service;
 
-import java.io.InputStream;
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -9,15 +10,22 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.cache.annotation.Caching;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -25,11 +33,18 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.smart_home_syst.dto.BulkCommandResultDto;
+import com.example.smart_home_syst.dto.CursorPageDto;
+import com.example.smart_home_syst.dto.DeviceSnapshot;
+import com.example.smart_home_syst.dto.ImportResultDto;
 import com.example.smart_home_syst.dto.RoomDto;
-import com.example.smart_home_syst.dto.RoomListImportDto;
 import com.example.smart_home_syst.dto.RoomReportDto;
+import com.example.smart_home_syst.dto.RoomSnapshot;
+import com.example.smart_home_syst.event.DeviceChangedEvent;
 import com.example.smart_home_syst.exception.ResourceNotFoundException;
 import com.example.smart_home_syst.fileSettings.RoomsExportWrapper;
+import com.example.smart_home_syst.fileSettings.XmlExportWriter;
+import com.example.smart_home_syst.fileSettings.XmlRecordReader;
 import com.example.smart_home_syst.model.Device;
 import com.example.smart_home_syst.model.Mode;
 import com.example.smart_home_syst.model.Room;
@@ -39,9 +54,13 @@ import com.example.smart_home_syst.repository.ModeRepository;
 import com.example.smart_home_syst.repository.RoomRepository;
 import com.example.smart_home_syst.repository.UserRepository;
 import com.example.smart_home_syst.specifications.RoomSpecifications;
+import com.example.smart_home_syst.util.IndexedListCache;
+import com.example.smart_home_syst.util.NdjsonWriter;
+import com.example.smart_home_syst.util.KeysetPager;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 
-import net.sf.jasperreports.engine.JasperCompileManager;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import net.sf.jasperreports.engine.JasperExportManager;
 import net.sf.jasperreports.engine.JasperFillManager;
 import net.sf.jasperreports.engine.JasperPrint;
@@ -57,22 +76,37 @@ public class RoomService {
     private final ModeRepository modeRepository;
     private static final Logger logger = LoggerFactory.getLogger(AuthenticationService.class);
     private final TgBotService botService;
+    private final DeviceBulkCommandExecutor bulkCommandExecutor;
+    private final IndexedListCache<RoomSnapshot> roomListCache;
+    private final IndexedListCache<DeviceSnapshot> deviceListCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReportTemplateCache reportTemplateCache;
     private final XmlMapper xmlMapper = new XmlMapper();
 
-    public RoomService(RoomRepository roomRepository, DeviceRepository deviceRepository, ModeRepository modeRepository, UserRepository userRepository, TgBotService botService) {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${import.chunk-size}")
+    private int importChunkSize;
+
+    public RoomService(RoomRepository roomRepository, DeviceRepository deviceRepository, ModeRepository modeRepository, UserRepository userRepository, TgBotService botService, DeviceBulkCommandExecutor bulkCommandExecutor, IndexedListCache<RoomSnapshot> roomListCache, IndexedListCache<DeviceSnapshot> deviceListCache, ReportTemplateCache reportTemplateCache, ApplicationEventPublisher eventPublisher) {
         this.roomRepository = roomRepository;
         this.deviceRepository = deviceRepository;
         this.modeRepository = modeRepository;
         this.userRepository = userRepository;
         this.botService = botService;
+        this.bulkCommandExecutor = bulkCommandExecutor;
+        this.roomListCache = roomListCache;
+        this.deviceListCache = deviceListCache;
+        this.reportTemplateCache = reportTemplateCache;
+        this.eventPublisher = eventPublisher;
         xmlMapper.enable(com.fasterxml.jackson.databind.SerializationFeature.INDENT_OUTPUT);
     }
     
     @Transactional(readOnly = true)
-    @Cacheable(value="rooms", key="#root.methodName")
-    public List<Room> getAll() {
+    public List<RoomSnapshot> getAll() {
         logger.debug("Get all rooms");
-        return roomRepository.findAll();
+        return roomListCache.getAll(roomRepository::findAllSnapshots);
     }
 
     public List<Room> getAllByTitle(String title) {
@@ -82,12 +116,14 @@ public class RoomService {
 
     @Transactional(readOnly = true)
     @Cacheable(value="room", key="#id")
-    public Room getById(Long id) {
+    public RoomSnapshot getById(Long id) {
         logger.debug("Get room with id: {}", id);
-        return roomRepository.findById(id).orElse(null);
+        return roomRepository.findById(id).map(RoomSnapshot::from).orElse(null);
     }
 
-    public Room update(Long id, RoomDto roomDto) {
+    @CachePut(value="room", key="#id")
+    @Transactional
+    public RoomSnapshot update(Long id, RoomDto roomDto) {
         return roomRepository.findById(id).map(existingRoom -> {
             logger.info("Start Update room operation");
             existingRoom.setTitle(roomDto.title());
@@ -109,8 +145,10 @@ public class RoomService {
                 logger.debug("No manager Id {} in request. Set 'null' manager", roomDto.managerId());
                 existingRoom.setManager(null);
             }
+            RoomSnapshot snapshot = RoomSnapshot.from(roomRepository.saveAndFlush(existingRoom)); // после flush снимок получает новую версию
+            roomListCache.put(snapshot);
             logger.info("Update comleted successfully for Room {}", id);
-            return roomRepository.save(existingRoom);
+            return snapshot;
         }).orElseThrow(() -> {
             logger.warn("Error to update mode with id: {}", id);
             return new ResourceNotFoundException("Error to update room with id: " + id);
@@ -118,8 +156,8 @@ public class RoomService {
     }
 
     @Caching(evict = {
-        @CacheEvict(value="rooms", allEntries=true),
-        @CacheEvict(value="room", key="#id")
+        @CacheEvict(value="room", key="#id"),
+        @CacheEvict(value="device", allEntries=true) // устройства комнаты удаляются каскадно
     })
     @Transactional
     public boolean deleteById(Long id) {
@@ -127,6 +165,9 @@ public class RoomService {
         logger.debug("Try to find room with Id {}", id);
         if (roomRepository.existsById(id)) {
             roomRepository.deleteById(id);
+            roomListCache.remove(id);
+            deviceListCache.invalidate();
+            eventPublisher.publishEvent(DeviceChangedEvent.reload());
             logger.info("Delete room with Id {} completed successfully", id);
             return true;
         }
@@ -135,8 +176,8 @@ public class RoomService {
     }
 
     @Transactional
-    @CacheEvict(value="rooms", allEntries=true)
-    public Room create (RoomDto roomDto) {
+    @CachePut(value="room", key="#result.id")
+    public RoomSnapshot create (RoomDto roomDto) {
         logger.info("Start Create room operation");
         Room room = new Room();
         room.setTitle(roomDto.title());
@@ -150,97 +191,93 @@ public class RoomService {
             room.setManager(null);
         }
         roomRepository.save(room);
+        RoomSnapshot snapshot = RoomSnapshot.from(room);
+        roomListCache.put(snapshot);
         logger.info("Update comleted successfully for Room {}", room.getId());
-        return room;
+        return snapshot;
     }
 
     public Page<Room> getByFilter(String title, String location, Integer max_capacity, Integer min_capacity, Pageable pageable) {
         return roomRepository.findAll(RoomSpecifications.filter(title, location, max_capacity, min_capacity), pageable);
     }
 
+    // Курсорная пагинация: глубокие страницы стоят столько же, сколько первая
+    @Transactional(readOnly = true)
+    public CursorPageDto<RoomSnapshot> getByFilterCursor(String title, String location, Integer max_capacity, Integer min_capacity,
+            String sort, String cursor, int size, boolean withTotal) {
+        return KeysetPager.fetch(roomRepository, RoomSpecifications.filter(title, location, max_capacity, min_capacity),
+            sort, cursor, size, withTotal, Room::getId, Room::getTitle, RoomSnapshot::from);
+    }
+
     
-    @Transactional
-    @CacheEvict(value="devices", allEntries=true)
-    public List<Device> getDevicesInRoom(Long id) {
+    // Проекция по индексу device.room_id, а не ленивая коллекция Room.devices или фильтр всего списка устройств
+    @Transactional(readOnly = true)
+    public List<DeviceSnapshot> getDevicesInRoom(Long id) {
         logger.info("Get all devices in room with Id {}", id);
-        return roomRepository.findById(id).orElse(null).getDevices();
+        checkRoomExists(id);
+        return deviceRepository.findSnapshotsByRoomId(id);
+    }
+
+    private void checkRoomExists(Long id) {
+        if (!roomRepository.existsById(id)) {
+            logger.warn("Room not found with id: {}", id);
+            throw new ResourceNotFoundException("Room not found with id: " + id);
+        }
     }
 
     @Transactional
-    @CacheEvict(value="devices", allEntries=true)
-    public List<Device> turnOffDevicesInRoom(Long id) {
+    public BulkCommandResultDto turnOffDevicesInRoom(Long id) {
         logger.info("Start 'Turn off devices in room' operation");
-        List<Device> device_to_change = roomRepository.findById(id).orElse(null).getDevices();
-        logger.debug("Founded {} devices in room with Id {}", device_to_change.size(), id);
-        for (Device dev : device_to_change) {
-            dev.setActive(false);
-            deviceRepository.save(dev);
-        }
-        logger.info("All devices activity in room {} was changed to false", id);
-        return device_to_change;
+        checkRoomExists(id);
+        BulkCommandResultDto result = bulkCommandExecutor.setActiveInRoom(id, false);
+        logger.info("All devices activity in room {} was changed to false ({} of {} changed)", id, result.changedIds().size(), result.total());
+        return result;
     }
 
     @Transactional
-    @CacheEvict(value="devices", allEntries=true)
-    public List<Device> turnOnDevicesInRoom(Long id) {
+    public BulkCommandResultDto turnOnDevicesInRoom(Long id) {
         logger.info("Start 'Turn on devices in room' operation");
-        List<Device> device_to_change = roomRepository.findById(id).orElse(null).getDevices();
-        logger.debug("Founded {} devices in room with Id {}", device_to_change.size(), id);
-        for (Device dev : device_to_change) {
-            dev.setActive(true);
-            deviceRepository.save(dev);
-        }
-        logger.info("All devices activity in room {} was changed to true", id);
-        return device_to_change;
+        checkRoomExists(id);
+        BulkCommandResultDto result = bulkCommandExecutor.setActiveInRoom(id, true);
+        logger.info("All devices activity in room {} was changed to true ({} of {} changed)", id, result.changedIds().size(), result.total());
+        return result;
     }
 
     @Transactional
-    @Caching(evict = {
-        @CacheEvict(value="devices", allEntries=true),
-        @CacheEvict(value="modes", key="#id")
-    })
-    public List<Device> switchDevicesModeInRoom(Long roomId, Long modeId) {
+    public BulkCommandResultDto switchDevicesModeInRoom(Long roomId, Long modeId) {
         logger.info("Start 'Switch devices mode in room' operation");
-        List<Device> device_to_change = roomRepository.findById(roomId).orElse(null).getDevices();
-        logger.debug("Founded {} devices in room with Id {}", device_to_change.size(), roomId);
+        checkRoomExists(roomId);
         Mode newMode = modeRepository.findById(modeId).orElseThrow(() -> new ResourceNotFoundException("Mode not found with id: " + modeId));
-        for (Device dev : device_to_change) {
-            dev.setMode(newMode);
-            deviceRepository.save(dev);
-        }
-        logger.info("All devices mode in room {} was changed to mode {} with Id {}", roomId, newMode.getTitle(), modeId);
-        return device_to_change;
+        BulkCommandResultDto result = bulkCommandExecutor.setModeInRoom(roomId, newMode);
+        logger.info("All devices mode in room {} was changed to mode {} with Id {} ({} of {} changed)", roomId, newMode.getTitle(), modeId, result.changedIds().size(), result.total());
+        return result;
     }
 
-    private RoomsExportWrapper createExportWrapper(List<Room> rooms) {
-        List<RoomDto> roomsDto_to_export = rooms.stream()
-            .map(room -> new RoomDto(
-                room.getTitle(),
-                room.getLocation(),
-                room.getCapacity(),
-                room.getManager().getId()
-            ))
-            .toList();
-        
-        RoomsExportWrapper wrapper = new RoomsExportWrapper();
-        wrapper.setRooms(roomsDto_to_export);
-        wrapper.setTotalCount(roomsDto_to_export.size());
-        return wrapper;
+    // NDJSON по одной записи на строку: при загруженном кэше списка читается он, иначе поток из БД с fetch size
+    @Transactional(readOnly = true)
+    public long writeRoomsNdjson(OutputStream out, Set<String> fields) {
+        List<RoomSnapshot> cached = roomListCache.peek();
+        try (Stream<RoomSnapshot> rooms = cached != null ? cached.stream() : roomRepository.streamAllSnapshots()) {
+            long written = NdjsonWriter.write(out, rooms, fields);
+            logger.debug("NDJSON stream finished, {} rooms written", written);
+            return written;
+        } catch (Exception e) {
+            logger.warn("NDJSON streaming error: {}", e.getMessage());
+            throw new RuntimeException("Error of NDJSON streaming", e);
+        }
     }
 
+    // Потоковая запись: DTO читаются из БД порциями и сразу пишутся в поток, память не зависит от числа записей
     @Transactional(readOnly = true)
-    public String exportRoomsListToXmlString() {
-        logger.info("Start room exporting to string operation");
-
-        List<Room> rooms_to_export = roomRepository.findAll();
-        logger.debug("{} rooms was founded", rooms_to_export.size());
-        
-        RoomsExportWrapper wrapper = createExportWrapper(rooms_to_export);
-        
-        try {
-            String xml = xmlMapper.writeValueAsString(wrapper);
-            logger.debug("XML export to string successfully finished");
-            return xml;
+    public long writeRoomsXml(OutputStream out) {
+        logger.info("Start room exporting to stream operation");
+
+        long totalCount = roomRepository.count();
+        try (Stream<RoomDto> rooms_to_export = roomRepository.streamAllForExport()) {
+            long written = XmlExportWriter.write(xmlMapper, out, "SmartHomeSystem-Rooms", "room",
+                totalCount, new RoomsExportWrapper.SystemInfo(), rooms_to_export);
+            logger.debug("XML export to stream successfully finished, {} rooms written", written);
+            return written;
         } catch (Exception e) {
             logger.warn("Formating to XML error: {}", e.getMessage(), e);
             throw new RuntimeException("Error of export to XML", e);
@@ -248,7 +285,7 @@ public class RoomService {
     }
 
     @Transactional(readOnly=true)
-    public String exportRoomsListToXmlFile(String pathToFile, String fileName) {
+    public Path exportRoomsListToXmlFile(String pathToFile, String fileName) {
         logger.info("Start rooms exporting to file operation");
 
         try {
@@ -258,13 +295,12 @@ public class RoomService {
             Path filePath = fileDir.resolve(fileName + ".xml"); // Соединяем путь и имя файла
             logger.debug("Full path to file created: {}", filePath);
 
-            String xml = exportRoomsListToXmlString();
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(filePath))) {
+                writeRoomsXml(out);
+            }
 
-            logger.debug("Try to write XML string to file: {}", filePath);
-            Files.writeString(filePath, xml);
-            
             logger.info("Rooms data successfully exported to XML file {}", filePath);
-            return xml;
+            return filePath;
         }
         catch (Exception e) {
             logger.warn("Export to file error: {}", e.getMessage(), e);
@@ -285,9 +321,65 @@ public class RoomService {
         }
     }
 
+    // Импорт порции комнат: существующие комнаты и менеджеры загружаются заранее IN запросами,
+    // вставки и обновления определяются в памяти и записываются одним сбросом
+    private ImportResultDto importRoomChunk(List<RoomDto> items) {
+        Set<String> titles = new HashSet<>();
+        Set<Long> managerIds = new HashSet<>();
+        for (RoomDto item : items) {
+            if (item.title() != null) titles.add(item.title());
+            if (item.managerId() != null) managerIds.add(item.managerId());
+        }
+
+        Map<String, Room> roomsByTitle = new HashMap<>();
+        roomRepository.findAllByTitleIn(titles).forEach(room -> roomsByTitle.put(room.getTitle(), room));
+        Map<Long, User> managersById = userRepository.findAllById(managerIds).stream()
+            .collect(Collectors.toMap(User::getId, Function.identity()));
+        logger.debug("Preloaded {} rooms, {} managers for import", roomsByTitle.size(), managersById.size());
+
+        List<Room> roomsToCreate = new ArrayList<>();
+        List<String> failedTitles = new ArrayList<>();
+        int created = 0;
+        int updated = 0;
+        for (RoomDto item : items) {
+            if (item.title() == null || item.title().isBlank() || item.title().length() > 150
+                || item.location() == null || item.location().isBlank() || item.location().length() > 150) {
+                logger.warn("Error to add Room {} to DB: wrong title or location", item.title());
+                failedTitles.add(item.title());
+                continue;
+            }
+
+            Room room = roomsByTitle.get(item.title());
+            boolean isNew = room == null;
+            if (isNew) {
+                room = new Room();
+                room.setTitle(item.title());
+            }
+            room.setLocation(item.location());
+            room.setCapacity(item.capacity());
+            // как и в create/update: неизвестный менеджер заменяется на 'null'
+            room.setManager(item.managerId() != null ? managersById.get(item.managerId()) : null);
+
+            if (isNew) {
+                roomsToCreate.add(room);
+                roomsByTitle.put(room.getTitle(), room); // повтор названия в файле обновит эту же комнату
+                created++;
+                logger.debug("Room imported to DB: {}", item.title());
+            }
+            else {
+                updated++;
+                logger.debug("Room updated in DB: {}", item.title());
+            }
+        }
+
+        roomRepository.saveAll(roomsToCreate);
+        roomRepository.flush();
+        return new ImportResultDto(created, updated, failedTitles.size(), failedTitles);
+    }
+
     @Transactional
-    @CacheEvict(value="rooms", allEntries=true)
-    public List<Room> importRoomsListFromXmlFile(MultipartFile file) {
+    @CacheEvict(value="room", allEntries=true)
+    public ImportResultDto importRoomsListFromXmlFile(MultipartFile file) {
         logger.info("Start room importing from file operation");
         validateFile(file);
 
@@ -298,33 +390,19 @@ public class RoomService {
             Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
             logger.info("File copied with path: {}", filePath);
 
-            try (InputStream fileByteStream = file.getInputStream()) {
-                RoomListImportDto xmlDto = xmlMapper.readValue(fileByteStream, RoomListImportDto.class);
-                List<RoomDto> roomToImport = xmlDto.getRooms();
-
-                List<Room> importedRooms = new ArrayList<>();
-
-                for (int i = 0; i < roomToImport.size(); i++) {
-                    RoomDto item = roomToImport.get(i);
-                    List<Room> roomsWithSameName = roomRepository.findAllByTitle(item.title());
-                    try {
-                        if (roomsWithSameName.size() == 0 || roomsWithSameName == null) {
-                            importedRooms.add(create(item));
-                            
-                            logger.debug("Room imported to DB: {}", item.title());
-                        }
-                        else {
-                            importedRooms.add(update(roomsWithSameName.get(0).getId(), item));
-                            
-                            logger.debug("Room updated in DB: {}", item.title());
-                        }
-                        
-                    } catch (Exception e) {
-                        logger.warn("Error to add Room {} to DB", item.title());
-                    }
+            // Сохраненный файл читается потоком порциями по importChunkSize записей
+            try (XmlRecordReader<RoomDto> recordReader = new XmlRecordReader<>(xmlMapper, filePath, "room", RoomDto.class)) {
+                roomListCache.invalidate(); // после импорта список загрузится заново одним запросом
+                ImportResultDto result = ImportResultDto.empty();
+                List<RoomDto> roomChunk = recordReader.readChunk(importChunkSize);
+                while (!roomChunk.isEmpty()) {
+                    result = result.plus(importRoomChunk(roomChunk));
+                    entityManager.clear(); // порция уже записана в БД, контекст персистентности не растет от порции к порции
+                    logger.info("Rooms import progress: {} records processed (~{}% of file)", recordReader.getRecordsRead(), recordReader.getProgressPercent());
+                    roomChunk = recordReader.readChunk(importChunkSize);
                 }
-                logger.info("Rooms data successfully imported from XML file {}", filePath);
-                return importedRooms;
+                logger.info("Rooms data successfully imported from XML file {}: {} created, {} updated, {} failed", filePath, result.created(), result.updated(), result.failed());
+                return result;
             }
             catch (Exception e) {
                 logger.warn("Error of opening XML file: {}", e.getMessage(), e);
@@ -338,33 +416,22 @@ public class RoomService {
     }
 
     public String getRoomDevicesNames (Room room) {
-        String devicesNames = "";
-        for (int i = 0; i < room.getDevices().size(); i++) {
-            if (devicesNames != "") {
-                devicesNames += ", ";
-            }
-            devicesNames += room.getDevices().get(i).getTitle();
-        }
-        return devicesNames;
+        return room.getDevices().stream()
+            .map(Device::getTitle)
+            .collect(Collectors.joining(", "));
     }
     
+    // PDF пишется сразу в поток (файл задания отчёта), без сборки всего документа в byte[].
+    // generatedBy передаётся явно, т.к. отчёт строится в потоке исполнителя без SecurityContext
     @Transactional(readOnly=true)
-    public byte[] generateRoomPdfReport() {
+    public void writeRoomPdfReport(OutputStream out, String generatedBy) {
         logger.info("Start room report creating");
         try {
-            InputStream templateStream = new ClassPathResource("reportPdfConfig/roomReportConfig.jrxml").getInputStream(); // загрузка шаблона
-            logger.debug("Pdf template loaded");
-
-            JasperReport jasperReport = JasperCompileManager.compileReport(templateStream);
-            logger.debug("Pdf template compiled");
-
-            List<RoomReportDto> reportData = roomRepository.findAll().stream().map(room -> new RoomReportDto(
-                room.getTitle(),
-                room.getLocation(),
-                room.getCapacity(),
-                room.getManager().getUsername(),
-                getRoomDevicesNames(room)
-            )).toList();
+            long start = System.nanoTime();
+            JasperReport jasperReport = reportTemplateCache.get(ReportTemplateCache.ROOM_REPORT); // шаблон компилируется один раз
+            logger.debug("Pdf template taken from cache");
+
+            List<RoomReportDto> reportData = roomRepository.findReportRows();
             logger.debug("Data taken from DB and change to RoomReportDto");
 
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(reportData);
@@ -372,14 +439,14 @@ public class RoomService {
 
             Map<String, Object> parameters = new HashMap<>();
             parameters.put("reportTitle", "Report about rooms of Smart Home System");
-            parameters.put("generatedBy", SecurityContextHolder.getContext().getAuthentication().getName());
+            parameters.put("generatedBy", generatedBy);
             logger.debug("Pdf parametrs entered");
 
             JasperPrint jasperPrint = JasperFillManager.fillReport(
                 jasperReport, parameters, dataSource);
             
-            logger.info("Rooms data report successfully created");
-            return JasperExportManager.exportReportToPdf(jasperPrint);
+            JasperExportManager.exportReportToPdfStream(jasperPrint, out);
+            logger.info("Rooms data report successfully created in {} ms", (System.nanoTime() - start) / 1_000_000);
         }
         catch (Exception e) {
             logger.warn("Room report creating error: {}", e.getMessage(), e);
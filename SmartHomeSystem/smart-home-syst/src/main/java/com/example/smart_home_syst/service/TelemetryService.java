@@ -0,0 +1,215 @@
+package com.example.smart_home_syst.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.smart_home_syst.dto.TelemetryIngestResultDto;
+import com.example.smart_home_syst.dto.TelemetryPointDto;
+import com.example.smart_home_syst.dto.TelemetryReadingDto;
+import com.example.smart_home_syst.enumerator.TelemetryResolution;
+import com.example.smart_home_syst.repository.DeviceRepository;
+import com.example.smart_home_syst.repository.ModeRepository;
+import com.example.smart_home_syst.repository.RoomRepository;
+import com.example.smart_home_syst.repository.TelemetryRepository;
+
+import jakarta.annotation.PreDestroy;
+
+// Приём и выдача показаний мощности устройств.
+// Запрос на приём только проверяет показания и кладет их в ограниченный буфер; запись идёт фоном пачками:
+// сырые показания одним batch insert, агрегаты по минутам и часам - предварительно свёрнутыми в памяти
+// upsert'ами, по одной строке на устройство и интервал. Так нагрузка на БД растёт с числом устройств,
+// а не с частотой показаний
+@Service
+public class TelemetryService {
+    private final TelemetryRepository telemetryRepository;
+    private final DeviceRepository deviceRepository;
+    private final RoomRepository roomRepository;
+    private final ModeRepository modeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<TelemetryReadingDto> buffer;
+    private final int batchSize;
+    private final int rawRetentionDays;
+    private final int minuteRetentionDays;
+    private final int maxRawPoints;
+    private final Map<TelemetryResolution, Duration> maxRanges;
+    private static final Logger logger = LoggerFactory.getLogger(TelemetryService.class);
+
+    public TelemetryService(TelemetryRepository telemetryRepository, DeviceRepository deviceRepository,
+                            RoomRepository roomRepository, ModeRepository modeRepository, TransactionTemplate transactionTemplate,
+                            @Value("${telemetry.buffer-capacity}") int bufferCapacity,
+                            @Value("${telemetry.batch-size}") int batchSize,
+                            @Value("${telemetry.raw-retention-days}") int rawRetentionDays,
+                            @Value("${telemetry.minute-retention-days}") int minuteRetentionDays,
+                            @Value("${telemetry.max-raw-points}") int maxRawPoints,
+                            @Value("${telemetry.max-range-days.minute}") int maxMinuteRangeDays,
+                            @Value("${telemetry.max-range-days.hour}") int maxHourRangeDays) {
+        this.telemetryRepository = telemetryRepository;
+        this.deviceRepository = deviceRepository;
+        this.roomRepository = roomRepository;
+        this.modeRepository = modeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        this.batchSize = batchSize;
+        this.rawRetentionDays = rawRetentionDays;
+        this.minuteRetentionDays = minuteRetentionDays;
+        this.maxRawPoints = maxRawPoints;
+        this.maxRanges = Map.of(
+            TelemetryResolution.MINUTE, Duration.ofDays(maxMinuteRangeDays),
+            TelemetryResolution.HOUR, Duration.ofDays(maxHourRangeDays));
+    }
+
+    // RejectedExecutionException - буфер заполнен, запись не успевает за приёмом
+    public TelemetryIngestResultDto ingest(List<TelemetryReadingDto> readings) {
+        Instant now = Instant.now();
+        Set<Long> requestedIds = new HashSet<>();
+        readings.stream().map(TelemetryReadingDto::deviceId).filter(Objects::nonNull).forEach(requestedIds::add);
+        Set<Long> knownIds = requestedIds.isEmpty() ? Set.of() : new HashSet<>(deviceRepository.findExistingIds(requestedIds));
+
+        List<TelemetryReadingDto> accepted = new ArrayList<>(readings.size());
+        int rejected = 0;
+        for (TelemetryReadingDto reading : readings) {
+            if (reading.deviceId() == null || reading.power() == null || !knownIds.contains(reading.deviceId())
+                    || reading.power().isNaN() || reading.power().isInfinite()) {
+                rejected++;
+                continue;
+            }
+            accepted.add(reading.timestamp() != null ? reading : new TelemetryReadingDto(reading.deviceId(), now, reading.power()));
+        }
+
+        if (buffer.remainingCapacity() < accepted.size()) {
+            logger.warn("Telemetry buffer is full ({} queued), {} readings rejected", buffer.size(), accepted.size());
+            throw new RejectedExecutionException("Telemetry buffer is full");
+        }
+        int queued = 0;
+        for (TelemetryReadingDto reading : accepted) {
+            if (buffer.offer(reading)) { // параллельные запросы могли занять место после проверки
+                queued++;
+            }
+        }
+        rejected += accepted.size() - queued;
+
+        List<Long> unknownIds = requestedIds.stream().filter(id -> !knownIds.contains(id)).sorted().toList();
+        return new TelemetryIngestResultDto(queued, rejected, unknownIds);
+    }
+
+    @Scheduled(fixedDelayString = "${telemetry.flush-interval-ms}")
+    public void flush() {
+        List<TelemetryReadingDto> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            try {
+                writeBatch(batch);
+            } catch (RuntimeException e) { // пачка теряется, но следующие пишутся: буфер не должен расти из-за одной ошибки.
+                // Показания удалённых устройств сюда не приводят - их строки пропускаются при вставке
+                logger.warn("Telemetry batch of {} readings was not written: {}", batch.size(), e.getMessage(), e);
+            }
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void writeBatch(List<TelemetryReadingDto> batch) {
+        List<TelemetryRepository.Rollup> minutes = rollup(batch, ChronoUnit.MINUTES);
+        List<TelemetryRepository.Rollup> hours = rollup(batch, ChronoUnit.HOURS);
+        transactionTemplate.executeWithoutResult(status -> {
+            telemetryRepository.insertReadings(batch);
+            telemetryRepository.upsertRollups(TelemetryResolution.MINUTE, minutes);
+            telemetryRepository.upsertRollups(TelemetryResolution.HOUR, hours);
+        });
+        logger.debug("Telemetry batch written: {} readings, {} minute and {} hour rollups", batch.size(), minutes.size(), hours.size());
+    }
+
+    // Свертка пачки по (устройство, интервал); порядок ключей стабилен, поэтому строки блокируются в одном порядке
+    private static List<TelemetryRepository.Rollup> rollup(List<TelemetryReadingDto> batch, ChronoUnit unit) {
+        Map<String, TelemetryRepository.Rollup> rollups = new LinkedHashMap<>();
+        batch.stream()
+            .sorted(Comparator.comparing(TelemetryReadingDto::deviceId).thenComparing(TelemetryReadingDto::timestamp))
+            .forEach(reading -> {
+                Instant bucket = reading.timestamp().truncatedTo(unit);
+                double power = reading.power();
+                rollups.merge(reading.deviceId() + "@" + bucket,
+                    new TelemetryRepository.Rollup(reading.deviceId(), bucket, power, power, power, 1),
+                    (a, b) -> new TelemetryRepository.Rollup(a.deviceId(), a.bucket(), a.sum() + b.sum(),
+                        Math.min(a.min(), b.min()), Math.max(a.max(), b.max()), a.samples() + b.samples()));
+            });
+        return new ArrayList<>(rollups.values());
+    }
+
+    // null - устройство не найдено
+    public List<TelemetryPointDto> getDeviceSeries(Long deviceId, Instant from, Instant to, TelemetryResolution resolution) {
+        if (!deviceRepository.existsById(deviceId)) {
+            return null;
+        }
+        checkRange(from, to, resolution);
+        if (resolution == TelemetryResolution.RAW) {
+            return telemetryRepository.findRawByDevice(deviceId, from, to, maxRawPoints);
+        }
+        return telemetryRepository.findRollupsByDevice(resolution, deviceId, from, to);
+    }
+
+    public List<TelemetryPointDto> getRoomSeries(Long roomId, Instant from, Instant to, TelemetryResolution resolution) {
+        if (!roomRepository.existsById(roomId)) {
+            return null;
+        }
+        return getGroupSeries(TelemetryRepository.BY_ROOM, roomId, from, to, resolution);
+    }
+
+    public List<TelemetryPointDto> getModeSeries(Long modeId, Instant from, Instant to, TelemetryResolution resolution) {
+        if (!modeRepository.existsById(modeId)) {
+            return null;
+        }
+        return getGroupSeries(TelemetryRepository.BY_MODE, modeId, from, to, resolution);
+    }
+
+    // Для групп устройств сырые показания не отдаются - только агрегаты
+    private List<TelemetryPointDto> getGroupSeries(String groupColumn, Long groupId, Instant from, Instant to, TelemetryResolution resolution) {
+        checkRange(from, to, resolution);
+        if (resolution == TelemetryResolution.RAW) {
+            throw new IllegalArgumentException("RAW resolution is available only for a single device");
+        }
+        return telemetryRepository.findRollupsByDeviceGroup(resolution, groupColumn, groupId, from, to);
+    }
+
+    // Агрегаты читаются без limit, поэтому период ограничен: не больше max-range-days точек на устройство.
+    // RAW ограничен числом точек (max-raw-points)
+    private void checkRange(Instant from, Instant to, TelemetryResolution resolution) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        Duration maxRange = maxRanges.get(resolution);
+        if (maxRange != null && Duration.between(from, to).compareTo(maxRange) > 0) {
+            throw new IllegalArgumentException("Period for " + resolution + " resolution must not exceed " + maxRange.toDays() + " days");
+        }
+    }
+
+    // Сырые показания нужны только для недавних графиков, минутные агрегаты - дольше, часовые хранятся всегда
+    @Scheduled(cron = "${telemetry.cleanup.cron}")
+    public void cleanup() {
+        Instant now = Instant.now();
+        int readings = telemetryRepository.deleteReadingsBefore(now.minus(Duration.ofDays(rawRetentionDays)));
+        int minutes = telemetryRepository.deleteRollupsBefore(TelemetryResolution.MINUTE, now.minus(Duration.ofDays(minuteRetentionDays)));
+        logger.info("Telemetry cleanup: {} raw readings and {} minute rollups deleted", readings, minutes);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.smart_home_syst.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.smart_home_syst.jwt.RevokedTokenStore;
+import com.example.smart_home_syst.model.Token;
+import com.example.smart_home_syst.repository.TokenRepository;
+import com.example.smart_home_syst.util.TokenHashUtil;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Обслуживание таблицы токенов: заполнение хэшей у старых записей, пересборка хранилища отозванных токенов
+// и периодическое удаление истёкших токенов порциями
+@Service
+public class TokenMaintenanceService {
+    private static final Logger logger = LoggerFactory.getLogger(TokenMaintenanceService.class);
+    private final TokenRepository tokenRepository;
+    private final RevokedTokenStore revokedTokenStore;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicLong tokenTableSize = new AtomicLong();
+
+    @Value("${jwt.purge.chunk-size}")
+    private int purgeChunkSize;
+
+    public TokenMaintenanceService(TokenRepository tokenRepository, RevokedTokenStore revokedTokenStore, TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.tokenRepository = tokenRepository;
+        this.revokedTokenStore = revokedTokenStore;
+        this.transactionTemplate = transactionTemplate;
+        Gauge.builder("tokens.table.size", tokenTableSize, AtomicLong::get).description("Rows in token table after last purge").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        fillMissingValueHashes();
+        revokedTokenStore.rebuild(tokenRepository.findActiveRevokedTokens(LocalDateTime.now()));
+        tokenTableSize.set(tokenRepository.count());
+        logger.info("Token store initialized: {} tokens in table", tokenTableSize.get());
+    }
+
+    // У токенов, созданных до появления колонки value_hash. Каждая порция читается и сохраняется в своей транзакции:
+    // после коммита её записи больше не попадают в выборку, поэтому прерванное заполнение продолжается без повторов и пропусков
+    private void fillMissingValueHashes() {
+        int filled = 0;
+        int chunk;
+        do {
+            chunk = transactionTemplate.execute(status -> {
+                List<Token> tokens = tokenRepository.findTop500ByValueHashIsNull();
+                tokens.stream().filter(token -> token.getValue() == null).forEach(tokenRepository::delete); // без значения токен не может быть использован
+                List<Token> withValue = tokens.stream().filter(token -> token.getValue() != null).toList();
+                withValue.forEach(token -> token.setValueHash(TokenHashUtil.hash(token.getValue())));
+                tokenRepository.saveAll(withValue);
+                return tokens.size();
+            });
+            filled += chunk;
+        } while (chunk > 0);
+        if (filled > 0) {
+            logger.info("Value hash filled for {} tokens", filled);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.purge.interval-ms}", initialDelayString = "${jwt.purge.interval-ms}")
+    public void purgeExpiredTokens() {
+        logger.info("Start expired tokens purge");
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = 0;
+        int chunk;
+        do {
+            chunk = tokenRepository.deleteExpiredChunk(now, purgeChunkSize);
+            deleted += chunk;
+        } while (chunk == purgeChunkSize);
+
+        revokedTokenStore.rebuild(tokenRepository.findActiveRevokedTokens(now));
+        tokenTableSize.set(tokenRepository.count());
+        logger.info("Expired tokens purge completed: {} tokens deleted, {} tokens left", deleted, tokenTableSize.get());
+    }
+}
@@ -12,7 +12,7 @@ public class DeviceSpecifications {
                 return null;
             }
             return criterialBuilder.like(criterialBuilder.lower(root.get("title")), 
-            "%"+title.trim().toLowerCase()+"%");
+            LikePatterns.contains(title), LikePatterns.ESCAPE);
         };
     }
 
@@ -0,0 +1,37 @@
+package com.example.smart_home_syst.specifications;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+public class KeysetSpecifications {
+    public static final String BY_ID = "id";
+    public static final String BY_TITLE = "title";
+
+    // Условие "после курсора": по индексу ищется начало страницы вместо пропуска OFFSET строк.
+    // Id добавляется вторым ключом, чтобы записи с одинаковым значением поля не терялись между страницами
+    public static <T> Specification<T> after(String sortField, String lastValue, Long lastId) {
+        return (root, query, criterialBuilder) -> {
+            if (lastId == null) {
+                return null;
+            }
+            if (BY_ID.equals(sortField)) {
+                return criterialBuilder.greaterThan(root.get("id"), lastId);
+            }
+            return criterialBuilder.or(
+                criterialBuilder.greaterThan(root.get(sortField), lastValue),
+                criterialBuilder.and(
+                    criterialBuilder.equal(root.get(sortField), lastValue),
+                    criterialBuilder.greaterThan(root.get("id"), lastId)));
+        };
+    }
+
+    public static Sort sort(String sortField) {
+        return BY_ID.equals(sortField) ? Sort.by(BY_ID) : Sort.by(sortField, BY_ID);
+    }
+
+    public static void checkSortField(String sortField) {
+        if (!BY_ID.equals(sortField) && !BY_TITLE.equals(sortField)) {
+            throw new IllegalArgumentException("Cursor pagination supports sorting only by id or title");
+        }
+    }
+}
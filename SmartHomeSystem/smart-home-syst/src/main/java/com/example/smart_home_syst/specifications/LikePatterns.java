@@ -0,0 +1,17 @@
+package com.example.smart_home_syst.specifications;
+
+import java.util.Locale;
+
+// Шаблон LIKE "содержит подстроку" без учета регистра. % и _ из запроса экранируются и ищутся как обычные
+// символы - так же, как при поиске по кэшу списка в памяти (TrigramIndex)
+public class LikePatterns {
+    public static final char ESCAPE = '\\';
+
+    public static String contains(String value) {
+        String escaped = value.trim().toLowerCase(Locale.ROOT)
+            .replace("\\", "\\\\")
+            .replace("%", "\\%")
+            .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
@@ -12,7 +12,7 @@ public class ModeSpecifications {
                 return null;
             }
             return criterialBuilder.like(criterialBuilder.lower(root.get("title")), 
-            "%"+title.trim().toLowerCase()+"%");
+            LikePatterns.contains(title), LikePatterns.ESCAPE);
         };
     }
 
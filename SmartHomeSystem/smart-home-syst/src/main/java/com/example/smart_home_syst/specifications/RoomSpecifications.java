@@ -11,7 +11,7 @@ public class RoomSpecifications {
                 return null;
             }
             return criterialBuilder.like(criterialBuilder.lower(root.get("title")), 
-            "%"+title.trim().toLowerCase()+"%");
+            LikePatterns.contains(title), LikePatterns.ESCAPE);
         };
     }
 
@@ -21,7 +21,7 @@ public class RoomSpecifications {
                 return null;
             }
             return criterialBuilder.like(criterialBuilder.lower(root.get("location")), 
-            "%"+location.trim().toLowerCase()+"%");
+            LikePatterns.contains(location), LikePatterns.ESCAPE);
         };
     }
 
@@ -0,0 +1,31 @@
+package com.example.smart_home_syst.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Курсор keyset-пагинации: поле сортировки, значение этого поля и Id последней записи страницы.
+// Кодируется в base64url, чтобы его можно было передавать в query-параметре без экранирования
+public class CursorCodec {
+    public record Cursor(String sortField, String lastValue, Long lastId) {}
+
+    private static final String SEPARATOR = "\n";
+
+    public static String encode(String sortField, String lastValue, Long lastId) {
+        String raw = sortField + SEPARATOR + lastId + SEPARATOR + (lastValue != null ? lastValue : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Cursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 3); // значение идёт последним и может само содержать разделитель
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new Cursor(parts[0], parts[2], Long.valueOf(parts[1]));
+        }
+        catch (IllegalArgumentException e) { // сюда же попадает NumberFormatException
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.smart_home_syst.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Иерархическое колесо таймеров. Нижний уровень - wheelSize ячеек по tickMs, каждый следующий уровень
+// создается по необходимости и охватывает весь диапазон предыдущего одной ячейкой. Добавление и срабатывание
+// стоят O(1) независимо от числа таймеров, а не O(log n), как в очереди с приоритетом, и не требуют потока на таймер.
+// Дальний таймер лежит в верхнем уровне и по мере приближения времени опускается вниз (перекладывается в ячейку
+// нижнего уровня), пока не окажется в текущей ячейке нижнего уровня.
+// Отмена не поддерживается: владелец сверяет сработавший элемент со своим актуальным состоянием и пропускает устаревшие.
+// Доступ только под this, часы продвигаются вызовом advance из одного потока-тикера
+public class HierarchicalTimingWheel<T> {
+    private final Level<T> root;
+    private int size = 0;
+
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs) {
+        this.root = new Level<>(tickMs, wheelSize, startMs);
+    }
+
+    // false - время уже наступило (раньше текущей ячейки), элемент не добавлен и должен выполниться сразу
+    public synchronized boolean add(long expirationMs, T item) {
+        if (!root.add(new Entry<>(expirationMs, item))) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    // Продвигает часы до nowMs и возвращает наступившие элементы в порядке времени ячеек (точность - tickMs:
+    // элемент срабатывает, когда наступает начало его ячейки нижнего уровня).
+    // Пропущенные ячейки (поток-тикер задержался) обходятся по одной, поэтому ничего не теряется
+    public synchronized List<T> advance(long nowMs) {
+        List<T> due = new ArrayList<>();
+        while (root.currentTime + root.tickMs <= nowMs) {
+            long tickTime = root.currentTime + root.tickMs;
+            List<Level<T>> levels = new ArrayList<>();
+            for (Level<T> level = root; level != null; level = level.overflow) {
+                level.advanceClock(tickTime);
+                levels.add(level);
+            }
+            // Сверху вниз: элементы верхних уровней перекладываются вниз до того, как разбирается нижняя ячейка
+            for (int i = levels.size() - 1; i >= 0; i--) {
+                for (Entry<T> entry : levels.get(i).flushCurrent()) {
+                    if (!root.add(entry)) {
+                        due.add(entry.item());
+                        size--;
+                    }
+                }
+            }
+        }
+        return due;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private record Entry<T>(long expirationMs, T item) {}
+
+    private static final class Level<T> {
+        private final long tickMs;
+        private final int wheelSize;
+        private final long interval; // диапазон времени, который охватывает уровень целиком
+        private final List<List<Entry<T>>> buckets;
+        private final long[] bucketTimes; // начало интервала ячейки, по нему отличается текущий оборот колеса от следующего
+        private long currentTime; // кратно tickMs
+        private Level<T> overflow;
+
+        Level(long tickMs, int wheelSize, long startMs) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.currentTime = startMs - (startMs % tickMs);
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new ArrayList<>());
+            }
+            this.bucketTimes = new long[wheelSize];
+        }
+
+        boolean add(Entry<T> entry) {
+            long expiration = entry.expirationMs();
+            if (expiration < currentTime + tickMs) {
+                return false;
+            }
+            if (expiration < currentTime + interval) {
+                long virtualId = expiration / tickMs;
+                int index = (int) (virtualId % wheelSize);
+                buckets.get(index).add(entry);
+                bucketTimes[index] = virtualId * tickMs;
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level<>(interval, wheelSize, currentTime);
+            }
+            return overflow.add(entry);
+        }
+
+        void advanceClock(long timeMs) {
+            if (timeMs >= currentTime + tickMs) {
+                currentTime = timeMs - (timeMs % tickMs);
+            }
+        }
+
+        // Забирает элементы ячейки, интервал которой начался в текущий момент уровня
+        List<Entry<T>> flushCurrent() {
+            int index = (int) ((currentTime / tickMs) % wheelSize);
+            List<Entry<T>> bucket = buckets.get(index);
+            if (bucket.isEmpty() || bucketTimes[index] > currentTime) {
+                return List.of();
+            }
+            buckets.set(index, new ArrayList<>());
+            return bucket;
+        }
+    }
+}
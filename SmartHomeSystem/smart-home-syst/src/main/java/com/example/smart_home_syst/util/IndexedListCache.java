@@ -0,0 +1,395 @@
+package com.example.smart_home_syst.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Кэш списка "все записи", проиндексированный по Id. Вместо сброса всего списка при каждой записи
+// изменения применяются к нему точечно (put/remove) после коммита транзакции, поэтому чтения
+// остаются попаданиями в кэш даже при постоянных переключениях устройств.
+// Коммиты разных транзакций могут применяться не в том порядке, в котором выполнялись: put с версией ниже
+// уже сохранённой пропускается, а удалённый Id какое-то время помнится, чтобы опоздавший put его не вернул.
+// Список хранится порциями по Id: изменение копирует одну порцию, а не весь список, и чтение не пересобирает его.
+// Список не больше maxSize записей (больше - кэш отключается и чтения идут в БД) и перечитывается из БД
+// раз в refreshAfterMs, что исправляет возможное расхождение.
+// Версия ключей снимка (keyVersion) меняется, только когда запись добавлена, удалена или изменился её ключ поиска
+// (searchKey): пока она та же, позиции и ключи записей в снимках совпадают и построенный по ним индекс поиска актуален.
+// Метрики: list.cache.gets, list.cache.size,
+// list.cache.loads, list.cache.stale.puts с тегом cache
+public class IndexedListCache<T> {
+    private static final int CHUNK_SIZE = 512;
+    private final String name;
+    private final Function<T, Long> idGetter;
+    private final ToLongFunction<T> versionGetter;
+    private final Function<T, ?> searchKey;
+    private final int maxSize;
+    private final long refreshAfterMs;
+    private volatile Snapshot<T> snapshot; // null - список ещё не загружен или сброшен
+    // Поля ниже - только под this
+    private long generation = 0; // меняется при сбросе: загрузка, начатая до сброса, не устанавливается
+    private long keyVersions = 0;
+    private int activeLoads = 0;
+    private final List<Change<T>> loadJournal = new ArrayList<>(); // изменения за время загрузки, повторяются поверх неё
+    private final Map<Long, Long> removedAt = new HashMap<>(); // Id -> время удаления
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter loads;
+    private final Counter stalePuts;
+    private static final Logger logger = LoggerFactory.getLogger(IndexedListCache.class);
+
+    public IndexedListCache(String name, Function<T, Long> idGetter, ToLongFunction<T> versionGetter, Function<T, ?> searchKey,
+                            int maxSize, long refreshAfterMs, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.idGetter = idGetter;
+        this.versionGetter = versionGetter;
+        this.searchKey = searchKey;
+        this.maxSize = maxSize;
+        this.refreshAfterMs = refreshAfterMs;
+        this.hits = Counter.builder("list.cache.gets").tag("cache", name).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("list.cache.gets").tag("cache", name).tag("result", "miss").register(meterRegistry);
+        this.loads = Counter.builder("list.cache.loads").tag("cache", name).register(meterRegistry);
+        this.stalePuts = Counter.builder("list.cache.stale.puts").tag("cache", name)
+            .description("Puts skipped because the cached entry is newer").register(meterRegistry);
+        Gauge.builder("list.cache.size", this, IndexedListCache::size).tag("cache", name).register(meterRegistry);
+    }
+
+    public List<T> getAll(Supplier<List<T>> loader) {
+        Snapshot<T> current = fresh();
+        if (current != null) {
+            hits.increment();
+            return current;
+        }
+        misses.increment();
+
+        long loadGeneration;
+        synchronized (this) {
+            loadGeneration = generation;
+            activeLoads++;
+        }
+        List<T> loaded;
+        try {
+            loaded = loader.get();
+        } catch (RuntimeException e) {
+            finishLoad();
+            throw e;
+        }
+        loads.increment();
+        List<T> sorted = loaded.stream().sorted(Comparator.comparing(idGetter)).toList();
+        synchronized (this) {
+            try {
+                current = fresh();
+                if (current != null) {
+                    return current; // другой поток уже загрузил список
+                }
+                if (generation != loadGeneration) {
+                    return sorted; // за время загрузки кэш сброшен - отдаем прочитанное, но не кэшируем
+                }
+                if (sorted.size() > maxSize) {
+                    logger.warn("List cache '{}' disabled: {} entries exceed max size {}", name, sorted.size(), maxSize);
+                    return sorted;
+                }
+                long now = System.currentTimeMillis();
+                removedAt.values().removeIf(time -> now - time > refreshAfterMs);
+                Snapshot<T> built = Snapshot.of(sorted, idGetter, now, ++keyVersions);
+                // Загрузка могла прочитать строки до или после изменений, пришедших за это время; версии и
+                // отметки удаления делают повтор безопасным в обоих случаях
+                for (Change<T> change : loadJournal) {
+                    built = change.value() != null ? putIfNewer(built, change.value()) : built.without(change.id());
+                }
+                snapshot = built;
+                logger.debug("List cache '{}' loaded with {} entries", name, built.size());
+                return built;
+            } finally {
+                finishLoad();
+            }
+        }
+    }
+
+    // Текущий список без обращения к БД: null, если кэш ещё не загружен, сброшен или пора перечитать его
+    public List<T> peek() {
+        Snapshot<T> current = fresh();
+        if (current != null) {
+            hits.increment();
+        }
+        else {
+            misses.increment();
+        }
+        return current;
+    }
+
+    public void put(T value) {
+        AfterCommitUtil.run(() -> apply(List.of(new Change<>(idGetter.apply(value), value))));
+    }
+
+    public void putAll(Collection<T> values) {
+        List<Change<T>> changes = values.stream().map(value -> new Change<>(idGetter.apply(value), value)).toList();
+        AfterCommitUtil.run(() -> apply(changes));
+    }
+
+    public void remove(Long id) {
+        AfterCommitUtil.run(() -> apply(List.of(new Change<>(id, null))));
+    }
+
+    // Полный сброс - для операций, после которых точечное изменение невозможно (импорт, каскадное удаление)
+    public void invalidate() {
+        AfterCommitUtil.run(() -> {
+            synchronized (this) {
+                generation++;
+                loadJournal.clear();
+                snapshot = null;
+            }
+            logger.debug("List cache '{}' invalidated", name);
+        });
+    }
+
+    // Версия ключей снимка, полученного из getAll или peek; -1 - список не из кэша
+    public long keyVersion(List<T> list) {
+        return list instanceof Snapshot<T> current ? current.keyVersion : -1;
+    }
+
+    public int size() {
+        Snapshot<T> current = snapshot;
+        return current != null ? current.size() : 0;
+    }
+
+    private Snapshot<T> fresh() {
+        Snapshot<T> current = snapshot;
+        if (current == null || System.currentTimeMillis() - current.loadedAt >= refreshAfterMs) {
+            return null;
+        }
+        return current;
+    }
+
+    private synchronized void finishLoad() {
+        if (--activeLoads == 0) {
+            loadJournal.clear();
+        }
+    }
+
+    private synchronized void apply(List<Change<T>> changes) {
+        long now = System.currentTimeMillis();
+        for (Change<T> change : changes) {
+            if (change.value() == null) {
+                removedAt.put(change.id(), now);
+            }
+        }
+        if (removedAt.size() > CHUNK_SIZE) {
+            removedAt.values().removeIf(time -> now - time > refreshAfterMs);
+        }
+        if (activeLoads > 0) {
+            loadJournal.addAll(changes);
+        }
+        Snapshot<T> current = snapshot;
+        if (current == null) {
+            return;
+        }
+        boolean keysChanged = false;
+        for (Change<T> change : changes) {
+            Snapshot<T> next = change.value() != null ? putIfNewer(current, change.value()) : current.without(change.id());
+            keysChanged |= next != current && (change.value() == null || changesKey(current, change.value()));
+            current = next;
+        }
+        if (current.size() > maxSize) {
+            logger.warn("List cache '{}' dropped: {} entries exceed max size {}", name, current.size(), maxSize);
+            generation++;
+            snapshot = null;
+            return;
+        }
+        snapshot = keysChanged ? current.withKeyVersion(++keyVersions) : current;
+    }
+
+    private boolean changesKey(Snapshot<T> target, T value) {
+        T existing = target.find(idGetter.apply(value));
+        return existing == null || !Objects.equals(searchKey.apply(existing), searchKey.apply(value));
+    }
+
+    private Snapshot<T> putIfNewer(Snapshot<T> target, T value) {
+        Long id = idGetter.apply(value);
+        if (removedAt.containsKey(id)) {
+            stalePuts.increment();
+            return target;
+        }
+        T existing = target.find(id);
+        if (existing != null && versionGetter.applyAsLong(existing) > versionGetter.applyAsLong(value)) {
+            stalePuts.increment();
+            logger.debug("List cache '{}': stale put of entry {} skipped", name, id);
+            return target;
+        }
+        return target.with(id, value);
+    }
+
+    // value == null - удаление
+    private record Change<T>(Long id, T value) {}
+
+    // Неизменяемый список по возрастанию Id, разбитый на порции. Изменение копирует затронутую порцию
+    // и массив ссылок на порции (n / CHUNK_SIZE), остальные порции общие со старым снимком
+    private static final class Snapshot<T> extends AbstractList<T> implements RandomAccess {
+        private final Chunk[] chunks;
+        private final int[] offsets; // индекс первого элемента каждой порции в списке
+        private final int size;
+        private final long loadedAt;
+        private final long keyVersion;
+
+        private Snapshot(Chunk[] chunks, long loadedAt, long keyVersion) {
+            this.chunks = chunks;
+            this.offsets = new int[chunks.length];
+            int total = 0;
+            for (int i = 0; i < chunks.length; i++) {
+                offsets[i] = total;
+                total += chunks[i].ids.length;
+            }
+            this.size = total;
+            this.loadedAt = loadedAt;
+            this.keyVersion = keyVersion;
+        }
+
+        static <T> Snapshot<T> of(List<T> sortedById, Function<T, Long> idGetter, long loadedAt, long keyVersion) {
+            Chunk[] chunks = new Chunk[(sortedById.size() + CHUNK_SIZE - 1) / CHUNK_SIZE];
+            for (int i = 0; i < chunks.length; i++) {
+                List<T> part = sortedById.subList(i * CHUNK_SIZE, Math.min((i + 1) * CHUNK_SIZE, sortedById.size()));
+                long[] ids = new long[part.size()];
+                for (int j = 0; j < ids.length; j++) {
+                    ids[j] = idGetter.apply(part.get(j));
+                }
+                chunks[i] = new Chunk(ids, part.toArray());
+            }
+            return new Snapshot<>(chunks, loadedAt, keyVersion);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            Objects.checkIndex(index, size);
+            int position = Arrays.binarySearch(offsets, index);
+            int chunk = position >= 0 ? position : -position - 2; // пустых порций нет, смещения различны
+            return (T) chunks[chunk].values[index - offsets[chunk]];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        T find(long id) {
+            if (chunks.length == 0) {
+                return null;
+            }
+            Chunk chunk = chunks[chunkFor(id)];
+            int position = Arrays.binarySearch(chunk.ids, id);
+            return position >= 0 ? (T) chunk.values[position] : null;
+        }
+
+        Snapshot<T> withKeyVersion(long version) {
+            return new Snapshot<>(chunks, loadedAt, version);
+        }
+
+        Snapshot<T> with(long id, T value) {
+            if (chunks.length == 0) {
+                return new Snapshot<>(new Chunk[] { new Chunk(new long[] { id }, new Object[] { value }) }, loadedAt, keyVersion);
+            }
+            int index = chunkFor(id);
+            Chunk chunk = chunks[index];
+            int position = Arrays.binarySearch(chunk.ids, id);
+            if (position >= 0) {
+                Object[] values = chunk.values.clone();
+                values[position] = value;
+                return replace(index, new Chunk(chunk.ids, values));
+            }
+            int insertAt = -position - 1;
+            long[] ids = new long[chunk.ids.length + 1];
+            Object[] values = new Object[ids.length];
+            System.arraycopy(chunk.ids, 0, ids, 0, insertAt);
+            System.arraycopy(chunk.values, 0, values, 0, insertAt);
+            ids[insertAt] = id;
+            values[insertAt] = value;
+            System.arraycopy(chunk.ids, insertAt, ids, insertAt + 1, chunk.ids.length - insertAt);
+            System.arraycopy(chunk.values, insertAt, values, insertAt + 1, chunk.values.length - insertAt);
+            if (ids.length <= 2 * CHUNK_SIZE) {
+                return replace(index, new Chunk(ids, values));
+            }
+            // Переполненная порция делится пополам
+            int half = ids.length / 2;
+            Chunk[] result = new Chunk[chunks.length + 1];
+            System.arraycopy(chunks, 0, result, 0, index);
+            result[index] = new Chunk(Arrays.copyOfRange(ids, 0, half), Arrays.copyOfRange(values, 0, half));
+            result[index + 1] = new Chunk(Arrays.copyOfRange(ids, half, ids.length), Arrays.copyOfRange(values, half, values.length));
+            System.arraycopy(chunks, index + 1, result, index + 2, chunks.length - index - 1);
+            return new Snapshot<>(result, loadedAt, keyVersion);
+        }
+
+        Snapshot<T> without(long id) {
+            if (chunks.length == 0) {
+                return this;
+            }
+            int index = chunkFor(id);
+            Chunk chunk = chunks[index];
+            int position = Arrays.binarySearch(chunk.ids, id);
+            if (position < 0) {
+                return this;
+            }
+            if (chunk.ids.length == 1) {
+                Chunk[] result = new Chunk[chunks.length - 1];
+                System.arraycopy(chunks, 0, result, 0, index);
+                System.arraycopy(chunks, index + 1, result, index, chunks.length - index - 1);
+                return new Snapshot<>(result, loadedAt, keyVersion);
+            }
+            long[] ids = new long[chunk.ids.length - 1];
+            Object[] values = new Object[ids.length];
+            System.arraycopy(chunk.ids, 0, ids, 0, position);
+            System.arraycopy(chunk.values, 0, values, 0, position);
+            System.arraycopy(chunk.ids, position + 1, ids, position, ids.length - position);
+            System.arraycopy(chunk.values, position + 1, values, position, values.length - position);
+            return replace(index, new Chunk(ids, values));
+        }
+
+        private Snapshot<T> replace(int index, Chunk chunk) {
+            Chunk[] result = chunks.clone();
+            result[index] = chunk;
+            return new Snapshot<>(result, loadedAt, keyVersion);
+        }
+
+        // Последняя порция, первый Id которой не больше id (первая, если id меньше всех)
+        private int chunkFor(long id) {
+            int low = 0;
+            int high = chunks.length - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (chunks[middle].ids[0] <= id) {
+                    low = middle;
+                }
+                else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static final class Chunk {
+        private final long[] ids; // по возрастанию
+        private final Object[] values;
+
+        Chunk(long[] ids, Object[] values) {
+            this.ids = ids;
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.smart_home_syst.util;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+
+import com.example.smart_home_syst.dto.CursorPageDto;
+import com.example.smart_home_syst.specifications.KeysetSpecifications;
+
+// Постраничная выборка по курсору поверх обычных фильтров-спецификаций.
+// Стоимость страницы не зависит от её номера: нет OFFSET и нет COUNT(*), если итог не запрошен
+public class KeysetPager {
+    public static final int MAX_PAGE_SIZE = 200;
+
+    public static <E, R> CursorPageDto<R> fetch(JpaSpecificationExecutor<E> repository, Specification<E> filter,
+            String sortField, String cursor, int size, boolean withTotal,
+            Function<E, Long> idGetter, Function<E, String> titleGetter, Function<E, R> mapper) {
+        KeysetSpecifications.checkSortField(sortField);
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        Specification<E> seek = null;
+        if (cursor != null && !cursor.isBlank()) {
+            CursorCodec.Cursor position = CursorCodec.decode(cursor);
+            if (!sortField.equals(position.sortField())) {
+                throw new IllegalArgumentException("Cursor was issued for sorting by " + position.sortField());
+            }
+            seek = KeysetSpecifications.after(sortField, position.lastValue(), position.lastId());
+        }
+
+        // Берётся на одну запись больше, чтобы узнать о следующей странице без отдельного запроса
+        List<E> rows = repository.findBy(Specification.allOf(filter, seek),
+            query -> query.sortBy(KeysetSpecifications.sort(sortField)).limit(size + 1).all());
+        boolean hasNext = rows.size() > size;
+        List<E> page = hasNext ? rows.subList(0, size) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            E last = page.get(page.size() - 1);
+            String lastValue = KeysetSpecifications.BY_TITLE.equals(sortField) ? titleGetter.apply(last) : null;
+            nextCursor = CursorCodec.encode(sortField, lastValue, idGetter.apply(last));
+        }
+        Long total = withTotal ? repository.count(filter) : null;
+
+        return new CursorPageDto<>(page.stream().map(mapper).toList(), size, nextCursor, hasNext, total);
+    }
+}
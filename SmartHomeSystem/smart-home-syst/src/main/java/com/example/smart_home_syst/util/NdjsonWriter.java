@@ -0,0 +1,77 @@
+package com.example.smart_home_syst.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+// Потоковый вывод списков в формате NDJSON: каждая запись - отдельная строка JSON, пишется сразу в ответ.
+// Проекция (?fields=id,title) применяется фильтром Jackson, без промежуточных Map на каждую запись.
+// Отдельный ObjectMapper: фильтр навешивается на все классы и не должен влиять на обычные JSON-ответы
+public class NdjsonWriter {
+    private static final String PROJECTION_FILTER = "projection";
+    private static final ObjectMapper mapper = JsonMapper.builder()
+        .addMixIn(Object.class, ProjectionMixin.class)
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET) // поток ответа закрывает контейнер
+        .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE) // иначе каждая запись уходила бы отдельным chunk
+        .build();
+
+    @JsonFilter(PROJECTION_FILTER)
+    private interface ProjectionMixin {}
+
+    // null - все поля. Неизвестные поля отклоняются до начала вывода, чтобы клиент получил 400, а не обрезанный поток
+    public static Set<String> parseFields(String fields, Class<? extends Record> type) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> known = Arrays.stream(type.getRecordComponents())
+            .filter(component -> !component.getAccessor().isAnnotationPresent(JsonIgnore.class)) // служебные поля не выводятся
+            .map(RecordComponent::getName)
+            .collect(Collectors.toSet());
+        Set<String> requested = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!known.contains(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+            requested.add(name);
+        }
+        return requested.isEmpty() ? null : requested;
+    }
+
+    public static <T> long write(OutputStream out, Stream<T> items, Set<String> fields) throws IOException {
+        SimpleBeanPropertyFilter filter = fields == null
+            ? SimpleBeanPropertyFilter.serializeAll()
+            : SimpleBeanPropertyFilter.filterOutAllExcept(fields);
+        ObjectWriter writer = mapper.writer(new SimpleFilterProvider().addFilter(PROJECTION_FILTER, filter))
+            .withRootValueSeparator(""); // разделитель - перевод строки, пишется после каждой записи
+
+        long written = 0;
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            var iterator = items.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                written++;
+            }
+        }
+        return written;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.smart_home_syst.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Неизменяемый индекс триграмм для поиска подстроки без учета регистра по уже закэшированному списку.
+// Для каждой триграммы хранится возрастающий список позиций, поэтому поиск просматривает только кандидатов
+// с самой редкой триграммой запроса, а не весь список. Запросы короче 3 символов проверяются перебором.
+// Индекс хранит только позиции и ключи, а записи берутся из списка, переданного в search: это может быть
+// более новый снимок того же кэша, если в нём не менялись состав и ключи (та же keyVersion), а только другие поля.
+// Совпадение - подстрока без учета регистра, как у LIKE в DeviceSpecifications (% и _ - обычные символы)
+public class TrigramIndex<T> {
+    private static final int GRAM = 3;
+    private static final int[] NONE = new int[0];
+
+    private final long keyVersion;
+    private final String[] keys;
+    private final Map<String, int[]> postings;
+
+    public TrigramIndex(List<T> items, Function<T, String> keyGetter, long keyVersion) {
+        this.keyVersion = keyVersion;
+        this.keys = new String[items.size()];
+        Map<String, List<Integer>> building = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            String key = keyGetter.apply(items.get(i));
+            keys[i] = key != null ? key.toLowerCase(Locale.ROOT) : "";
+            for (String gram : grams(keys[i])) {
+                building.computeIfAbsent(gram, g -> new ArrayList<>()).add(i);
+            }
+        }
+        this.postings = new HashMap<>(building.size() * 2);
+        building.forEach((gram, positions) -> postings.put(gram, positions.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    public boolean isBuiltFor(long version) {
+        return keyVersion == version;
+    }
+
+    // Совпадения в порядке списка. items - снимок с той же keyVersion, по которой построен индекс
+    public List<T> search(String query, List<T> items) {
+        if (items.size() != keys.length) {
+            throw new IllegalArgumentException("List does not match the index");
+        }
+        String needle = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        if (needle.isEmpty()) {
+            return items;
+        }
+
+        int[] candidates = null;
+        if (needle.length() >= GRAM) {
+            for (String gram : grams(needle)) {
+                int[] positions = postings.getOrDefault(gram, NONE);
+                if (candidates == null || positions.length < candidates.length) {
+                    candidates = positions;
+                }
+                if (candidates.length == 0) {
+                    return List.of();
+                }
+            }
+        }
+
+        List<T> result = new ArrayList<>();
+        if (candidates == null) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].contains(needle)) {
+                    result.add(items.get(i));
+                }
+            }
+        }
+        else {
+            for (int i : candidates) {
+                if (keys[i].contains(needle)) { // триграммы дают кандидатов, точное совпадение проверяется здесь
+                    result.add(items.get(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            result.add(value.substring(i, i + GRAM));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,5 @@
+-- Индексы внешних ключей устройства: PostgreSQL не создает их сам, а выборки устройств комнаты и режима
+-- (списки, массовые команды, каскадное удаление) без них просматривают всю таблицу device.
+-- Скрипт выполняется при каждом старте после ddl-auto, поэтому все команды идемпотентны
+CREATE INDEX IF NOT EXISTS device_room_id_idx ON device (room_id);
+CREATE INDEX IF NOT EXISTS device_mode_id_idx ON device (mode_id);
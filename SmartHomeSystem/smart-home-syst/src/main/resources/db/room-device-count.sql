@@ -0,0 +1,5 @@
+-- Сверка счетчика устройств комнат с фактическим числом устройств при старте:
+-- заполняет столбец после его появления и исправляет расхождения, если данные менялись в обход приложения
+UPDATE room r SET device_count = c.devices
+FROM (SELECT r2.id, count(d.id) AS devices FROM room r2 LEFT JOIN device d ON d.room_id = r2.id GROUP BY r2.id) c
+WHERE r.id = c.id AND r.device_count IS DISTINCT FROM c.devices;
@@ -0,0 +1,9 @@
+-- Триграммные индексы для фильтров по подстроке: lower(x) LIKE '%...%' не может использовать btree,
+-- а GIN по gin_trgm_ops обслуживает такие условия без полного просмотра таблицы.
+-- Скрипт выполняется при каждом старте после ddl-auto, поэтому все команды идемпотентны
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS device_title_trgm_idx ON device USING gin (lower(title) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS room_title_trgm_idx ON room USING gin (lower(title) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS room_location_trgm_idx ON room USING gin (lower(location) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS mode_title_trgm_idx ON mode USING gin (lower(title) gin_trgm_ops);
@@ -0,0 +1,31 @@
+-- Телеметрия мощности устройств. Таблицы ведутся через JDBC (без сущностей JPA), поэтому создаются здесь.
+-- Сырые показания только дописываются: BRIN по времени почти не замедляет вставку и обслуживает удаление
+-- по сроку хранения, btree (device_id, ts) - выборку сырых точек одного устройства.
+-- Агрегаты по минутам и часам обновляются при каждой записи пачки (upsert с накоплением)
+CREATE TABLE IF NOT EXISTS device_reading (
+    device_id BIGINT NOT NULL REFERENCES device(id) ON DELETE CASCADE,
+    ts TIMESTAMPTZ NOT NULL,
+    power DOUBLE PRECISION NOT NULL
+);
+CREATE INDEX IF NOT EXISTS device_reading_ts_brin_idx ON device_reading USING brin (ts);
+CREATE INDEX IF NOT EXISTS device_reading_device_ts_idx ON device_reading (device_id, ts);
+
+CREATE TABLE IF NOT EXISTS device_power_minute (
+    device_id BIGINT NOT NULL REFERENCES device(id) ON DELETE CASCADE,
+    bucket TIMESTAMPTZ NOT NULL,
+    power_sum DOUBLE PRECISION NOT NULL,
+    power_min DOUBLE PRECISION NOT NULL,
+    power_max DOUBLE PRECISION NOT NULL,
+    samples BIGINT NOT NULL,
+    PRIMARY KEY (device_id, bucket)
+);
+
+CREATE TABLE IF NOT EXISTS device_power_hour (
+    device_id BIGINT NOT NULL REFERENCES device(id) ON DELETE CASCADE,
+    bucket TIMESTAMPTZ NOT NULL,
+    power_sum DOUBLE PRECISION NOT NULL,
+    power_min DOUBLE PRECISION NOT NULL,
+    power_max DOUBLE PRECISION NOT NULL,
+    samples BIGINT NOT NULL,
+    PRIMARY KEY (device_id, bucket)
+);
@@ -0,0 +1,56 @@
+package com.example.smart_home_syst.dto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class ModeScheduleDtoTest {
+    // 2026-10-17 - суббота
+    private static final LocalDateTime SATURDAY_NOON = LocalDateTime.of(2026, 10, 17, 12, 0);
+
+    private static ModeScheduleDto schedule(LocalTime fireTime, DayOfWeek... days) {
+        return new ModeScheduleDto(1L, "schedule", true, 1L, Set.of(), Set.of(days), fireTime, null, null);
+    }
+
+    @Test
+    void firesLaterTheSameDay() {
+        assertEquals(LocalDateTime.of(2026, 10, 17, 18, 30), schedule(LocalTime.of(18, 30)).nextFireAfter(SATURDAY_NOON));
+    }
+
+    @Test
+    void fireTimeEqualToAfterMovesToNextDay() {
+        assertEquals(LocalDateTime.of(2026, 10, 18, 12, 0), schedule(LocalTime.NOON).nextFireAfter(SATURDAY_NOON));
+    }
+
+    @Test
+    void secondsOfFireTimeAreIgnored() {
+        assertEquals(LocalDateTime.of(2026, 10, 17, 18, 30), schedule(LocalTime.of(18, 30, 45)).nextFireAfter(SATURDAY_NOON));
+    }
+
+    @Test
+    void skipsDaysNotInScheduleAcrossWeekEnd() {
+        ModeScheduleDto weekdays = schedule(LocalTime.of(7, 0), DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY);
+
+        assertEquals(LocalDateTime.of(2026, 10, 19, 7, 0), weekdays.nextFireAfter(SATURDAY_NOON));
+        assertEquals(LocalDateTime.of(2026, 10, 21, 7, 0), weekdays.nextFireAfter(LocalDateTime.of(2026, 10, 19, 7, 0)));
+    }
+
+    @Test
+    void singleDayWrapsToNextWeek() {
+        ModeScheduleDto saturdays = schedule(LocalTime.of(9, 0), DayOfWeek.SATURDAY);
+
+        assertEquals(LocalDateTime.of(2026, 10, 24, 9, 0), saturdays.nextFireAfter(SATURDAY_NOON));
+    }
+
+    @Test
+    void sundayEveningWrapsToMonday() {
+        ModeScheduleDto mondays = schedule(LocalTime.of(6, 0), DayOfWeek.MONDAY);
+
+        assertEquals(LocalDateTime.of(2026, 10, 19, 6, 0), mondays.nextFireAfter(LocalDateTime.of(2026, 10, 18, 23, 59)));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.smart_home_syst.jwt;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.smart_home_syst.dto.RevokedTokenDto;
+import com.example.smart_home_syst.util.TokenHashUtil;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RevokedTokenStoreTest {
+    private static final long HOUR = 3_600_000L;
+    private RevokedTokenStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new RevokedTokenStore(100, new SimpleMeterRegistry());
+    }
+
+    private static String hash(String value) {
+        return TokenHashUtil.hash(value);
+    }
+
+    @Test
+    void addedTokenIsRevoked() {
+        store.add(hash("token"), System.currentTimeMillis() + HOUR);
+
+        assertTrue(store.isRevoked(hash("token")));
+    }
+
+    @Test
+    void notAddedTokensAreNotRevoked() {
+        for (int i = 0; i < 100; i++) {
+            store.add(hash("revoked-" + i), System.currentTimeMillis() + HOUR);
+        }
+
+        // Ложные срабатывания фильтра Блума отсекаются точной проверкой
+        for (int i = 0; i < 10_000; i++) {
+            assertFalse(store.isRevoked(hash("active-" + i)));
+        }
+    }
+
+    @Test
+    void tokensBeyondExpectedSizeAreNotLost() {
+        List<String> hashes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            hashes.add(hash("revoked-" + i));
+            store.add(hashes.get(i), System.currentTimeMillis() + HOUR);
+        }
+        hashes.forEach(tokenHash -> assertTrue(store.isRevoked(tokenHash)));
+
+        store.rebuild(List.of()); // фильтр пересобирается под фактический размер
+        hashes.forEach(tokenHash -> assertTrue(store.isRevoked(tokenHash)));
+    }
+
+    @Test
+    void rebuildDropsExpiredAndLoadsTokensFromDatabase() {
+        store.add(hash("expired"), System.currentTimeMillis() - 1);
+        LocalDateTime expiringDate = LocalDateTime.now(ZoneOffset.UTC).plusHours(1);
+
+        store.rebuild(List.of(new RevokedTokenDto(hash("from-db"), expiringDate)));
+
+        assertFalse(store.isRevoked(hash("expired")));
+        assertTrue(store.isRevoked(hash("from-db")));
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.smart_home_syst.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.example.smart_home_syst.dto.BulkCommandResultDto;
+import com.example.smart_home_syst.dto.DeviceCommandDto;
+import com.example.smart_home_syst.dto.DeviceCommandRequestDto;
+import com.example.smart_home_syst.enumerator.DeviceCommandStatus;
+import com.example.smart_home_syst.enumerator.DeviceCommandType;
+import com.example.smart_home_syst.model.Mode;
+import com.example.smart_home_syst.repository.ModeRepository;
+
+class DeviceCommandQueueTest {
+    private static final DeviceCommandRequestDto TURN_ON = new DeviceCommandRequestDto(DeviceCommandType.TURN_ON, null);
+    private static final DeviceCommandRequestDto TURN_OFF = new DeviceCommandRequestDto(DeviceCommandType.TURN_OFF, null);
+
+    private final List<Map<Long, Boolean>> batches = new CopyOnWriteArrayList<>();
+    private final Set<Long> brokenDeviceIds = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+    private DeviceCommandQueue queue;
+
+    // Записывает пачки в память; первая пачка ждёт releaseFirstBatch, чтобы следующие команды успели накопиться
+    private class FakeBulkCommandExecutor extends DeviceBulkCommandExecutor {
+        FakeBulkCommandExecutor() {
+            super(null, null, null, null, 0);
+        }
+
+        @Override
+        public BulkCommandResultDto applyCommandBatch(Map<Long, Boolean> activeById, Map<Long, Mode> modeById) {
+            if (firstBatchStarted.getCount() > 0) {
+                firstBatchStarted.countDown();
+                await(releaseFirstBatch);
+            }
+            batches.add(new TreeMap<>(activeById));
+            if (activeById.keySet().stream().anyMatch(brokenDeviceIds::contains)) {
+                throw new DataIntegrityViolationException("constraint violated");
+            }
+            return new BulkCommandResultDto("batch", activeById.size(), new ArrayList<>(activeById.keySet()), List.of());
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseFirstBatch.countDown();
+        queue.shutdown();
+        SecurityContextHolder.clearContext();
+    }
+
+    private DeviceCommandQueue createQueue(int maxTracked) {
+        ModeRepository modeRepository = (ModeRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] { ModeRepository.class }, (proxy, method, args) -> List.of());
+        return new DeviceCommandQueue(new FakeBulkCommandExecutor(), modeRepository, 1, 1, 500, 1000, 30, maxTracked);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private DeviceCommandDto awaitFinished(DeviceCommandDto command) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        DeviceCommandDto current = queue.getCommand(command.id());
+        while (current.status() == DeviceCommandStatus.QUEUED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+            current = queue.getCommand(command.id());
+        }
+        return current;
+    }
+
+    // Пока первая пачка пишется, команды устройства 1 заменяют друг друга, и в БД уходит только последняя
+    @Test
+    void waitingCommandsOfDeviceAreCoalesced() throws InterruptedException {
+        queue = createQueue(100);
+        DeviceCommandDto first = queue.submit(1L, TURN_ON);
+        await(firstBatchStarted);
+
+        DeviceCommandDto superseded = queue.submit(1L, TURN_OFF);
+        DeviceCommandDto last = queue.submit(1L, TURN_ON);
+        DeviceCommandDto other = queue.submit(2L, TURN_OFF);
+        releaseFirstBatch.countDown();
+
+        assertEquals(DeviceCommandStatus.APPLIED, awaitFinished(first).status());
+        assertEquals(DeviceCommandStatus.APPLIED, awaitFinished(last).status());
+        assertEquals(DeviceCommandStatus.APPLIED, awaitFinished(other).status());
+        DeviceCommandDto replaced = queue.getCommand(superseded.id());
+        assertEquals(DeviceCommandStatus.SUPERSEDED, replaced.status());
+        assertEquals(last.id(), replaced.error());
+        assertEquals(List.of(Map.of(1L, true), Map.of(1L, true, 2L, false)), batches);
+    }
+
+    @Test
+    void failingDeviceDoesNotFailWholeBatch() throws InterruptedException {
+        queue = createQueue(100);
+        brokenDeviceIds.add(3L);
+        queue.submit(100L, TURN_ON);
+        await(firstBatchStarted);
+
+        List<DeviceCommandDto> commands = new ArrayList<>();
+        for (long deviceId = 1; deviceId <= 8; deviceId++) {
+            commands.add(queue.submit(deviceId, TURN_ON));
+        }
+        releaseFirstBatch.countDown();
+
+        for (DeviceCommandDto command : commands) {
+            DeviceCommandStatus expected = command.deviceId() == 3L ? DeviceCommandStatus.FAILED : DeviceCommandStatus.APPLIED;
+            assertEquals(expected, awaitFinished(command).status());
+        }
+    }
+
+    @Test
+    void oldestFinishedCommandsAreEvictedOverLimit() throws InterruptedException {
+        queue = createQueue(2);
+        releaseFirstBatch.countDown();
+        DeviceCommandDto oldest = queue.submit(1L, TURN_ON);
+        awaitFinished(oldest);
+        DeviceCommandDto second = queue.submit(2L, TURN_ON);
+        awaitFinished(second);
+
+        DeviceCommandDto newest = queue.submit(3L, TURN_ON);
+
+        assertNull(queue.getCommand(oldest.id()));
+        assertEquals(DeviceCommandStatus.APPLIED, queue.getCommand(second.id()).status());
+        assertEquals(DeviceCommandStatus.APPLIED, awaitFinished(newest).status());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.smart_home_syst.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+class CursorCodecTest {
+    private static String base64(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void roundTripKeepsAllParts() {
+        CursorCodec.Cursor cursor = CursorCodec.decode(CursorCodec.encode("title", "Лампа в зале", 42L));
+
+        assertEquals(new CursorCodec.Cursor("title", "Лампа в зале", 42L), cursor);
+    }
+
+    @Test
+    void valueMayContainSeparator() {
+        CursorCodec.Cursor cursor = CursorCodec.decode(CursorCodec.encode("title", "first\nsecond", 7L));
+
+        assertEquals("first\nsecond", cursor.lastValue());
+        assertEquals(7L, cursor.lastId());
+    }
+
+    @Test
+    void missingValueDecodesAsEmpty() {
+        CursorCodec.Cursor cursor = CursorCodec.decode(CursorCodec.encode("id", null, 15L));
+
+        assertEquals(new CursorCodec.Cursor("id", "", 15L), cursor);
+    }
+
+    @Test
+    void encodedCursorIsSafeForQueryParameter() {
+        String encoded = CursorCodec.encode("title", "a/b+c?d=e&f", 1L);
+
+        assertFalse(encoded.matches(".*[+/=?&].*"));
+    }
+
+    @Test
+    void invalidCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> CursorCodec.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> CursorCodec.decode(base64("title")));
+        assertThrows(IllegalArgumentException.class, () -> CursorCodec.decode(base64("title\nabc\nvalue")));
+    }
+}
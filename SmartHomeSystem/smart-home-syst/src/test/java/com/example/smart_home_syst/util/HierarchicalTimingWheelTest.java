@@ -0,0 +1,72 @@
+package com.example.smart_home_syst.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HierarchicalTimingWheelTest {
+    private static final long TICK = 1000;
+    private static final long START = 1_000_000;
+    private HierarchicalTimingWheel<String> wheel;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new HierarchicalTimingWheel<>(TICK, 60, START);
+    }
+
+    @Test
+    void itemFiresWhenItsTickStarts() {
+        assertTrue(wheel.add(START + 5 * TICK, "a"));
+
+        assertEquals(List.of(), wheel.advance(START + 5 * TICK - 1));
+        assertEquals(List.of("a"), wheel.advance(START + 5 * TICK));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void itemInCurrentTickIsRejected() {
+        assertFalse(wheel.add(START + TICK - 1, "now"));
+        assertFalse(wheel.add(START - TICK, "past"));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void farItemsCascadeThroughLevelsAndFireOnTime() {
+        long inMinutes = START + 90 * TICK; // второй уровень
+        long inHours = START + 2 * 3600 * TICK + 30 * TICK; // третий уровень
+        wheel.add(inMinutes, "minutes");
+        wheel.add(inHours, "hours");
+        assertEquals(2, wheel.size());
+
+        assertEquals(List.of(), wheel.advance(inMinutes - TICK));
+        assertEquals(List.of("minutes"), wheel.advance(inMinutes));
+        assertEquals(List.of(), wheel.advance(inHours - TICK));
+        assertEquals(List.of("hours"), wheel.advance(inHours));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void missedTicksAreNotLostAndFireInTimeOrder() {
+        wheel.add(START + 70 * TICK, "c");
+        wheel.add(START + 3 * TICK, "a");
+        wheel.add(START + 30 * TICK, "b");
+
+        // Тикер задержался: один вызов проходит все пропущенные ячейки
+        assertEquals(List.of("a", "b", "c"), wheel.advance(START + 100 * TICK));
+    }
+
+    @Test
+    void itemsOfNextRevolutionDoNotFireInCurrentOne() {
+        wheel.advance(START + 10 * TICK);
+        // Та же ячейка нижнего уровня, что у START + 5 * TICK, но на следующем обороте колеса
+        wheel.add(START + 65 * TICK, "next");
+
+        assertEquals(List.of(), wheel.advance(START + 64 * TICK));
+        assertEquals(List.of("next"), wheel.advance(START + 65 * TICK));
+    }
+}
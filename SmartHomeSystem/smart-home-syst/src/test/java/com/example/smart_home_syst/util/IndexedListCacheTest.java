@@ -0,0 +1,196 @@
+package com.example.smart_home_syst.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class IndexedListCacheTest {
+    private record Item(Long id, long version, String title) {}
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private IndexedListCache<Item> cache(int maxSize, long refreshAfterMs) {
+        return new IndexedListCache<>("items", Item::id, Item::version, Item::title, maxSize, refreshAfterMs, new SimpleMeterRegistry());
+    }
+
+    private List<Item> load(List<Item> items) {
+        loads.incrementAndGet();
+        return items;
+    }
+
+    private static List<Long> ids(List<Item> items) {
+        return items.stream().map(Item::id).toList();
+    }
+
+    @Test
+    void listIsLoadedOnceAndSortedById() {
+        IndexedListCache<Item> cache = cache(100, 60_000);
+        List<Item> items = List.of(new Item(3L, 0, "c"), new Item(1L, 0, "a"), new Item(2L, 0, "b"));
+
+        assertEquals(List.of(1L, 2L, 3L), ids(cache.getAll(() -> load(items))));
+        assertEquals(List.of(1L, 2L, 3L), ids(cache.getAll(() -> load(items))));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void putAndRemoveAreAppliedWithoutReload() {
+        IndexedListCache<Item> cache = cache(100, 60_000);
+        cache.getAll(() -> load(List.of(new Item(1L, 0, "a"), new Item(2L, 0, "b"))));
+
+        cache.put(new Item(2L, 1, "b2"));
+        cache.put(new Item(5L, 0, "e"));
+        cache.remove(1L);
+
+        assertEquals(List.of(new Item(2L, 1, "b2"), new Item(5L, 0, "e")), cache.peek());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void stalePutDoesNotOverwriteNewerEntry() {
+        IndexedListCache<Item> cache = cache(100, 60_000);
+        cache.getAll(() -> load(List.of(new Item(1L, 0, "a"))));
+
+        cache.put(new Item(1L, 2, "newer"));
+        cache.put(new Item(1L, 1, "older")); // коммит более ранней транзакции применился позже
+
+        assertEquals("newer", cache.peek().get(0).title());
+    }
+
+    @Test
+    void putAfterRemoveDoesNotRestoreEntry() {
+        IndexedListCache<Item> cache = cache(100, 60_000);
+        cache.getAll(() -> load(List.of(new Item(1L, 0, "a"))));
+
+        cache.remove(1L);
+        cache.put(new Item(1L, 1, "late"));
+
+        assertEquals(List.of(), cache.peek());
+    }
+
+    @Test
+    void changesDuringLoadAreAppliedOnTopOfLoadedList() {
+        IndexedListCache<Item> cache = cache(100, 60_000);
+
+        List<Item> loaded = cache.getAll(() -> {
+            List<Item> read = List.of(new Item(1L, 0, "a"), new Item(2L, 0, "b"));
+            cache.put(new Item(1L, 1, "a2")); // изменения, закоммиченные после чтения из БД
+            cache.remove(2L);
+            return read;
+        });
+
+        assertEquals(List.of(new Item(1L, 1, "a2")), loaded);
+        assertEquals(loaded, cache.peek());
+    }
+
+    @Test
+    void invalidateDuringLoadIsNotCached() {
+        IndexedListCache<Item> cache = cache(100, 60_000);
+
+        List<Item> loaded = cache.getAll(() -> {
+            cache.invalidate();
+            return List.of(new Item(1L, 0, "a"));
+        });
+
+        assertEquals(List.of(1L), ids(loaded));
+        assertNull(cache.peek());
+    }
+
+    @Test
+    void listLargerThanMaxSizeIsNotCached() {
+        IndexedListCache<Item> cache = cache(2, 60_000);
+        List<Item> items = List.of(new Item(1L, 0, "a"), new Item(2L, 0, "b"), new Item(3L, 0, "c"));
+
+        cache.getAll(() -> load(items));
+        cache.getAll(() -> load(items));
+
+        assertEquals(2, loads.get());
+        assertNull(cache.peek());
+    }
+
+    @Test
+    void cacheIsDroppedWhenPutExceedsMaxSize() {
+        IndexedListCache<Item> cache = cache(2, 60_000);
+        cache.getAll(() -> load(List.of(new Item(1L, 0, "a"), new Item(2L, 0, "b"))));
+
+        cache.put(new Item(3L, 0, "c"));
+
+        assertNull(cache.peek());
+    }
+
+    @Test
+    void expiredListIsReloaded() {
+        IndexedListCache<Item> cache = cache(100, 0);
+        List<Item> items = List.of(new Item(1L, 0, "a"));
+
+        cache.getAll(() -> load(items));
+        cache.getAll(() -> load(items));
+
+        assertEquals(2, loads.get());
+        assertNull(cache.peek());
+    }
+
+    @Test
+    void keyVersionChangesOnlyWithMembershipOrSearchKey() {
+        IndexedListCache<Item> cache = cache(100, 60_000);
+        cache.getAll(() -> load(List.of(new Item(1L, 0, "a"), new Item(2L, 0, "b"))));
+        long loaded = cache.keyVersion(cache.peek());
+
+        cache.put(new Item(1L, 1, "a")); // другие поля, тот же ключ
+        assertEquals(loaded, cache.keyVersion(cache.peek()));
+
+        cache.put(new Item(1L, 2, "renamed"));
+        long renamed = cache.keyVersion(cache.peek());
+        assertNotEquals(loaded, renamed);
+
+        cache.put(new Item(3L, 0, "c"));
+        long added = cache.keyVersion(cache.peek());
+        assertNotEquals(renamed, added);
+
+        cache.remove(2L);
+        assertNotEquals(added, cache.keyVersion(cache.peek()));
+        assertEquals(-1L, cache.keyVersion(List.of()));
+    }
+
+    @Test
+    void randomChangesMatchSortedMap() {
+        IndexedListCache<Item> cache = cache(100_000, 60_000);
+        TreeMap<Long, Item> expected = new TreeMap<>();
+        List<Item> initial = new ArrayList<>();
+        for (long id = 0; id < 3000; id += 2) {
+            initial.add(new Item(id, 0, "item"));
+            expected.put(id, initial.get(initial.size() - 1));
+        }
+        cache.getAll(() -> initial);
+
+        // Вставки в середину делят порции, удаления опустошают их
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            if (random.nextInt(3) == 0) {
+                long id = random.nextInt(3000);
+                cache.remove(id);
+                expected.remove(id);
+            }
+            else {
+                Item item = new Item(10_000L + random.nextInt(4000), i, "item-" + i);
+                cache.put(item);
+                expected.put(item.id(), item);
+            }
+        }
+
+        List<Item> actual = cache.peek();
+        assertEquals(List.copyOf(expected.values()), List.copyOf(actual));
+        for (int i = 0; i < actual.size(); i += 97) {
+            assertEquals(expected.values().stream().skip(i).findFirst().orElseThrow(), actual.get(i));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.smart_home_syst.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
+
+import com.example.smart_home_syst.dto.CursorPageDto;
+
+class KeysetPagerTest {
+    private record Item(Long id, String title) {}
+
+    private int requestedLimit;
+    private int countQueries;
+
+    // Репозиторий-заглушка: отдает строки с учетом limit и считает запросы count
+    @SuppressWarnings("unchecked")
+    private JpaSpecificationExecutor<Item> repository(List<Item> rows) {
+        Object query = Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { FetchableFluentQuery.class },
+            (proxy, method, args) -> switch (method.getName()) {
+                case "limit" -> {
+                    requestedLimit = (int) args[0];
+                    yield proxy;
+                }
+                case "all" -> rows.subList(0, Math.min(requestedLimit, rows.size()));
+                default -> method.getReturnType().isInstance(proxy) ? proxy : null;
+            });
+        return (JpaSpecificationExecutor<Item>) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { JpaSpecificationExecutor.class },
+            (proxy, method, args) -> switch (method.getName()) {
+                case "findBy" -> ((Function<Object, Object>) args[1]).apply(query);
+                case "count" -> {
+                    countQueries++;
+                    yield (long) rows.size();
+                }
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private static List<Item> items(int count) {
+        List<Item> items = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            items.add(new Item(id, "item-" + id));
+        }
+        return items;
+    }
+
+    private CursorPageDto<String> fetch(List<Item> rows, String sort, String cursor, int size, boolean withTotal) {
+        return KeysetPager.fetch(repository(rows), null, sort, cursor, size, withTotal, Item::id, Item::title, Item::title);
+    }
+
+    @Test
+    void pageWithMoreRowsHasNextCursor() {
+        CursorPageDto<String> page = fetch(items(5), "id", null, 3, false);
+
+        assertEquals(List.of("item-1", "item-2", "item-3"), page.content());
+        assertEquals(4, requestedLimit); // одна лишняя запись вместо отдельного запроса о следующей странице
+        assertTrue(page.hasNext());
+        assertEquals(new CursorCodec.Cursor("id", "", 3L), CursorCodec.decode(page.nextCursor()));
+        assertNull(page.totalElements());
+        assertEquals(0, countQueries);
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        CursorPageDto<String> page = fetch(items(3), "id", null, 3, false);
+
+        assertEquals(3, page.content().size());
+        assertFalse(page.hasNext());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void titleCursorKeepsLastTitle() {
+        CursorPageDto<String> page = fetch(items(5), "title", null, 2, false);
+
+        assertEquals(new CursorCodec.Cursor("title", "item-2", 2L), CursorCodec.decode(page.nextCursor()));
+    }
+
+    @Test
+    void totalIsCountedOnlyOnRequest() {
+        CursorPageDto<String> page = fetch(items(5), "id", null, 2, true);
+
+        assertEquals(5L, page.totalElements());
+        assertEquals(1, countQueries);
+    }
+
+    @Test
+    void cursorOfOtherSortIsRejected() {
+        String cursor = CursorCodec.encode("title", "item-2", 2L);
+
+        assertThrows(IllegalArgumentException.class, () -> fetch(items(5), "id", cursor, 2, false));
+    }
+
+    @Test
+    void invalidRequestIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> fetch(items(5), "power", null, 2, false));
+        assertThrows(IllegalArgumentException.class, () -> fetch(items(5), "id", null, 0, false));
+        assertThrows(IllegalArgumentException.class, () -> fetch(items(5), "id", null, KeysetPager.MAX_PAGE_SIZE + 1, false));
+        assertThrows(IllegalArgumentException.class, () -> fetch(items(5), "id", "garbage!", 2, false));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.smart_home_syst.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TrigramIndexTest {
+    private record Item(long id, String title, boolean active) {}
+
+    private static final List<Item> ITEMS = List.of(
+        new Item(1, "Лампа в зале", false),
+        new Item(2, "Kitchen Lamp", false),
+        new Item(3, "Лампа 50%", false),
+        new Item(4, "Лампа 500", false),
+        new Item(5, "tv_box", false),
+        new Item(6, "TV BOX", false));
+
+    private static List<Long> search(TrigramIndex<Item> index, String query) {
+        return index.search(query, ITEMS).stream().map(Item::id).toList();
+    }
+
+    @Test
+    void findsSubstringIgnoringCase() {
+        TrigramIndex<Item> index = new TrigramIndex<>(ITEMS, Item::title, 1);
+
+        assertEquals(List.of(1L, 3L, 4L), search(index, "лАМПа"));
+        assertEquals(List.of(2L), search(index, "lamp"));
+        assertEquals(List.of(1L), search(index, " в зал "));
+    }
+
+    @Test
+    void shortAndEmptyQueries() {
+        TrigramIndex<Item> index = new TrigramIndex<>(ITEMS, Item::title, 1);
+
+        assertEquals(List.of(5L, 6L), search(index, "tv"));
+        assertEquals(ITEMS, index.search("  ", ITEMS));
+        assertEquals(ITEMS, index.search(null, ITEMS));
+    }
+
+    @Test
+    void unknownTrigramGivesNoMatches() {
+        TrigramIndex<Item> index = new TrigramIndex<>(ITEMS, Item::title, 1);
+
+        assertEquals(List.of(), search(index, "холодильник"));
+    }
+
+    @Test
+    void likeWildcardsAreOrdinaryCharacters() {
+        TrigramIndex<Item> index = new TrigramIndex<>(ITEMS, Item::title, 1);
+
+        assertEquals(List.of(3L), search(index, "50%"));
+        assertEquals(List.of(5L), search(index, "tv_"));
+    }
+
+    @Test
+    void searchReturnsItemsOfPassedListWithSameKeys() {
+        TrigramIndex<Item> index = new TrigramIndex<>(ITEMS, Item::title, 7);
+        List<Item> newer = ITEMS.stream().map(item -> new Item(item.id(), item.title(), true)).toList();
+
+        assertTrue(index.isBuiltFor(7));
+        assertFalse(index.isBuiltFor(8));
+        assertTrue(index.search("лампа", newer).stream().allMatch(Item::active));
+    }
+
+    @Test
+    void matchesBruteForceSearch() {
+        Random random = new Random(7);
+        String alphabet = "abcабв _%";
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder title = new StringBuilder();
+            for (int j = 0, length = 3 + random.nextInt(10); j < length; j++) {
+                title.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            items.add(new Item(i, random.nextBoolean() ? title.toString().toUpperCase(Locale.ROOT) : title.toString(), false));
+        }
+        TrigramIndex<Item> index = new TrigramIndex<>(items, Item::title, 1);
+
+        for (int i = 0; i < 500; i++) {
+            String query = items.get(random.nextInt(items.size())).title();
+            int from = random.nextInt(query.length());
+            String needle = query.substring(from, from + 1 + random.nextInt(query.length() - from));
+            String expectedNeedle = needle.trim().toLowerCase(Locale.ROOT);
+            List<Item> expected = items.stream()
+                .filter(item -> item.title().toLowerCase(Locale.ROOT).contains(expectedNeedle))
+                .toList();
+            assertEquals(expected, index.search(needle, items));
+        }
+    }
+}